@@ -0,0 +1,160 @@
+package stud.ntnu.no.idatt2105.Findigo.benchmark;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import stud.ntnu.no.idatt2105.Findigo.FindigoApplication;
+import stud.ntnu.no.idatt2105.Findigo.entities.Attribute;
+import stud.ntnu.no.idatt2105.Findigo.entities.Category;
+import stud.ntnu.no.idatt2105.Findigo.entities.User;
+import stud.ntnu.no.idatt2105.Findigo.repository.AttributeRepository;
+import stud.ntnu.no.idatt2105.Findigo.repository.CategoryRepository;
+import stud.ntnu.no.idatt2105.Findigo.repository.UserRepository;
+import stud.ntnu.no.idatt2105.Findigo.service.CategoryCache;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Starts the application on a random port against an in-memory H2 database filled with a synthetic catalogue of listings.
+ * <p>
+ * Users, categories and attributes are saved through the repositories. Listings are inserted with
+ * JDBC batches, and every listing gets a value for each attribute of its category, so catalogues of
+ * a million listings are created in seconds. Listings are not added to the search index, so
+ * benchmarks filter by category, price and date only.
+ * </p>
+ */
+final class BenchmarkCatalogue {
+
+  static final int CATEGORIES = 10;
+  static final int ATTRIBUTES_PER_CATEGORY = 3;
+  static final int USERS = 100;
+  static final int MAX_PRICE = 100_000;
+
+  private static final int BATCH_SIZE = 10_000;
+  private static final String[] WORDS = {"bike", "sofa", "phone", "table", "lamp", "jacket", "camera", "guitar"};
+
+  private final ConfigurableApplicationContext context;
+  private final List<Category> categories = new ArrayList<>();
+  private final List<User> users = new ArrayList<>();
+
+  private BenchmarkCatalogue(ConfigurableApplicationContext context) {
+    this.context = context;
+  }
+
+  /**
+   * Starts the application and fills its database.
+   *
+   * @param listings the number of listings to create
+   * @return the started catalogue, which the caller closes
+   */
+  static BenchmarkCatalogue start(int listings) {
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(FindigoApplication.class)
+        .profiles("test")
+        .properties(
+            "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+            "spring.jpa.hibernate.ddl-auto=create",
+            "spring.jpa.show-sql=false",
+            "server.port=0",
+            "server.ssl.enabled=false",
+            "spring.jpa.properties.hibernate.generate_statistics=false",
+            "logging.level.root=WARN",
+            "logging.level.stud.ntnu.no.idatt2105.Findigo=WARN")
+        .run();
+    BenchmarkCatalogue catalogue = new BenchmarkCatalogue(context);
+    catalogue.fill(listings);
+    return catalogue;
+  }
+
+  /**
+   * Returns a bean of the started application.
+   *
+   * @param type the type of the bean
+   * @param <T>  the type of the bean
+   * @return the bean
+   */
+  <T> T bean(Class<T> type) {
+    return context.getBean(type);
+  }
+
+  /**
+   * Returns the categories of the catalogue, with their attributes.
+   *
+   * @return the categories
+   */
+  List<Category> categories() {
+    return categories;
+  }
+
+  /**
+   * Returns the users owning the listings of the catalogue.
+   *
+   * @return the users
+   */
+  List<User> users() {
+    return users;
+  }
+
+  /**
+   * Stops the application, dropping the database.
+   */
+  void close() {
+    context.close();
+  }
+
+  private void fill(int listings) {
+    UserRepository userRepository = bean(UserRepository.class);
+    CategoryRepository categoryRepository = bean(CategoryRepository.class);
+    AttributeRepository attributeRepository = bean(AttributeRepository.class);
+
+    for (int i = 0; i < USERS; i++) {
+      users.add(userRepository.save(new User()
+          .setUsername("benchmark-user-" + i)
+          .setPassword("password")
+          .setPhoneNumber("4000" + i)));
+    }
+    for (int i = 0; i < CATEGORIES; i++) {
+      Category category = categoryRepository.save(new Category().setCategoryName("Category " + i));
+      for (int j = 0; j < ATTRIBUTES_PER_CATEGORY; j++) {
+        category.getAttributes().add(attributeRepository.save(new Attribute()
+            .setAttributeName("Attribute " + j)
+            .setDataType("string")
+            .setCategory(category)));
+      }
+      categories.add(category);
+    }
+    // Saved through the repositories, so the cache is not invalidated by CategoryService
+    bean(CategoryCache.class).invalidate();
+
+    JdbcTemplate jdbc = bean(JdbcTemplate.class);
+    SplittableRandom random = new SplittableRandom(42);
+    long now = System.currentTimeMillis();
+    List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < listings; i++) {
+      String word = WORDS[random.nextInt(WORDS.length)];
+      batch.add(new Object[]{
+          "Used " + word + " " + i,
+          "A well kept " + word + ", listing number " + i + " of the benchmark catalogue.",
+          10.3 + random.nextDouble(0.2),
+          63.4 + random.nextDouble(0.1),
+          (double) random.nextInt(MAX_PRICE),
+          "Benchmark street " + random.nextInt(500),
+          String.valueOf(7000 + random.nextInt(100)),
+          new Timestamp(now - random.nextLong(365L * 24 * 60 * 60 * 1000)),
+          "ACTIVE",
+          categories.get(random.nextInt(CATEGORIES)).getId(),
+          users.get(random.nextInt(USERS)).getId()
+      });
+      if (batch.size() == BATCH_SIZE || i == listings - 1) {
+        jdbc.batchUpdate("insert into listing (brief_description, full_description, longitude, latitude, price, "
+            + "address, postal_code, date_created, listing_status, category_id, user_id) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", batch);
+        batch.clear();
+      }
+    }
+    jdbc.update("insert into listing_attribute (attribute_value, listing_id, attribute_id) "
+        + "select concat('value ', l.id), l.id, a.id from listing l join attribute a on a.category_id = l.category_id");
+  }
+}
@@ -0,0 +1,65 @@
+package stud.ntnu.no.idatt2105.Findigo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import stud.ntnu.no.idatt2105.Findigo.dtos.listing.FilterListingsRequest;
+import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingResponse;
+import stud.ntnu.no.idatt2105.Findigo.service.ListingService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ListingService#getAllFilteredListings} over catalogues of different sizes.
+ * <p>
+ * Each filter matches about one percent of the catalogue: one of ten categories within a tenth of
+ * the price range. The database is filled once per catalogue size, so the largest size needs a
+ * few gigabytes of heap.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ListingFilterBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  private int listings;
+
+  private BenchmarkCatalogue catalogue;
+  private ListingService listingService;
+  private FilterListingsRequest filter;
+
+  @Setup
+  public void setUp() {
+    catalogue = BenchmarkCatalogue.start(listings);
+    listingService = catalogue.bean(ListingService.class);
+
+    filter = new FilterListingsRequest();
+    filter.setCategoryId(catalogue.categories().get(0).getId());
+    filter.setFromPrice(0);
+    filter.setToPrice(BenchmarkCatalogue.MAX_PRICE / 10);
+  }
+
+  @TearDown
+  public void tearDown() {
+    catalogue.close();
+  }
+
+  @Benchmark
+  public List<ListingResponse> filterByCategoryAndPrice() {
+    return listingService.getAllFilteredListings(filter);
+  }
+}
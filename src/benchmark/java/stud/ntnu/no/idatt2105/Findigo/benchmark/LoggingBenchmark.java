@@ -0,0 +1,76 @@
+package stud.ntnu.no.idatt2105.Findigo.benchmark;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.async.AsyncLoggerContextSelector;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.apache.logging.log4j.core.selector.ClassLoaderContextSelector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency logging adds to a request, with the synchronous configuration the application
+ * used before and the asynchronous, garbage-free configuration in {@code log4j2.xml}.
+ * <p>
+ * Each operation logs the lines of a typical request to the listing controller and service. The
+ * sampled latencies show the time the request thread spends logging; run with {@code -prof gc} to
+ * also compare the allocations. The log files are written to {@code target/benchmark-logs}, and the
+ * console output is discarded.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+
+  @Param({"sync", "async"})
+  private String configuration;
+
+  private LoggerContext context;
+  private Logger controllerLogger;
+  private Logger serviceLogger;
+
+  @Setup
+  public void setUp() {
+    System.setProperty("findigo.log.dir", System.getProperty("findigo.log.dir", "target/benchmark-logs/" + configuration));
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    boolean async = "async".equals(configuration);
+    System.setProperty("log4j2.contextSelector",
+        (async ? AsyncLoggerContextSelector.class : ClassLoaderContextSelector.class).getName());
+    context = Configurator.initialize("benchmark", async ? "classpath:log4j2.xml" : "classpath:log4j2-sync.xml");
+    controllerLogger = context.getLogger("stud.ntnu.no.idatt2105.Findigo.controller.ListingController");
+    serviceLogger = context.getLogger("stud.ntnu.no.idatt2105.Findigo.service.ListingService");
+  }
+
+  @TearDown
+  public void tearDown() {
+    Configurator.shutdown(context);
+  }
+
+  @Benchmark
+  public void logRequest() {
+    controllerLogger.info("Getting filtered listings, page {}", 1);
+    serviceLogger.info("Filtering listings with query {} in category {}", "bicycle", ThreadLocalRandom.current().nextInt(10));
+    controllerLogger.info("Fetched {} filtered listings", 20);
+  }
+}
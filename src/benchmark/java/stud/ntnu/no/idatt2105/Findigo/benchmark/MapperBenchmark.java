@@ -0,0 +1,88 @@
+package stud.ntnu.no.idatt2105.Findigo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import stud.ntnu.no.idatt2105.Findigo.dtos.category.CategoryResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.mappers.CategoryMapper;
+import stud.ntnu.no.idatt2105.Findigo.dtos.mappers.ListingMapper;
+import stud.ntnu.no.idatt2105.Findigo.entities.Attribute;
+import stud.ntnu.no.idatt2105.Findigo.entities.Category;
+import stud.ntnu.no.idatt2105.Findigo.entities.Listing;
+import stud.ntnu.no.idatt2105.Findigo.entities.ListingAttribute;
+import stud.ntnu.no.idatt2105.Findigo.entities.ListingStatus;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the mapping of entities to the DTOs returned by the listing read path.
+ * <p>
+ * The entities are built in memory, so only the mapping is measured; the category metadata
+ * of a listing is read from the application's category cache as in production.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+  private BenchmarkCatalogue catalogue;
+  private ListingMapper listingMapper;
+  private Listing listing;
+  private Category category;
+
+  @Setup
+  public void setUp() {
+    catalogue = BenchmarkCatalogue.start(0);
+    listingMapper = catalogue.bean(ListingMapper.class);
+    category = catalogue.categories().get(0);
+
+    listing = new Listing()
+        .setId(1L)
+        .setBriefDescription("Used bike")
+        .setFullDescription("A well kept bike.")
+        .setLatitude(63.43)
+        .setLongitude(10.39)
+        .setPrice(1500)
+        .setAddress("Benchmark street 1")
+        .setPostalCode("7030")
+        .setDateCreated(new Date())
+        .setListingStatus(ListingStatus.ACTIVE)
+        .setCategory(category)
+        .setUser(catalogue.users().get(0));
+    for (Attribute attribute : category.getAttributes()) {
+      listing.getListingAttributes().add(new ListingAttribute()
+          .setAttributeValue("value")
+          .setAttribute(attribute)
+          .setListing(listing));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    catalogue.close();
+  }
+
+  @Benchmark
+  public ListingResponse listingToDto() {
+    return listingMapper.toDto(listing);
+  }
+
+  @Benchmark
+  public CategoryResponse categoryToDto() {
+    return CategoryMapper.toDto(category);
+  }
+}
@@ -0,0 +1,58 @@
+package stud.ntnu.no.idatt2105.Findigo.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import stud.ntnu.no.idatt2105.Findigo.dtos.listing.FilterListingsRequest;
+import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingResponse;
+import stud.ntnu.no.idatt2105.Findigo.service.ListingService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the JSON serialization of a page of listings, with the application's configured {@link ObjectMapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageSerializationBenchmark {
+
+  @Param({"20", "100"})
+  private int pageSize;
+
+  private BenchmarkCatalogue catalogue;
+  private ObjectMapper objectMapper;
+  private Page<ListingResponse> page;
+
+  @Setup
+  public void setUp() {
+    catalogue = BenchmarkCatalogue.start(pageSize);
+    objectMapper = catalogue.bean(ObjectMapper.class);
+    page = catalogue.bean(ListingService.class).getFilteredListings(0, pageSize, new FilterListingsRequest());
+  }
+
+  @TearDown
+  public void tearDown() {
+    catalogue.close();
+  }
+
+  @Benchmark
+  public byte[] serializePage() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(page);
+  }
+}
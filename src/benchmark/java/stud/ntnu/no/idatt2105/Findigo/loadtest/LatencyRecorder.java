@@ -0,0 +1,71 @@
+package stud.ntnu.no.idatt2105.Findigo.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Records the latencies and errors of the requests to one endpoint.
+ * <p>
+ * Every latency is kept, so percentiles are exact. A recorder is written by one virtual user only,
+ * and the recorders of all virtual users are merged for the report.
+ * </p>
+ */
+final class LatencyRecorder {
+
+  private long[] latencies = new long[1024];
+  private int count;
+  private int errors;
+
+  /**
+   * Records a request.
+   *
+   * @param nanos      the latency of the request
+   * @param successful {@code false} if the request failed or got an error status
+   */
+  void record(long nanos, boolean successful) {
+    if (count == latencies.length) {
+      latencies = Arrays.copyOf(latencies, count * 2);
+    }
+    latencies[count++] = nanos;
+    if (!successful) {
+      errors++;
+    }
+  }
+
+  /**
+   * Adds the requests recorded by another recorder to this one.
+   *
+   * @param other the recorder to add
+   */
+  void merge(LatencyRecorder other) {
+    if (count + other.count > latencies.length) {
+      latencies = Arrays.copyOf(latencies, count + other.count);
+    }
+    System.arraycopy(other.latencies, 0, latencies, count, other.count);
+    count += other.count;
+    errors += other.errors;
+  }
+
+  int count() {
+    return count;
+  }
+
+  int errors() {
+    return errors;
+  }
+
+  /**
+   * Calculates a percentile of the recorded latencies with the nearest-rank method.
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return the latency in milliseconds, or zero if nothing was recorded
+   */
+  double percentileMillis(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    long[] sorted = Arrays.copyOf(latencies, count);
+    Arrays.sort(sorted);
+    int rank = (int) Math.ceil(percentile / 100 * count);
+    return sorted[Math.max(rank, 1) - 1] / 1e6;
+  }
+}
@@ -0,0 +1,349 @@
+package stud.ntnu.no.idatt2105.Findigo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Scripted load scenario against a running application with data from {@link MarketplaceDataGenerator}.
+ * <p>
+ * Each virtual user logs in as a random generated user and then, without pausing, repeatedly browses
+ * recommended listings, searches, views the detail of a listing it has seen or messages the seller
+ * of one. Browsing and searching use both the numbered pages and the cursor feeds, where a virtual
+ * user mostly continues from the cursor of its previous page. When the run ends, the number of requests, errors, throughput and p50/p99 latency of each
+ * endpoint are printed. Requests during the warmup are not recorded.
+ * </p>
+ * <p>
+ * Start the application with the {@code loadtest} profile, e.g. {@code test,loadtest} for H2 or
+ * {@code dev,loadtest} for a local MySQL, then run the scenario with
+ * {@code mvn -Pbenchmark test-compile exec:exec@load-test -Dloadtest.args="virtual-users=64"}.
+ * Options are given as {@code name=value}:
+ * </p>
+ * <ul>
+ *   <li>{@code base-url}: the URL of the application, {@code http://localhost:8080} by default</li>
+ *   <li>{@code virtual-users}: the number of concurrent virtual users, 32 by default</li>
+ *   <li>{@code warmup}: the seconds before recording starts, 10 by default</li>
+ *   <li>{@code duration}: the seconds requests are recorded, 60 by default</li>
+ *   <li>{@code accounts}: the number of generated users to log in as, matching {@code loadtest.users}</li>
+ *   <li>{@code password}: the password of the generated users, matching {@code loadtest.password}</li>
+ *   <li>{@code seed}: the seed of the virtual users' choices, 42 by default</li>
+ * </ul>
+ */
+public final class LoadScenario {
+
+  /**
+   * The requests of the scenario, with their share of the steps of a virtual user.
+   */
+  enum Step {
+    LOGIN("POST /api/auth/login", 0),
+    BROWSE("GET /api/listings/recommended/{page}", 25),
+    BROWSE_FEED("GET /api/listings/recommended/feed", 15),
+    SEARCH("POST /api/listings/all/{page}", 20),
+    SEARCH_FEED("POST /api/listings/all/feed", 10),
+    DETAIL("GET /api/listings/{id}", 25),
+    MESSAGE("POST /api/messages/send", 5);
+
+    private final String endpoint;
+    private final int weight;
+
+    Step(String endpoint, int weight) {
+      this.endpoint = endpoint;
+      this.weight = weight;
+    }
+  }
+
+  private static final int SEEN_LISTINGS = 50;
+  private static final List<String> SEARCH_WORDS = MarketplaceDataGenerator.CATALOGUE.values().stream()
+      .flatMap(List::stream)
+      .sorted()
+      .toList();
+
+  private final HttpClient client = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1)
+      .connectTimeout(Duration.ofSeconds(10))
+      .build();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final String baseUrl;
+  private final int virtualUsers;
+  private final int accounts;
+  private final String password;
+  private final long seed;
+  private final long recordFrom;
+  private final long recordUntil;
+
+  private LoadScenario(Map<String, String> options) {
+    this.baseUrl = options.getOrDefault("base-url", "http://localhost:8080");
+    this.virtualUsers = Integer.parseInt(options.getOrDefault("virtual-users", "32"));
+    this.accounts = Integer.parseInt(options.getOrDefault("accounts", "10000"));
+    this.password = options.getOrDefault("password", "password");
+    this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+    this.recordFrom = System.nanoTime() + Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10"))).toNanos();
+    this.recordUntil = recordFrom + Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60"))).toNanos();
+  }
+
+  /**
+   * Runs the scenario and prints its report.
+   *
+   * @param args the options, as {@code name=value}
+   * @throws Exception if a virtual user failed
+   */
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (separator < 0) {
+        throw new IllegalArgumentException("Options are given as name=value, got " + arg);
+      }
+      options.put(arg.substring(0, separator), arg.substring(separator + 1));
+    }
+    new LoadScenario(options).run();
+  }
+
+  private void run() throws Exception {
+    System.out.printf("Running %d virtual users against %s%n", virtualUsers, baseUrl);
+    Map<Step, LatencyRecorder> total = new EnumMap<>(Step.class);
+    for (Step step : Step.values()) {
+      total.put(step, new LatencyRecorder());
+    }
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<Future<Map<Step, LatencyRecorder>>> results = new ArrayList<>();
+      for (int i = 0; i < virtualUsers; i++) {
+        VirtualUser user = new VirtualUser(new SplittableRandom(seed + i));
+        results.add(executor.submit(user::run));
+      }
+      for (Future<Map<Step, LatencyRecorder>> result : results) {
+        result.get().forEach((step, recorder) -> total.get(step).merge(recorder));
+      }
+    }
+    report(total);
+  }
+
+  private void report(Map<Step, LatencyRecorder> recorders) {
+    double seconds = (recordUntil - recordFrom) / 1e9;
+    String format = "%-38s %9s %7s %9s %9s %9s%n";
+    System.out.printf(format, "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p99 ms");
+    LatencyRecorder all = new LatencyRecorder();
+    Map<String, LatencyRecorder> rows = new LinkedHashMap<>();
+    recorders.forEach((step, recorder) -> {
+      rows.put(step.endpoint, recorder);
+      all.merge(recorder);
+    });
+    rows.put("All", all);
+    rows.forEach((endpoint, recorder) -> System.out.printf(format, endpoint,
+        recorder.count(),
+        recorder.errors(),
+        String.format("%.1f", recorder.count() / seconds),
+        String.format("%.2f", recorder.percentileMillis(50)),
+        String.format("%.2f", recorder.percentileMillis(99))));
+  }
+
+  /**
+   * One simulated user, sending one request at a time.
+   */
+  private final class VirtualUser {
+
+    private final SplittableRandom random;
+    private final Map<Step, LatencyRecorder> recorders = new EnumMap<>(Step.class);
+    private final List<long[]> seenListings = new ArrayList<>();
+    private String cookie;
+    private long userId;
+    private String browseCursor;
+    private String searchCursor;
+    private Map<String, Object> feedFilter;
+
+    private VirtualUser(SplittableRandom random) {
+      this.random = random;
+      for (Step step : Step.values()) {
+        recorders.put(step, new LatencyRecorder());
+      }
+    }
+
+    /**
+     * Logs in and sends requests until the run ends.
+     *
+     * @return the latencies of the requests sent after the warmup
+     * @throws Exception if the virtual user could not log in
+     */
+    Map<Step, LatencyRecorder> run() throws Exception {
+      logIn();
+      while (System.nanoTime() < recordUntil) {
+        Step step = pickStep();
+        switch (step) {
+          case BROWSE -> rememberListings(send(step, get("/api/listings/recommended/" + random.nextInt(1, 4))), "content");
+          case BROWSE_FEED -> browseCursor = nextCursor(rememberListings(
+              send(step, get("/api/listings/recommended/feed" + cursorParameter(continueFeed(browseCursor)))), "listings"));
+          case SEARCH -> rememberListings(send(step, post("/api/listings/all/1", searchFilter())), "content");
+          case SEARCH_FEED -> {
+            String cursor = continueFeed(searchCursor);
+            if (cursor == null) {
+              feedFilter = searchFilter();
+            }
+            searchCursor = nextCursor(rememberListings(
+                send(step, post("/api/listings/all/feed" + cursorParameter(cursor), feedFilter)), "listings"));
+          }
+          case DETAIL -> send(step, get("/api/listings/" + seenListing()[0]));
+          case MESSAGE -> {
+            long sellerId = seenListing()[1];
+            if (sellerId != userId) {
+              send(step, post("/api/messages/send", Map.of(
+                  "fromUserId", userId,
+                  "toUserId", sellerId,
+                  "messageText", "Is this still available?")));
+            }
+          }
+          default -> throw new IllegalStateException("Unexpected step " + step);
+        }
+      }
+      return recorders;
+    }
+
+    private void logIn() throws Exception {
+      String username = MarketplaceDataGenerator.USERNAME_PREFIX + random.nextInt(accounts);
+      HttpResponse<String> response = send(Step.LOGIN, post("/api/auth/login",
+          Map.of("username", username, "password", password)));
+      if (response == null) {
+        throw new IllegalStateException("Could not reach " + baseUrl);
+      }
+      cookie = response.headers().allValues("Set-Cookie").stream()
+          .filter(header -> header.startsWith("auth-token="))
+          .map(header -> header.split(";", 2)[0])
+          .findFirst()
+          .orElseThrow(() -> new IllegalStateException("Could not log in as " + username
+              + ", is the application running with the loadtest profile?"));
+      userId = objectMapper.readTree(client.send(get("/api/users/profile"), HttpResponse.BodyHandlers.ofString()).body())
+          .get("id").asLong();
+    }
+
+    private Step pickStep() {
+      if (seenListings.isEmpty()) {
+        return random.nextBoolean() ? Step.BROWSE : Step.SEARCH;
+      }
+      int roll = random.nextInt(100);
+      for (Step step : Step.values()) {
+        roll -= step.weight;
+        if (roll < 0) {
+          return step;
+        }
+      }
+      return Step.BROWSE;
+    }
+
+    private Map<String, Object> searchFilter() {
+      Map<String, Object> filter = new HashMap<>();
+      filter.put("query", SEARCH_WORDS.get(random.nextInt(SEARCH_WORDS.size())));
+      if (random.nextInt(3) == 0) {
+        filter.put("toPrice", random.nextInt(500, 20_000));
+      }
+      return filter;
+    }
+
+    /**
+     * Picks a listing seen in an earlier response.
+     *
+     * @return the ID of the listing and the ID of its seller
+     */
+    private long[] seenListing() {
+      return seenListings.get(random.nextInt(seenListings.size()));
+    }
+
+    /**
+     * Picks whether to continue a feed from its last cursor, or to start it over.
+     *
+     * @param cursor the cursor of the next page of the feed, or {@code null} if it ended
+     * @return the cursor to request, or {@code null} for the first page
+     */
+    private String continueFeed(String cursor) {
+      return cursor != null && random.nextInt(4) != 0 ? cursor : null;
+    }
+
+    private String cursorParameter(String cursor) {
+      return cursor == null ? "" : "?cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8);
+    }
+
+    private String nextCursor(JsonNode page) {
+      JsonNode cursor = page.path("nextCursor");
+      return cursor.isTextual() ? cursor.asText() : null;
+    }
+
+    /**
+     * Remembers the listings of a page of listings.
+     *
+     * @param response the response with the page
+     * @param field    the field of the page holding the listings
+     * @return the page, or a missing node if the request failed
+     */
+    private JsonNode rememberListings(HttpResponse<String> response, String field) throws Exception {
+      if (response == null || response.statusCode() != 200) {
+        return objectMapper.missingNode();
+      }
+      JsonNode page = objectMapper.readTree(response.body());
+      for (JsonNode listing : page.path(field)) {
+        if (seenListings.size() == SEEN_LISTINGS) {
+          seenListings.remove(random.nextInt(SEEN_LISTINGS));
+        }
+        seenListings.add(new long[]{listing.get("id").asLong(), listing.path("user").path("id").asLong()});
+      }
+      return page;
+    }
+
+    /**
+     * Sends a request and records its latency if the warmup is over.
+     *
+     * @return the response, or {@code null} if the request failed
+     */
+    private HttpResponse<String> send(Step step, HttpRequest request) {
+      long start = System.nanoTime();
+      HttpResponse<String> response = null;
+      try {
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+      } catch (Exception e) {
+        if (e instanceof InterruptedException) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      long end = System.nanoTime();
+      if (start >= recordFrom && end <= recordUntil) {
+        recorders.get(step).record(end - start, response != null && response.statusCode() < 400);
+      }
+      return response;
+    }
+
+    private HttpRequest get(String path) {
+      return request(path).GET().build();
+    }
+
+    private HttpRequest post(String path, Object body) throws Exception {
+      return request(path)
+          .header("Content-Type", "application/json")
+          .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+          .build();
+    }
+
+    private HttpRequest.Builder request(String path) {
+      HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+      if (cookie != null) {
+        builder.header("Cookie", cookie);
+      }
+      return builder;
+    }
+  }
+}
@@ -5,7 +5,6 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 @SpringBootApplication
 public class FindigoApplication {
 	public static void main(String[] args) {
-		System.out.println("Hello world!");
 		SpringApplication.run(FindigoApplication.class, args);
 	}
 }
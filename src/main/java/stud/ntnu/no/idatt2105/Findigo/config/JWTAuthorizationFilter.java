@@ -1,26 +1,40 @@
 package stud.ntnu.no.idatt2105.Findigo.config;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
-import stud.ntnu.no.idatt2105.Findigo.service.CustomUserDetailsService;
+import stud.ntnu.no.idatt2105.Findigo.service.PrincipalCache;
 
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Filter responsible for handling JWT authorization.
  * <p>
  * This filter intercepts each incoming HTTP request, checks for a JWT token in cookies,
  * validates the token, and if valid, sets the authentication in the security context.
+ * The token is verified and its claims extracted in a single call to {@link JWTUtil#parseToken(String)}.
+ * The principal of the token is read from the {@link PrincipalCache}, so repeated requests
+ * with the same token do not load the user from the database.
+ * <p>
+ * With {@code security.jwt.stateless-authentication} enabled, the authentication is instead built
+ * from the user ID and roles claims of the token as a {@link JwtPrincipal}, without any lookup.
+ * Role changes then take effect when the user receives a new token. Tokens issued without
+ * a user ID are still authenticated through the cache.
  * <p>
  * It extends {@link OncePerRequestFilter} to ensure it is executed once per request.
  */
@@ -28,8 +42,13 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JWTAuthorizationFilter extends OncePerRequestFilter {
 
+  private static final Logger logger = LogManager.getLogger(JWTAuthorizationFilter.class);
+
   private final JWTUtil jwtUtil;
-  private final CustomUserDetailsService userDetailsService;
+  private final PrincipalCache principalCache;
+
+  @Value("${security.jwt.stateless-authentication:false}")
+  private boolean statelessAuthentication;
 
   /**
    * Filters incoming HTTP requests for JWT authentication.
@@ -51,12 +70,12 @@ public class JWTAuthorizationFilter extends OncePerRequestFilter {
 
     // Skip filtering for authentication endpoints
     if (request.getRequestURI().startsWith("/api/auth/")) {
-      logger.debug("Skipping JWT filter for authentication endpoint: " + request.getRequestURI());
+      logger.debug("Skipping JWT filter for authentication endpoint: {}", request.getRequestURI());
       chain.doFilter(request, response);
       return;
     }
 
-    logger.info("JWTAuthorizationFilter: Processing request: " + request.getRequestURI());
+    logger.debug("JWTAuthorizationFilter: Processing request: {}", request.getRequestURI());
 
     String token = extractTokenFromCookies(request.getCookies());
 
@@ -66,24 +85,34 @@ public class JWTAuthorizationFilter extends OncePerRequestFilter {
       return;
     }
 
-    String username = jwtUtil.extractUsername(token);
-
-    logger.info("Token username: " + username);
-    logger.info("User authorities: " + userDetailsService.loadUserByUsername(username).getAuthorities());
+    Optional<Claims> claims = jwtUtil.parseToken(token);
 
+    // If the token is invalid, expired or has no subject, proceed without authentication
+    if (claims.isEmpty() || claims.get().getSubject() == null
+            || SecurityContextHolder.getContext().getAuthentication() != null) {
+      chain.doFilter(request, response);
+      return;
+    }
 
-    if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-      UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+    logger.debug("Token username: {}", claims.get().getSubject());
 
-      if (jwtUtil.isTokenValid(token)) {
-        UsernamePasswordAuthenticationToken authToken =
-                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+    Optional<JwtPrincipal> statelessPrincipal = statelessAuthentication
+            ? jwtUtil.toPrincipal(claims.get())
+            : Optional.empty();
 
-        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-        SecurityContextHolder.getContext().setAuthentication(authToken);
-      }
+    UsernamePasswordAuthenticationToken authToken;
+    if (statelessPrincipal.isPresent()) {
+      JwtPrincipal principal = statelessPrincipal.get();
+      authToken = new UsernamePasswordAuthenticationToken(
+              principal, null, principal.roles().stream().map(SimpleGrantedAuthority::new).toList());
+    } else {
+      UserDetails userDetails = principalCache.getPrincipal(claims.get().getSubject(), claims.get().getIssuedAt());
+      authToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
     }
 
+    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+    SecurityContextHolder.getContext().setAuthentication(authToken);
+
     chain.doFilter(request, response);
   }
 
@@ -1,20 +1,32 @@
 package stud.ntnu.no.idatt2105.Findigo.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+import stud.ntnu.no.idatt2105.Findigo.entities.User;
 
 import java.security.Key;
+import java.time.Duration;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.Optional;
 
 /**
  * Utility service for handling JWT token creation, parsing, and validation.
@@ -22,22 +34,97 @@ import java.util.function.Function;
  * This class provides methods to:
  * <ul>
  *   <li>Generate JWT tokens for authenticated users.</li>
- *   <li>Extract claims such as username from tokens.</li>
- *   <li>Validate tokens to ensure their authenticity and expiry status.</li>
+ *   <li>Validate tokens and extract their claims in a single parse.</li>
+ *   <li>Build a {@link JwtPrincipal} from the claims of a token.</li>
  * </ul>
  * It is primarily used in the authentication and authorization flow of the application.
+ * <p>
+ * The signing key and the thread-safe parser are created once on startup. The claims of verified
+ * tokens are cached until the token expires, so repeated requests with the same token skip
+ * signature verification.
+ * </p>
  */
 @Service
 public class JWTUtil {
 
+  private static final Logger logger = LogManager.getLogger(JWTUtil.class);
+
   @Value("${security.jwt.secret-key}")
   private String secretKey;
 
   @Value("${security.jwt.access-token-expiration}")
   private long accessTokenExpiration;
 
+  /**
+   * The maximum number of verified tokens kept in the cache.
+   */
+  @Value("${security.jwt.verified-token-cache.maximum-size:10000}")
+  private long verifiedTokenCacheSize;
+
+  /**
+   * The maximum number of seconds a verified token is kept in the cache, regardless of its expiration.
+   */
+  @Value("${security.jwt.verified-token-cache.ttl-seconds:300}")
+  private long verifiedTokenCacheTtlSeconds;
+
+  private static final String ROLES_CLAIM = "roles";
+
+  private static final String USER_ID_CLAIM = "userId";
+
+  private final MeterRegistry meterRegistry;
+
+  private Key signingKey;
+  private JwtParser parser;
+  private Cache<String, Claims> verifiedTokens;
+
+  /**
+   * Creates the utility.
+   *
+   * @param meterRegistry the registry the hit ratio of the verified-token cache is published to
+   */
+  public JWTUtil(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Creates the signing key, the parser and the verified-token cache.
+   */
+  @PostConstruct
+  void init() {
+    signingKey = Keys.hmacShaKeyFor(secretKey.getBytes());
+    parser = Jwts.parserBuilder()
+            .setSigningKey(signingKey)
+            .build();
+    Duration maxTtl = Duration.ofSeconds(verifiedTokenCacheTtlSeconds);
+    verifiedTokens = Caffeine.newBuilder()
+            .maximumSize(verifiedTokenCacheSize)
+            .expireAfter(new Expiry<String, Claims>() {
+              @Override
+              public long expireAfterCreate(String token, Claims claims, long currentTime) {
+                return timeToLive(claims, maxTtl).toNanos();
+              }
+
+              @Override
+              public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+                return timeToLive(claims, maxTtl).toNanos();
+              }
+
+              @Override
+              public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+                return currentDuration;
+              }
+            })
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "verified-tokens");
+  }
+
   /**
    * Generates a JWT token for the specified user.
+   * <p>
+   * Besides the username, the token contains the roles of the user and, for a {@link User}, its ID,
+   * so requests can be authorized from the token alone.
+   * </p>
    *
    * @param userDetails the user details containing the username
    * @return a signed JWT token
@@ -55,54 +142,92 @@ public class JWTUtil {
    */
   private String generateToken(UserDetails userDetails, long expirationTime) {
     Map<String, Object> claims = new HashMap<>();
-    claims.put("roles", userDetails.getAuthorities().stream()
+    claims.put(ROLES_CLAIM, userDetails.getAuthorities().stream()
             .map(GrantedAuthority::getAuthority)
             .toList());
-    System.out.println("Generated claims: " + claims);
+    if (userDetails instanceof User user) {
+      claims.put(USER_ID_CLAIM, user.getId());
+    }
+    logger.debug("Generated claims for {}: {}", userDetails.getUsername(), claims);
 
     return Jwts.builder()
             .setClaims(claims)
             .setSubject(userDetails.getUsername())
             .setIssuedAt(new Date(System.currentTimeMillis()))
             .setExpiration(new Date(System.currentTimeMillis() + expirationTime))
-            .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+            .signWith(signingKey, SignatureAlgorithm.HS256)
             .compact();
   }
 
+  /**
+   * Validates the provided JWT token and extracts its claims.
+   * <p>
+   * A token is valid if it is correctly signed and has not expired. The signature of a token
+   * is only verified the first time it is seen; later calls read the claims from the cache.
+   * </p>
+   *
+   * @param token the JWT token
+   * @return the claims of the token, or empty if the token is invalid or expired
+   */
+  public Optional<Claims> parseToken(String token) {
+    if (token == null) {
+      return Optional.empty();
+    }
+
+    Claims claims = verifiedTokens.getIfPresent(token);
+    if (claims == null) {
+      try {
+        claims = parser.parseClaimsJws(token).getBody();
+      } catch (JwtException | IllegalArgumentException e) {
+        return Optional.empty();
+      }
+      verifiedTokens.put(token, claims);
+    }
+
+    if (claims.getExpiration() != null && claims.getExpiration().before(new Date())) {
+      verifiedTokens.invalidate(token);
+      return Optional.empty();
+    }
+    return Optional.of(claims);
+  }
+
   /**
    * Extracts the username (subject) from the provided JWT token.
    *
    * @param token the JWT token
-   * @return the username contained in the token
+   * @return the username contained in the token, or {@code null} if the token is invalid or expired
    */
   public String extractUsername(String token) {
-    return extractClaim(token, Claims::getSubject);
+    return parseToken(token).map(Claims::getSubject).orElse(null);
   }
 
   /**
-   * Retrieves the cryptographic signing key used for token generation and validation.
+   * Builds a {@link JwtPrincipal} from the claims of a verified JWT token.
    *
-   * @return the signing key
+   * @param claims the claims returned by {@link #parseToken(String)}
+   * @return the principal, or empty if the token was issued without a user ID
    */
-  private Key getSigningKey() {
-    return Keys.hmacShaKeyFor(secretKey.getBytes());
+  public Optional<JwtPrincipal> toPrincipal(Claims claims) {
+    Number userId = claims.get(USER_ID_CLAIM, Number.class);
+    if (userId == null || claims.getSubject() == null) {
+      return Optional.empty();
+    }
+
+    List<?> roles = claims.get(ROLES_CLAIM, List.class);
+    return Optional.of(new JwtPrincipal(
+            userId.longValue(),
+            claims.getSubject(),
+            roles == null ? List.of() : roles.stream().map(String::valueOf).toList()));
   }
 
   /**
-   * Extracts a specific claim from the provided JWT token.
+   * Builds a {@link JwtPrincipal} from the claims of the provided JWT token.
    *
-   * @param token          the JWT token
-   * @param claimsResolver a function to extract the desired claim from the token's claims
-   * @param <T>            the type of the claim
-   * @return the extracted claim
+   * @param token the JWT token
+   * @return the principal, or empty if the token is invalid, expired or was issued without a user ID
    */
-  private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-    final Claims claims = Jwts.parserBuilder()
-            .setSigningKey(getSigningKey())
-            .build()
-            .parseClaimsJws(token)
-            .getBody();
-    return claimsResolver.apply(claims);
+  public Optional<JwtPrincipal> extractPrincipal(String token) {
+    return parseToken(token).flatMap(this::toPrincipal);
   }
 
   /**
@@ -114,16 +239,24 @@ public class JWTUtil {
    * @return {@code true} if the token is valid, {@code false} otherwise
    */
   public boolean isTokenValid(String token) {
-    try {
-      Claims claims = Jwts.parserBuilder()
-              .setSigningKey(getSigningKey())
-              .build()
-              .parseClaimsJws(token)
-              .getBody();
-
-      return !claims.getExpiration().before(new Date());
-    } catch (JwtException e) {
-      return false;
+    return parseToken(token).isPresent();
+  }
+
+  /**
+   * Calculates how long the claims of a verified token may be cached.
+   *
+   * @param claims the claims of the token
+   * @param maxTtl the maximum time to cache any token
+   * @return the time until the token expires, capped at {@code maxTtl}
+   */
+  private static Duration timeToLive(Claims claims, Duration maxTtl) {
+    if (claims.getExpiration() == null) {
+      return maxTtl;
+    }
+    Duration untilExpiration = Duration.ofMillis(claims.getExpiration().getTime() - System.currentTimeMillis());
+    if (untilExpiration.isNegative()) {
+      return Duration.ZERO;
     }
+    return untilExpiration.compareTo(maxTtl) < 0 ? untilExpiration : maxTtl;
   }
 }
@@ -0,0 +1,29 @@
+package stud.ntnu.no.idatt2105.Findigo.config;
+
+import java.security.Principal;
+import java.util.List;
+
+/**
+ * Principal built from the claims of a JWT token alone, without loading the user from the database.
+ * <p>
+ * Used by {@link JWTAuthorizationFilter} when stateless authentication is enabled.
+ * {@link SecurityUtil} reads the user ID and roles from it, and only loads the
+ * {@link stud.ntnu.no.idatt2105.Findigo.entities.User} entity when a service needs it.
+ * </p>
+ *
+ * @param id       the ID of the user
+ * @param username the username of the user
+ * @param roles    the roles of the user when the token was issued
+ */
+public record JwtPrincipal(Long id, String username, List<String> roles) implements Principal {
+
+  /**
+   * Returns the username, which Spring Security uses as the name of the authentication.
+   *
+   * @return the username of the user
+   */
+  @Override
+  public String getName() {
+    return username;
+  }
+}
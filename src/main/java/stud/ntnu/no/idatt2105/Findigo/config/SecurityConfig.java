@@ -1,5 +1,6 @@
 package stud.ntnu.no.idatt2105.Findigo.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -80,6 +81,9 @@ public class SecurityConfig {
    *     <li>Disables CSRF protection (not needed for stateless JWT authentication)</li>
    *     <li>Applies CORS configuration</li>
    *     <li>Allows unauthenticated access to authentication and API documentation endpoints</li>
+   *     <li>Allows unauthenticated access to the health and Prometheus scrape endpoints, and restricts other actuator endpoints to admins;
+   *     the actuator endpoints are only served on the internal management port</li>
+   *     <li>Permits async dispatches, which complete already authorized requests such as event streams</li>
    *     <li>Requires authentication for all other endpoints</li>
    *     <li>Uses stateless session management</li>
    *     <li>Adds the JWT authentication filter before the default username-password filter</li>
@@ -96,6 +100,7 @@ public class SecurityConfig {
             .csrf(AbstractHttpConfigurer::disable)
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .authorizeHttpRequests(auth -> auth
+                    .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                     .requestMatchers(
                             "/api/auth/**",
                             "/api/auth/logout",
@@ -107,9 +112,11 @@ public class SecurityConfig {
                             "/api/images/**",
                             "/api/listings/**",
                             "/api/users/**",
-                            "/api/categories/**"
+                            "/api/categories/**",
+                            "/actuator/health",
+                            "/actuator/prometheus"
                     ).permitAll()
-                    .requestMatchers("/admin/**").hasRole("ADMIN")
+                    .requestMatchers("/admin/**", "/actuator/**").hasRole("ADMIN")
                     .anyRequest().authenticated()
             )
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
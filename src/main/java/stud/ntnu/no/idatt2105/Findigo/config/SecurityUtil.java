@@ -2,6 +2,7 @@ package stud.ntnu.no.idatt2105.Findigo.config;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -13,13 +14,15 @@ import stud.ntnu.no.idatt2105.Findigo.exception.customExceptions.UnauthorizedOpe
 import stud.ntnu.no.idatt2105.Findigo.repository.UserRepository;
 
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Utility class for security-related operations.
  *
  * <p>This class provides helper methods for:
  * <ul>
- *     <li>Retrieving the currently authenticated user</li>
+ *     <li>Retrieving the currently authenticated user, or only its ID and roles</li>
  *     <li>Checking user roles and ownership of resources</li>
  * </ul>
  * </p>
@@ -48,6 +51,12 @@ public class SecurityUtil {
 
   /**
    * Returns the current authenticated user if available, otherwise empty.
+   * <p>
+   * When the principal is a {@link User} or a {@link JwtPrincipal}, the user is found by ID, which is
+   * served from the persistence context if the user was already loaded in the current transaction.
+   * Services that only need the ID or roles should use {@link #getCurrentUserId()} or
+   * {@link #getCurrentUserRoles()} instead.
+   * </p>
    *
    * @return an Optional containing the user, or empty if not authenticated
    */
@@ -60,10 +69,61 @@ public class SecurityUtil {
       return Optional.empty();
     }
 
+    Long userId = principalUserId(authentication);
+    if (userId != null) {
+      return userRepository.findById(userId);
+    }
+
     String username = authentication.getName();
     return userRepository.findByUsername(username);
   }
 
+  /**
+   * Returns the ID of the current authenticated user if available, otherwise empty.
+   * <p>
+   * The ID is read from the principal, so the user is only loaded from the database
+   * when the principal is neither a {@link User} nor a {@link JwtPrincipal}.
+   * </p>
+   *
+   * @return an Optional containing the user ID, or empty if not authenticated
+   */
+  public Optional<Long> getCurrentUserIdIfAuthenticated() {
+    if (!isAuthenticated()) {
+      return Optional.empty();
+    }
+
+    Long userId = principalUserId(SecurityContextHolder.getContext().getAuthentication());
+    if (userId != null) {
+      return Optional.of(userId);
+    }
+    return getCurrentUserIfAuthenticated().map(User::getId);
+  }
+
+  /**
+   * Retrieves the ID of the currently authenticated user.
+   *
+   * @return the ID of the authenticated user
+   * @throws UnauthorizedOperationException if no user is authenticated
+   */
+  public Long getCurrentUserId() {
+    return getCurrentUserIdIfAuthenticated()
+            .orElseThrow(() -> new UnauthorizedOperationException(CustomErrorMessage.UNAUTHORIZED_OPERATION));
+  }
+
+  /**
+   * Retrieves the roles of the currently authenticated user from its authentication.
+   *
+   * @return the names of the granted roles, empty if not authenticated
+   */
+  public Set<String> getCurrentUserRoles() {
+    if (!isAuthenticated()) {
+      return Set.of();
+    }
+    return SecurityContextHolder.getContext().getAuthentication().getAuthorities().stream()
+            .map(GrantedAuthority::getAuthority)
+            .collect(Collectors.toSet());
+  }
+
 
   /**
    * Retrieves the currently authenticated user from the security context.
@@ -78,10 +138,16 @@ public class SecurityUtil {
 
   /**
    * Checks if the currently authenticated user has the ADMIN role.
+   * <p>
+   * For a {@link JwtPrincipal} the roles of the token are used, otherwise the roles are loaded with the user.
+   * </p>
    *
    * @return {@code true} if the user has the ADMIN role, {@code false} otherwise
    */
   public boolean isAdmin() {
+    if (isAuthenticated() && SecurityContextHolder.getContext().getAuthentication().getPrincipal() instanceof JwtPrincipal principal) {
+      return principal.roles().contains("ROLE_ADMIN");
+    }
     return getCurrentUser().getUserRoles().stream()
             .anyMatch(role -> role.getRole().toString().equals("ROLE_ADMIN"));
   }
@@ -93,7 +159,7 @@ public class SecurityUtil {
    * @return {@code true} if the provided user is the current user, {@code false} otherwise
    */
   public boolean isCurrentUser(User user) {
-    return getCurrentUser().getId().equals(user.getId());
+    return getCurrentUserId().equals(user.getId());
   }
 
   /**
@@ -103,7 +169,7 @@ public class SecurityUtil {
    * @return {@code true} if the current user owns the listing, {@code false} otherwise
    */
   public boolean isListingOwner(Listing listing) {
-    return getCurrentUser().getId().equals(listing.getUser().getId());
+    return getCurrentUserId().equals(listing.getUser().getId());
   }
 
   /**
@@ -115,4 +181,20 @@ public class SecurityUtil {
   public boolean isCurrentUserOrAdmin(User user) {
     return isCurrentUser(user) || isAdmin();
   }
+
+  /**
+   * Reads the user ID from the principal of an authentication.
+   *
+   * @param authentication the authentication
+   * @return the user ID, or {@code null} if the principal does not contain it
+   */
+  private Long principalUserId(Authentication authentication) {
+    if (authentication.getPrincipal() instanceof JwtPrincipal principal) {
+      return principal.id();
+    }
+    if (authentication.getPrincipal() instanceof User principal) {
+      return principal.getId();
+    }
+    return null;
+  }
 }
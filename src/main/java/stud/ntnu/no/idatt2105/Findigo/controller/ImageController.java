@@ -5,14 +5,26 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import stud.ntnu.no.idatt2105.Findigo.dtos.image.ImageMetadataResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.image.ImageOrderRequest;
+import stud.ntnu.no.idatt2105.Findigo.dtos.image.ImageUploadStatusResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.image.ListingImageResponse;
+import stud.ntnu.no.idatt2105.Findigo.service.ImageIngestionService;
 import stud.ntnu.no.idatt2105.Findigo.service.ImageService;
+import stud.ntnu.no.idatt2105.Findigo.service.ImageService.ImageFile;
+import stud.ntnu.no.idatt2105.Findigo.service.ImageVariant;
+
+import java.io.IOException;
+import java.util.List;
 
 /**
  * Controller for handling image-related operations.
@@ -28,6 +40,8 @@ public class ImageController {
   private static final Logger logger = LogManager.getLogger(ImageController.class);
 
   private final ImageService imageService;
+  private final ImageIngestionService imageIngestionService;
+  private final ImageResponseWriter imageResponseWriter;
 
   /**
    * Uploads an image to a listing.
@@ -52,28 +66,198 @@ public class ImageController {
     return ResponseEntity.ok(numberOfImages);
   }
 
+  /**
+   * Accepts an image upload to a listing for processing in the background.
+   *
+   * @param listingId The ID of the listing to upload the image to.
+   * @param file      The image file to upload.
+   * @return A response entity with the status and ID of the upload.
+   */
+  @Operation(summary = "Upload an image to a listing in the background", description = "Stages an image upload and processes it in the background. The returned upload ID can be used to poll the status.")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "202", description = "Image upload accepted, returning its status"),
+      @ApiResponse(responseCode = "404", description = "Listing not found"),
+      @ApiResponse(responseCode = "500", description = "Image upload failed"),
+      @ApiResponse(responseCode = "503", description = "Too many uploads waiting to be processed")
+  })
+  @PostMapping("/upload/{listingId}/async")
+  public ResponseEntity<ImageUploadStatusResponse> submitImageToListing(
+      @Parameter(description = "The ID of the listing to upload the image to.", example = "1") @PathVariable Long listingId,
+      @RequestParam("file") MultipartFile file) {
+    logger.info("Accepting file '{}' for upload to listing with ID {}", file.getOriginalFilename(), listingId);
+    ImageUploadStatusResponse status = imageIngestionService.submit(listingId, file);
+    logger.info("File '{}' queued as upload {} for listing with ID {}", file.getOriginalFilename(), status.getUploadId(), listingId);
+    return ResponseEntity.accepted().body(status);
+  }
+
+  /**
+   * Retrieves the status of a background image upload.
+   *
+   * @param uploadId The ID of the upload.
+   * @return A response entity with the status of the upload.
+   */
+  @Operation(summary = "Get the status of an image upload", description = "Fetches the status of an image upload accepted for background processing.")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Upload status retrieved"),
+      @ApiResponse(responseCode = "404", description = "Upload not found")
+  })
+  @GetMapping("/uploads/{uploadId}")
+  public ResponseEntity<ImageUploadStatusResponse> getUploadStatus(
+      @Parameter(description = "The ID of the upload.") @PathVariable String uploadId) {
+    logger.debug("Fetching status of image upload {}", uploadId);
+    return ResponseEntity.ok(imageIngestionService.getStatus(uploadId));
+  }
+
+  /**
+   * Retrieves the images of a listing in display order.
+   *
+   * @param listingId The ID of the listing.
+   * @return A list of the listing's images, with their IDs and positions.
+   */
+  @Operation(summary = "Get the images of a listing", description = "Fetches the IDs, positions and file names of the images of a listing, in display order.")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Images retrieved"),
+      @ApiResponse(responseCode = "404", description = "Listing not found")
+  })
+  @GetMapping("/listing/{listingId}")
+  public ResponseEntity<List<ListingImageResponse>> getImagesOfListing(
+      @Parameter(description = "The ID of the listing.", example = "1") @PathVariable Long listingId) {
+    logger.debug("Fetching images of listing with ID {}", listingId);
+    return ResponseEntity.ok(imageService.getImagesOfListing(listingId));
+  }
+
+  /**
+   * Retrieves the metadata of the images of several listings at once.
+   * <p>
+   * Intended for grids of listings: one request returns the image IDs, sizes, variant URLs
+   * and ETags of every listing on a page.
+   * </p>
+   *
+   * @param listingIds The IDs of the listings.
+   * @return A list of the images of the listings, by listing and then in display order.
+   */
+  @Operation(summary = "Get the image metadata of several listings", description = "Fetches the IDs, sizes, variant URLs and ETags of the images of the given listings in one request.")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Image metadata retrieved"),
+      @ApiResponse(responseCode = "400", description = "Too many listings requested")
+  })
+  @GetMapping("/metadata")
+  public ResponseEntity<List<ImageMetadataResponse>> getImageMetadata(
+      @Parameter(description = "The IDs of the listings.", example = "1,2,3") @RequestParam List<Long> listingIds) {
+    logger.debug("Fetching image metadata of {} listings", listingIds.size());
+    return ResponseEntity.ok(imageService.getImageMetadata(listingIds));
+  }
+
+  /**
+   * Reorders the images of a listing.
+   *
+   * @param listingId The ID of the listing.
+   * @param request   The IDs of every image of the listing, in the new order.
+   * @return A list of the listing's images in the new order.
+   */
+  @Operation(summary = "Reorder the images of a listing", description = "Sets the display order of the images of a listing. The request must contain the ID of every image of the listing exactly once.")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Images reordered, returning them in the new order"),
+      @ApiResponse(responseCode = "400", description = "The image IDs are not exactly the images of the listing"),
+      @ApiResponse(responseCode = "403", description = "Not the owner of the listing"),
+      @ApiResponse(responseCode = "404", description = "Listing not found")
+  })
+  @PutMapping("/listing/{listingId}/order")
+  public ResponseEntity<List<ListingImageResponse>> reorderImages(
+      @Parameter(description = "The ID of the listing.", example = "1") @PathVariable Long listingId,
+      @Validated @RequestBody ImageOrderRequest request) {
+    logger.info("Reordering images of listing with ID {}", listingId);
+    return ResponseEntity.ok(imageService.reorderImages(listingId, request.getImageIds()));
+  }
+
+  /**
+   * Downloads an image by its ID.
+   * <p>
+   * Served like {@link #getImagesFromListing}, but the image is identified independently of its position.
+   * </p>
+   *
+   * @param imageId  The ID of the image.
+   * @param variant  The size of the image to download.
+   * @param request  The current request.
+   * @param response The response to stream the image to.
+   * @throws IOException if the image could not be written to the response.
+   */
+  @Operation(summary = "Download an image", description = "Downloads an image given its ID.")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Image successfully downloaded"),
+      @ApiResponse(responseCode = "206", description = "Requested byte range of the image successfully downloaded"),
+      @ApiResponse(responseCode = "304", description = "Image not modified since the client's cached copy"),
+      @ApiResponse(responseCode = "400", description = "Unknown variant"),
+      @ApiResponse(responseCode = "404", description = "Image not found"),
+      @ApiResponse(responseCode = "416", description = "Requested byte range not satisfiable"),
+      @ApiResponse(responseCode = "500", description = "Image download failed")
+  })
+  @GetMapping("/{imageId}")
+  public void getImage(
+      @Parameter(description = "The ID of the image.", example = "12") @PathVariable Long imageId,
+      @Parameter(description = "The size of the image: thumbnail, card, full or original", example = "card")
+      @RequestParam(defaultValue = "original") String variant,
+      HttpServletRequest request, HttpServletResponse response) throws IOException {
+    logger.debug("Downloading {} image with ID {}", variant, imageId);
+    imageResponseWriter.write(imageService.downloadImage(imageId, ImageVariant.fromParameter(variant)), request, response);
+  }
+
+  /**
+   * Deletes an image by its ID.
+   *
+   * @param imageId The ID of the image.
+   * @return The number of images remaining in the image's listing.
+   */
+  @Operation(summary = "Delete an image", description = "Deletes an image given its ID.")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Image successfully deleted, returning the number of images remaining in the listing"),
+      @ApiResponse(responseCode = "403", description = "Not the owner of the listing"),
+      @ApiResponse(responseCode = "404", description = "Image not found"),
+      @ApiResponse(responseCode = "500", description = "Image deletion failed")
+  })
+  @DeleteMapping("/{imageId}")
+  public ResponseEntity<Integer> deleteImage(
+      @Parameter(description = "The ID of the image.", example = "12") @PathVariable Long imageId) {
+    logger.info("Deleting image with ID {}", imageId);
+    return ResponseEntity.ok(imageService.deleteImage(imageId));
+  }
+
   /**
    * Downloads an image from a listing.
+   * <p>
+   * A scaled-down variant of the image can be selected, so feeds and previews do not transfer the original.
+   * The image is streamed with its content type, a strong {@code ETag} and {@code Last-Modified},
+   * and supports conditional requests and single byte ranges.
+   * </p>
    *
    * @param listingId  The ID of the listing.
    * @param imageIndex The index of the image to download.
-   * @return A response entity containing the image.
+   * @param variant    The size of the image to download.
+   * @param request    The current request.
+   * @param response   The response to stream the image to.
+   * @throws IOException if the image could not be written to the response.
    */
   @Operation(summary = "Download an image from a listing", description = "Downloads a specific image from a listing given its index and listing ID.")
   @ApiResponses(value = {
       @ApiResponse(responseCode = "200", description = "Image successfully downloaded"),
+      @ApiResponse(responseCode = "206", description = "Requested byte range of the image successfully downloaded"),
+      @ApiResponse(responseCode = "304", description = "Image not modified since the client's cached copy"),
       @ApiResponse(responseCode = "404", description = "Listing not found"),
-      @ApiResponse(responseCode = "400", description = "Image index out of bounds"),
+      @ApiResponse(responseCode = "400", description = "Image index out of bounds or unknown variant"),
+      @ApiResponse(responseCode = "416", description = "Requested byte range not satisfiable"),
       @ApiResponse(responseCode = "500", description = "Image download failed")
   })
   @GetMapping("/download/{listingId}/{imageIndex}")
-  public ResponseEntity<?> getImagesFromListing(
+  public void getImagesFromListing(
       @Parameter(description = "The ID of the listing to download the image from.", example = "1") @PathVariable Long listingId,
-      @Parameter(description = "The index of the image to download", example = "0") @PathVariable int imageIndex) {
-    logger.info("Downloading image at index {} from listing with ID {}", imageIndex, listingId);
-    Resource image = imageService.downloadImageFromListing(listingId, imageIndex);
-    logger.info("Image at index {} from listing with ID {} successfully downloaded", imageIndex, listingId);
-    return ResponseEntity.ok(image);
+      @Parameter(description = "The index of the image to download", example = "0") @PathVariable int imageIndex,
+      @Parameter(description = "The size of the image: thumbnail, card, full or original", example = "card")
+      @RequestParam(defaultValue = "original") String variant,
+      HttpServletRequest request, HttpServletResponse response) throws IOException {
+    logger.debug("Downloading {} image at index {} from listing with ID {}", variant, imageIndex, listingId);
+    ImageFile image = imageService.downloadImageFromListing(listingId, imageIndex, ImageVariant.fromParameter(variant));
+    imageResponseWriter.write(image, request, response);
+    logger.debug("Image at index {} from listing with ID {} served with status {}", imageIndex, listingId, response.getStatus());
   }
 
   /**
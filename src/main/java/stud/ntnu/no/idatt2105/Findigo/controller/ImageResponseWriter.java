@@ -0,0 +1,197 @@
+package stud.ntnu.no.idatt2105.Findigo.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import stud.ntnu.no.idatt2105.Findigo.service.ImageService.ImageFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Writes image files to HTTP responses.
+ * <p>
+ * Responses carry a strong {@code ETag} derived from the content hash of the image, its
+ * {@code Last-Modified} time, a {@code Cache-Control} header and {@code X-Content-Type-Options: nosniff},
+ * so browsers never render an image as another type. Conditional requests for an
+ * unchanged image are answered with {@code 304 Not Modified}, and a single byte range is served
+ * with {@code 206 Partial Content}.
+ * </p>
+ * <p>
+ * Files on local disk are streamed without copying them through the heap: on Tomcat connectors
+ * supporting sendfile the transfer is handed to the connector, and otherwise the file channel
+ * transfers the bytes directly to the response. Files in other storage are streamed from it, or,
+ * with {@code images.download.redirect-to-storage} enabled, served by redirecting the client to a
+ * presigned URL of the storage.
+ * </p>
+ */
+@Component
+class ImageResponseWriter {
+
+  private static final Logger logger = LogManager.getLogger(ImageResponseWriter.class);
+
+  private static final String CONTENT_TYPE_OPTIONS = "X-Content-Type-Options";
+  private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+  private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  private final CacheControl cacheControl;
+  private final boolean redirectToStorage;
+  private final Duration presignedUrlTtl;
+
+  /**
+   * Creates the writer.
+   *
+   * @param maxAgeSeconds          the number of seconds clients may use an image before revalidating it
+   * @param redirectToStorage      {@code true} to redirect downloads to presigned URLs when the storage supports them
+   * @param presignedUrlTtlSeconds the number of seconds a presigned URL is valid
+   */
+  ImageResponseWriter(@Value("${images.cache-control.max-age-seconds:60}") long maxAgeSeconds,
+                      @Value("${images.download.redirect-to-storage:false}") boolean redirectToStorage,
+                      @Value("${images.download.presigned-url-ttl-seconds:300}") long presignedUrlTtlSeconds) {
+    this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic();
+    this.redirectToStorage = redirectToStorage;
+    this.presignedUrlTtl = Duration.ofSeconds(presignedUrlTtlSeconds);
+  }
+
+  /**
+   * Writes an image to the response, honouring conditional and range requests.
+   *
+   * @param image    the image to write
+   * @param request  the current request
+   * @param response the response to write to
+   * @throws IOException if the image could not be written
+   */
+  void write(ImageFile image, HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String etag = "\"" + image.contentHash() + "\"";
+    long lastModified = image.lastModified().toEpochMilli();
+
+    response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+    response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+    response.setHeader(CONTENT_TYPE_OPTIONS, "nosniff");
+    if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+      return;
+    }
+
+    if (redirectToStorage && redirect(image, response)) {
+      return;
+    }
+
+    long size = image.size();
+    long start = 0;
+    long end = size - 1;
+    String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+    if (rangeHeader != null && ifRangeMatches(request, etag, lastModified)) {
+      try {
+        List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+        if (ranges.size() == 1) {
+          start = ranges.get(0).getRangeStart(size);
+          end = ranges.get(0).getRangeEnd(size);
+          response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+          response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+      } catch (IllegalArgumentException e) {
+        logger.debug("Unsatisfiable range '{}' for image {}", rangeHeader, image.key());
+        response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+        return;
+      }
+    }
+
+    long length = end - start + 1;
+    response.setContentType(image.contentType());
+    response.setContentLengthLong(length);
+    if (HttpMethod.HEAD.matches(request.getMethod()) || length <= 0) {
+      return;
+    }
+
+    Optional<Path> localPath = image.storage().localPath(image.key());
+    if (localPath.isEmpty()) {
+      try (InputStream in = image.storage().open(image.key(), start, end)) {
+        in.transferTo(response.getOutputStream());
+      }
+      return;
+    }
+
+    if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+      request.setAttribute(SENDFILE_FILENAME, localPath.get().toAbsolutePath().toString());
+      request.setAttribute(SENDFILE_START, start);
+      request.setAttribute(SENDFILE_END, end + 1);
+      return;
+    }
+
+    try (FileChannel file = FileChannel.open(localPath.get(), StandardOpenOption.READ)) {
+      WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+      long position = start;
+      while (position <= end) {
+        long transferred = file.transferTo(position, end + 1 - position, out);
+        if (transferred <= 0) {
+          break;
+        }
+        position += transferred;
+      }
+    }
+  }
+
+  /**
+   * Redirects the client to a presigned URL of an image, if its storage supports them.
+   * <p>
+   * The redirect itself is not cached, since the URL expires.
+   * </p>
+   *
+   * @param image    the image to redirect to
+   * @param response the response to write to
+   * @return {@code true} if the client was redirected
+   */
+  private boolean redirect(ImageFile image, HttpServletResponse response) {
+    Optional<URI> url = image.storage().presignedUrl(image.key(), presignedUrlTtl);
+    if (url.isEmpty()) {
+      return false;
+    }
+    response.setStatus(HttpServletResponse.SC_TEMPORARY_REDIRECT);
+    response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+    response.setHeader(HttpHeaders.LOCATION, url.get().toString());
+    return true;
+  }
+
+  /**
+   * Checks the {@code If-Range} header of a request, which limits a range request to an unchanged image.
+   *
+   * @param request      the current request
+   * @param etag         the ETag of the image
+   * @param lastModified the modification time of the image in milliseconds
+   * @return {@code true} if the request has no {@code If-Range} header or it matches the image
+   */
+  private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+    String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+    if (ifRange == null) {
+      return true;
+    }
+    if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+      return ifRange.equals(etag);
+    }
+    try {
+      return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+}
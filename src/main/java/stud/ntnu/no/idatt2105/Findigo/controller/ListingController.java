@@ -14,6 +14,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.FilterListingsRequest;
+import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingFeedResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.sale.SaleResponse;
@@ -72,9 +73,9 @@ public class ListingController {
   public ResponseEntity<List<ListingResponse>> getAllListings() {
 
     //Do not paginate
-    logger.info("Fetching all listings in database");
+    logger.debug("Fetching all listings in database");
     List<ListingResponse> listings = listingService.getAllListings();
-    logger.info("Fetched {} listings from database", listings.size());
+    logger.debug("Fetched {} listings from database", listings.size());
     return ResponseEntity.ok(listings);
   }
 
@@ -93,9 +94,9 @@ public class ListingController {
   public ResponseEntity<List<ListingResponse>> getListingsByCategory(
           @Parameter(description = "The ID of the category", example = "1") @PathVariable Long categoryId) {
     //TODO paginate
-    logger.info("Fetching listings in category with ID {}", categoryId);
+    logger.debug("Fetching listings in category with ID {}", categoryId);
     List<ListingResponse> listings = listingService.getListingsInCategory(categoryId);
-    logger.info("Fetched {} listings in category with ID {}", listings.size(), categoryId);
+    logger.debug("Fetched {} listings in category with ID {}", listings.size(), categoryId);
     return ResponseEntity.ok(listings);
   }
 
@@ -103,9 +104,9 @@ public class ListingController {
   public ResponseEntity<Page<ListingResponse>> getListingsByCategoryPaginated(
           @Parameter(description = "The ID of the category", example = "1") @PathVariable Long categoryId,
           @Parameter(description = "The page number to retrieve") @PathVariable int pageNumber) {
-    logger.info("Fetching listings in category with ID {}", categoryId);
+    logger.debug("Fetching listings in category with ID {}", categoryId);
     Page<ListingResponse> listingsPage = listingService.getListingsInCategoryPaginated(categoryId, pageNumber - 1, pageSize);
-    logger.info("Fetched {} listings in category with ID {}", listingsPage.getContent().size(), categoryId);
+    logger.debug("Fetched {} listings in category with ID {}", listingsPage.getContent().size(), categoryId);
     return ResponseEntity.ok(listingsPage);
   }
 
@@ -166,9 +167,9 @@ public class ListingController {
   @GetMapping("/{listingId}")
   public ResponseEntity<ListingResponse> getListingById(
           @Parameter(description = "The ID of the listing to fetch", example = "1") @PathVariable Long listingId) {
-    logger.info("Fetching listing with ID {}", listingId);
+    logger.debug("Fetching listing with ID {}", listingId);
     ListingResponse listingResponse = listingService.getListingById(listingId);
-    logger.info("Listing with ID {} fetched", listingId);
+    logger.debug("Listing with ID {} fetched", listingId);
     return ResponseEntity.ok(listingResponse);
   }
 
@@ -186,15 +187,32 @@ public class ListingController {
   @GetMapping("/recommended/{pageNumber}")
   public ResponseEntity<Page<ListingResponse>> getRecommendedListings(
       @Parameter(description = "the page number to retrieve") @PathVariable int pageNumber) {
-    logger.info("Getting recommended listings, page " + pageNumber);
+    logger.debug("Getting recommended listings, page {}", pageNumber);
     Page<ListingResponse> recommendedListingsPage = recommendationService.getRecommendedListings(pageNumber - 1, pageSize);
-    logger.info("Recommended listings fetched: ");
-    for (ListingResponse listing : recommendedListingsPage.getContent()) {
-      logger.info("Listing ID: " + listing.getId() + ", Description: " + listing.getBriefDescription());
-    }
+    logger.debug("Fetched {} recommended listings", recommendedListingsPage.getNumberOfElements());
     return ResponseEntity.ok(recommendedListingsPage);
   }
 
+  /**
+   * Retrieves a cursor-paginated feed of recommended listings.
+   *
+   * @param cursor the cursor returned with the previous page, omitted for the first page
+   * @return one page of recommended listings and the cursor of the next page
+   */
+  @Operation(summary = "Get recommended listings feed", description = "Fetches a cursor-paginated feed of recommended listings, newest first")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Recommended listings fetched successfully"),
+      @ApiResponse(responseCode = "400", description = "Invalid cursor")
+  })
+  @GetMapping("/recommended/feed")
+  public ResponseEntity<ListingFeedResponse> getRecommendedListingsFeed(
+      @Parameter(description = "The cursor of the page to retrieve") @RequestParam(required = false) String cursor) {
+    logger.debug("Getting recommended listings feed after cursor {}", cursor);
+    ListingFeedResponse feed = recommendationService.getRecommendedListingsFeed(cursor, pageSize);
+    logger.debug("Fetched {} recommended listings", feed.getListings().size());
+    return ResponseEntity.ok(feed);
+  }
+
   /**
    * Retrieves public listings for unauthenticated users, paginated.
    *
@@ -209,15 +227,32 @@ public class ListingController {
   @GetMapping("/public/{pageNumber}")
   public ResponseEntity<Page<ListingResponse>> getPublicListings(
           @Parameter(description = "The page number to retrieve") @PathVariable int pageNumber) {
-    logger.info("Getting public listings, page " + pageNumber);
+    logger.debug("Getting public listings, page {}", pageNumber);
     Page<ListingResponse> publicListingsPage = recommendationService.getPublicListings(pageNumber - 1, pageSize);
-    logger.info("Public listings fetched: ");
-    for (ListingResponse listing : publicListingsPage.getContent()) {
-      logger.info("Listing ID: " + listing.getId() + ", Description: " + listing.getBriefDescription());
-    }
+    logger.debug("Fetched {} public listings", publicListingsPage.getNumberOfElements());
     return ResponseEntity.ok(publicListingsPage);
   }
 
+  /**
+   * Retrieves a cursor-paginated feed of public listings for unauthenticated users.
+   *
+   * @param cursor the cursor returned with the previous page, omitted for the first page
+   * @return one page of public listings and the cursor of the next page
+   */
+  @Operation(summary = "Get public listings feed", description = "Fetches a cursor-paginated feed of public listings, newest first")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Public listings fetched successfully"),
+      @ApiResponse(responseCode = "400", description = "Invalid cursor")
+  })
+  @GetMapping("/public/feed")
+  public ResponseEntity<ListingFeedResponse> getPublicListingsFeed(
+      @Parameter(description = "The cursor of the page to retrieve") @RequestParam(required = false) String cursor) {
+    logger.debug("Getting public listings feed after cursor {}", cursor);
+    ListingFeedResponse feed = recommendationService.getPublicListingsFeed(cursor, pageSize);
+    logger.debug("Fetched {} public listings", feed.getListings().size());
+    return ResponseEntity.ok(feed);
+  }
+
   /**
    * Retrieves all listings filtered by the provided criteria.
    *
@@ -232,9 +267,9 @@ public class ListingController {
   @PostMapping("/all")
   public ResponseEntity<List<ListingResponse>> getAllListingsFiltered(
       @RequestBody FilterListingsRequest filterListingsRequest) {
-    logger.info("Fetching filtered listings in database");
+    logger.debug("Fetching filtered listings in database");
     List<ListingResponse> filteredListings = listingService.getAllFilteredListings(filterListingsRequest);
-    logger.info("Fetched all filtered listings in database");
+    logger.debug("Fetched all filtered listings in database");
     return ResponseEntity.ok(filteredListings);
   }
 
@@ -254,15 +289,34 @@ public class ListingController {
   public ResponseEntity<Page<ListingResponse>> getListingsFiltered(
       @Parameter(description = "The page number to retrieve") @PathVariable int pageNumber,
       @RequestBody FilterListingsRequest filterListingsRequest) {
-    logger.info("Getting filtered listings, page " + pageNumber);
+    logger.debug("Getting filtered listings, page {}", pageNumber);
     Page<ListingResponse> filteredListingsPage = listingService.getFilteredListings(pageNumber - 1, pageSize, filterListingsRequest);
-    logger.info("Filtered listings fetched: ");
-    for (ListingResponse listing : filteredListingsPage.getContent()) {
-      logger.info("Listing ID: " + listing.getId() + ", Description: " + listing.getBriefDescription());
-    }
+    logger.debug("Fetched {} filtered listings", filteredListingsPage.getNumberOfElements());
     return ResponseEntity.ok(filteredListingsPage);
   }
 
+  /**
+   * Retrieves a cursor-paginated feed of filtered listings.
+   *
+   * @param cursor                the cursor returned with the previous page, omitted for the first page
+   * @param filterListingsRequest the filtering criteria
+   * @return one page of filtered listings and the cursor of the next page
+   */
+  @Operation(summary = "Get filtered listings feed", description = "Fetches a cursor-paginated feed of filtered listings, newest first")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "Filtered listings fetched successfully"),
+      @ApiResponse(responseCode = "400", description = "Invalid cursor")
+  })
+  @PostMapping("/all/feed")
+  public ResponseEntity<ListingFeedResponse> getListingsFilteredFeed(
+      @Parameter(description = "The cursor of the page to retrieve") @RequestParam(required = false) String cursor,
+      @RequestBody FilterListingsRequest filterListingsRequest) {
+    logger.debug("Getting filtered listings feed after cursor {}", cursor);
+    ListingFeedResponse feed = listingService.getFilteredListingsFeed(cursor, pageSize, filterListingsRequest);
+    logger.debug("Fetched {} filtered listings", feed.getListings().size());
+    return ResponseEntity.ok(feed);
+  }
+
   /**
    * Marks a listing as sold.
    *
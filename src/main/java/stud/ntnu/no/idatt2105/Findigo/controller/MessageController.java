@@ -8,8 +8,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import stud.ntnu.no.idatt2105.Findigo.dtos.message.MessagePageResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.message.MessageRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.message.MessageResponse;
 import stud.ntnu.no.idatt2105.Findigo.service.MessageService;
@@ -29,6 +32,11 @@ public class MessageController {
 
   private static final Logger logger = LogManager.getLogger(MessageController.class);
 
+  /**
+   * The number of messages per page of a message history.
+   */
+  private static final int PAGE_SIZE = 30;
+
   private final MessageService messageService;
 
   /**
@@ -51,6 +59,26 @@ public class MessageController {
     return ResponseEntity.ok(messageResponse);
   }
 
+  /**
+   * Opens a Server-Sent Events stream of the logged-in user's message events.
+   * <p>
+   * The stream delivers {@code message} events with each new message to or from the user,
+   * and {@code unread-count} events when the number of unread messages in a conversation changes.
+   * </p>
+   *
+   * @return the event stream
+   */
+  @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  @Operation(summary = "Stream message events", description = "Opens a Server-Sent Events stream of new messages and unread counts for the logged-in user.")
+  @ApiResponses(value = {
+          @ApiResponse(responseCode = "200", description = "Successfully opened the event stream"),
+          @ApiResponse(responseCode = "403", description = "Unauthorized - No user is logged in")
+  })
+  public SseEmitter streamMessageEvents() {
+    logger.info("Opening message event stream");
+    return messageService.openEventStream();
+  }
+
   /**
    * Retrieves all messages exchanged between two users.
    *
@@ -74,6 +102,32 @@ public class MessageController {
     return ResponseEntity.ok(messageResponses);
   }
 
+  /**
+   * Retrieves one page of the messages exchanged between two users, newest first.
+   *
+   * @param userId1 the ID of the first user
+   * @param userId2 the ID of the second user
+   * @param cursor  the cursor returned with the previous page, omitted for the newest messages
+   * @return one page of messages and the cursor of the page of older messages
+   */
+  @GetMapping("/{userId1}/{userId2}/page")
+  @Operation(summary = "Get a page of messages between two users", description = "Fetches a cursor-paginated page of the messages exchanged between two users, newest first.")
+  @ApiResponses(value = {
+          @ApiResponse(responseCode = "200", description = "Successfully retrieved messages between users"),
+          @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+          @ApiResponse(responseCode = "403", description = "Unauthorized - Logged-in user does not match any of the given user IDs"),
+          @ApiResponse(responseCode = "404", description = "No user found")
+  })
+  public ResponseEntity<MessagePageResponse> getMessagesBetweenUsers(
+          @Parameter(description = "ID of the first user", example = "1") @PathVariable long userId1,
+          @Parameter(description = "ID of the second user", example = "2") @PathVariable long userId2,
+          @Parameter(description = "The cursor of the page to retrieve") @RequestParam(required = false) String cursor) {
+    logger.info("Fetching messages between userId {} and userId {} before cursor {}", userId1, userId2, cursor);
+    MessagePageResponse page = messageService.getMessagesBetween(userId1, userId2, cursor, PAGE_SIZE);
+    logger.info("Successfully fetched {} messages between userId {} and userId {}", page.getMessages().size(), userId1, userId2);
+    return ResponseEntity.ok(page);
+  }
+
   /**
    * Retrieves the newest messages for a given user.
    *
@@ -3,19 +3,18 @@ package stud.ntnu.no.idatt2105.Findigo.dtos.attribute;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
 /**
  * Data Transfer Object (DTO) representing an attribute definition.
  * <p>
- * Used to transfer attribute-related data between different layers of the application.
+ * Used to transfer attribute-related data between different layers of the application. Immutable, so the
+ * {@link stud.ntnu.no.idatt2105.Findigo.service.CategoryCache} can share instances between responses.
  * </p>
  */
-@Data
+@Value
 @Builder
 @AllArgsConstructor
-@NoArgsConstructor
 @Schema(description = "Response DTO representing an attribute definition.")
 public class AttributeResponse {
 
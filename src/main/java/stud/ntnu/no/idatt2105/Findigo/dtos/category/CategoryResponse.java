@@ -1,10 +1,8 @@
 package stud.ntnu.no.idatt2105.Findigo.dtos.category;
 
 import io.swagger.v3.oas.annotations.media.Schema;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 import stud.ntnu.no.idatt2105.Findigo.dtos.attribute.AttributeResponse;
 
 import java.util.List;
@@ -12,13 +10,12 @@ import java.util.List;
 /**
  * DTO for returning category details, including its ID, name, and attributes.
  * <p>
- * Provides a complete view of a category, including associated attributes.
+ * Provides a complete view of a category, including associated attributes. Immutable, so the
+ * {@link stud.ntnu.no.idatt2105.Findigo.service.CategoryCache} can share instances between responses.
  * </p>
  */
-@Data
+@Value
 @Builder
-@AllArgsConstructor
-@NoArgsConstructor
 @Schema(description = "DTO representing category details including ID, name, and associated attributes.")
 public class CategoryResponse {
 
@@ -35,8 +32,21 @@ public class CategoryResponse {
   private String name;
 
   /**
-   * The list of attributes associated with the category.
+   * The unmodifiable list of attributes associated with the category.
    */
   @Schema(description = "List of attributes associated with the category")
   private List<AttributeResponse> attributes;
+
+  /**
+   * Creates a category response, copying the attributes into an unmodifiable list.
+   *
+   * @param id         the unique identifier of the category
+   * @param name       the name of the category
+   * @param attributes the attributes associated with the category
+   */
+  public CategoryResponse(Long id, String name, List<AttributeResponse> attributes) {
+    this.id = id;
+    this.name = name;
+    this.attributes = List.copyOf(attributes);
+  }
 }
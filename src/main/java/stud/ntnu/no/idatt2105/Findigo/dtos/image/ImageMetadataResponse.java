@@ -0,0 +1,52 @@
+package stud.ntnu.no.idatt2105.Findigo.dtos.image;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for the metadata of an image of a listing.
+ * <p>
+ * Returned in batches for grids of listings, so clients can lay out and cache the images
+ * without requesting each of them first.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "DTO for the metadata of an image of a listing, with the URLs of its variants.")
+public class ImageMetadataResponse {
+
+  /**
+   * The ID of the image.
+   */
+  @Schema(description = "The ID of the image", example = "12")
+  private long id;
+
+  /**
+   * The ID of the listing the image belongs to.
+   */
+  @Schema(description = "The ID of the listing the image belongs to", example = "1")
+  private long listingId;
+
+  /**
+   * The position of the image among the images of the listing.
+   */
+  @Schema(description = "The position of the image among the images of the listing, starting at 0", example = "0")
+  private int position;
+
+  /**
+   * The media type of the original image.
+   */
+  @Schema(description = "The media type of the original image", example = "image/jpeg")
+  private String contentType;
+
+  /**
+   * The downloadable sizes of the image, including the original.
+   */
+  @Schema(description = "The downloadable sizes of the image, including the original")
+  private List<ImageVariantResponse> variants;
+}
@@ -0,0 +1,29 @@
+package stud.ntnu.no.idatt2105.Findigo.dtos.image;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for reordering the images of a listing.
+ * <p>
+ * Contains the IDs of every image of the listing, in the new order.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "DTO for reordering the images of a listing, containing every image ID in the new order.")
+public class ImageOrderRequest {
+
+  /**
+   * The IDs of the images of the listing, in the new order.
+   */
+  @NotNull(message = "Image IDs must not be null")
+  @Schema(description = "The IDs of the images of the listing, in the new order", example = "[14, 12, 13]")
+  private List<Long> imageIds;
+}
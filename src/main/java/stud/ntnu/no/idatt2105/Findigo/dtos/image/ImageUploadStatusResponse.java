@@ -0,0 +1,71 @@
+package stud.ntnu.no.idatt2105.Findigo.dtos.image;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for the status of an asynchronous image upload.
+ * <p>
+ * Returned when an upload is accepted, and by the status endpoint while it is processed.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "DTO for the status of an asynchronous image upload.")
+public class ImageUploadStatusResponse {
+
+  /**
+   * The processing state of an upload.
+   */
+  public enum Status {
+    /**
+     * The upload is staged and waiting for a worker.
+     */
+    QUEUED,
+    /**
+     * A worker is storing the image and generating its variants.
+     */
+    PROCESSING,
+    /**
+     * The image is stored and can be downloaded.
+     */
+    COMPLETED,
+    /**
+     * The image could not be stored.
+     */
+    FAILED
+  }
+
+  /**
+   * The ID of the upload.
+   */
+  @Schema(description = "The ID of the upload", example = "3f2b8c1e-6a7d-4e0f-9b1a-2c3d4e5f6a7b")
+  private String uploadId;
+
+  /**
+   * The ID of the listing the image is uploaded to.
+   */
+  @Schema(description = "The ID of the listing the image is uploaded to", example = "1")
+  private long listingId;
+
+  /**
+   * The processing state of the upload.
+   */
+  @Schema(description = "The processing state of the upload", example = "COMPLETED")
+  private Status status;
+
+  /**
+   * The number of images of the listing once the upload completed, otherwise {@code null}.
+   */
+  @Schema(description = "The number of images of the listing once the upload completed", example = "3")
+  private Integer imageCount;
+
+  /**
+   * The reason the upload failed, otherwise {@code null}.
+   */
+  @Schema(description = "The reason the upload failed", example = "Failed to upload the image.")
+  private String error;
+}
@@ -0,0 +1,46 @@
+package stud.ntnu.no.idatt2105.Findigo.dtos.image;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for one downloadable size of an image.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "DTO for one downloadable size of an image, with its URL and ETag.")
+public class ImageVariantResponse {
+
+  /**
+   * The name of the variant.
+   */
+  @Schema(description = "The name of the variant", example = "card")
+  private String variant;
+
+  /**
+   * The URL the variant is downloaded from.
+   */
+  @Schema(description = "The URL the variant is downloaded from", example = "/api/images/12?variant=card")
+  private String url;
+
+  /**
+   * The width of the variant in pixels.
+   */
+  @Schema(description = "The width of the variant in pixels, or null if unknown", example = "480")
+  private Integer width;
+
+  /**
+   * The height of the variant in pixels.
+   */
+  @Schema(description = "The height of the variant in pixels, or null if unknown", example = "320")
+  private Integer height;
+
+  /**
+   * The ETag the variant is served with.
+   */
+  @Schema(description = "The ETag the variant is served with, or null if not yet known", example = "\"9f86d08...-card\"")
+  private String etag;
+}
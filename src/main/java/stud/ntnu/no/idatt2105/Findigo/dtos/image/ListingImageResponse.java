@@ -0,0 +1,44 @@
+package stud.ntnu.no.idatt2105.Findigo.dtos.image;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for an image of a listing.
+ * <p>
+ * The images of a listing are returned in their display order; the ID identifies an image
+ * regardless of its position.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "DTO for an image of a listing, in the listing's image order.")
+public class ListingImageResponse {
+
+  /**
+   * The ID of the image.
+   */
+  @Schema(description = "The ID of the image", example = "12")
+  private long id;
+
+  /**
+   * The position of the image among the images of the listing.
+   */
+  @Schema(description = "The position of the image among the images of the listing, starting at 0", example = "0")
+  private int position;
+
+  /**
+   * The file name the image was uploaded with.
+   */
+  @Schema(description = "The file name the image was uploaded with", example = "bike.jpg")
+  private String filename;
+
+  /**
+   * The media type of the original image.
+   */
+  @Schema(description = "The media type of the original image", example = "image/jpeg")
+  private String contentType;
+}
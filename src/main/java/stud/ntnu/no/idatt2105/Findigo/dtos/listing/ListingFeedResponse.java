@@ -0,0 +1,33 @@
+package stud.ntnu.no.idatt2105.Findigo.dtos.listing;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) representing one page of a cursor-paginated listing feed.
+ * <p>
+ * The next page is requested by passing {@link #nextCursor} back to the same endpoint.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "DTO representing one page of a cursor-paginated listing feed.")
+public class ListingFeedResponse {
+
+  /**
+   * The listings on this page, newest first.
+   */
+  @Schema(description = "Listings on this page, newest first")
+  private List<ListingResponse> listings;
+
+  /**
+   * The cursor of the next page, or {@code null} if this is the last page.
+   */
+  @Schema(description = "Opaque cursor of the next page, null on the last page", example = "MTcxNTAwMDAwMDAwMDo0Mg")
+  private String nextCursor;
+}
@@ -0,0 +1,82 @@
+package stud.ntnu.no.idatt2105.Findigo.dtos.mappers;
+
+import org.springframework.stereotype.Component;
+import stud.ntnu.no.idatt2105.Findigo.dtos.image.ImageMetadataResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.image.ImageVariantResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.image.ListingImageResponse;
+import stud.ntnu.no.idatt2105.Findigo.entities.ListingImageUrls;
+import stud.ntnu.no.idatt2105.Findigo.service.ImageVariant;
+
+import java.awt.Dimension;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Mapper class responsible for converting {@link ListingImageUrls} entities into {@link ListingImageResponse}
+ * and {@link ImageMetadataResponse} DTOs.
+ */
+@Component
+public class ImageMapper {
+
+  /**
+   * Converts a {@link ListingImageUrls} entity to a {@link ListingImageResponse} DTO.
+   * <p>
+   * Images stored without their uploaded file name are given the name of their file.
+   * </p>
+   *
+   * @param image the {@link ListingImageUrls} entity to convert
+   * @return a {@link ListingImageResponse} DTO containing the image details
+   */
+  public ListingImageResponse toDto(ListingImageUrls image) {
+    return new ListingImageResponse(
+        image.getId(),
+        image.getPosition() != null ? image.getPosition() : 0,
+        image.getOriginalFilename() != null
+            ? image.getOriginalFilename()
+            : Paths.get(image.getImageUrl()).getFileName().toString(),
+        image.getContentType()
+    );
+  }
+
+  /**
+   * Converts a {@link ListingImageUrls} entity to an {@link ImageMetadataResponse} DTO.
+   * <p>
+   * Images whose variants were not stored, because they could not be decoded or generating the
+   * variants failed, serve every variant as the original, with its size and ETag.
+   * </p>
+   *
+   * @param image the {@link ListingImageUrls} entity to convert
+   * @return an {@link ImageMetadataResponse} DTO with the URL, size and ETag of every variant
+   */
+  public ImageMetadataResponse toMetadataDto(ListingImageUrls image) {
+    boolean hasVariants = image.getStored() != null && image.getStored().hasVariants();
+    boolean hasSize = image.getWidth() != null && image.getHeight() != null;
+    List<ImageVariantResponse> variants = new ArrayList<>();
+    for (ImageVariant variant : ImageVariant.values()) {
+      String name = variant.name().toLowerCase(Locale.ROOT);
+      Dimension size = !hasSize
+          ? null
+          : hasVariants ? variant.scale(image.getWidth(), image.getHeight()) : new Dimension(image.getWidth(), image.getHeight());
+      String etag = image.getContentHash() == null
+          ? null
+          : "\"" + image.getContentHash() + (hasVariants && variant != ImageVariant.ORIGINAL ? "-" + name : "") + "\"";
+      variants.add(new ImageVariantResponse(
+          name,
+          "/api/images/" + image.getId() + "?variant=" + name,
+          size != null ? size.width : null,
+          size != null ? size.height : null,
+          etag
+      ));
+    }
+
+    return new ImageMetadataResponse(
+        image.getId(),
+        image.getListing().getId(),
+        image.getPosition() != null ? image.getPosition() : 0,
+        image.getContentType(),
+        variants
+    );
+  }
+}
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.stereotype.Service;
+import stud.ntnu.no.idatt2105.Findigo.dtos.attribute.AttributeResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.attribute.ListingAttributeRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.attribute.ListingAttributeResponse;
 import stud.ntnu.no.idatt2105.Findigo.entities.Attribute;
@@ -11,6 +12,7 @@ import stud.ntnu.no.idatt2105.Findigo.entities.Listing;
 import stud.ntnu.no.idatt2105.Findigo.entities.ListingAttribute;
 import stud.ntnu.no.idatt2105.Findigo.repository.AttributeRepository;
 import stud.ntnu.no.idatt2105.Findigo.repository.ListingRepository;
+import stud.ntnu.no.idatt2105.Findigo.service.CategoryCache;
 
 import java.util.NoSuchElementException;
 
@@ -29,6 +31,7 @@ public class ListingAttributeMapper {
 
   private final AttributeRepository attributeRepository;
   private final ListingRepository listingRepository;
+  private final CategoryCache categoryCache;
 
   /**
    * Converts an {@link Attribute}, a value, and a {@link Listing} into a {@link ListingAttribute} entity.
@@ -48,14 +51,21 @@ public class ListingAttributeMapper {
 
   /**
    * Converts a {@link ListingAttribute} entity to a {@link ListingAttributeResponse} DTO.
+   * <p>
+   * The attribute name is read from the {@link CategoryCache} by ID, without loading the attribute.
+   * </p>
    *
    * @param listingAttribute the entity to convert
    * @return a DTO containing the attribute name and value
+   * @throws NoSuchElementException if the attribute cannot be found
    */
   public ListingAttributeResponse toDto(ListingAttribute listingAttribute) {
-    logger.debug("Mapping ListingAttribute entity to DTO for attribute id {}", listingAttribute.getAttribute().getId());
+    long attributeId = listingAttribute.getAttribute().getId();
+    logger.debug("Mapping ListingAttribute entity to DTO for attribute id {}", attributeId);
+    AttributeResponse attribute = categoryCache.getAttribute(attributeId)
+            .orElseThrow(() -> new NoSuchElementException("No attribute with id " + attributeId));
     return new ListingAttributeResponse(
-            listingAttribute.getAttribute().getAttributeName(),
+            attribute.getName(),
             listingAttribute.getAttributeValue()
     );
   }
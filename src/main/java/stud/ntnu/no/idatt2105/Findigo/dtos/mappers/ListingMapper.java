@@ -5,10 +5,16 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.stereotype.Service;
 import stud.ntnu.no.idatt2105.Findigo.dtos.attribute.ListingAttributeResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingFeedResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.user.UserLiteResponse;
 import stud.ntnu.no.idatt2105.Findigo.entities.*;
+import stud.ntnu.no.idatt2105.Findigo.exception.CustomErrorMessage;
+import stud.ntnu.no.idatt2105.Findigo.exception.customExceptions.AppEntityNotFoundException;
+import stud.ntnu.no.idatt2105.Findigo.repository.ListingCursor;
+import stud.ntnu.no.idatt2105.Findigo.repository.ListingRepository;
+import stud.ntnu.no.idatt2105.Findigo.service.CategoryCache;
 import java.util.List;
 
 /**
@@ -24,6 +30,7 @@ public class ListingMapper {
 
   private static final Logger logger = LogManager.getLogger(ListingMapper.class);
   private final ListingAttributeMapper listingAttributeMapper;
+  private final CategoryCache categoryCache;
 
   /**
    * Converts a {@link ListingRequest} DTO to a {@link Listing} entity.
@@ -68,6 +75,11 @@ public class ListingMapper {
 
   /**
    * Converts a {@link Listing} entity to a {@link ListingResponse} DTO.
+   * <p>
+   * Reads the user and attributes of the listing, so listings mapped in bulk should be loaded with
+   * {@link ListingRepository}'s entity graphs, and their collections are batch fetched. The category
+   * and attribute metadata is read from the {@link CategoryCache} by ID, without loading the category.
+   * </p>
    *
    * @param listing the {@link Listing} entity to convert
    * @return a {@link ListingResponse} DTO containing the listing details and associated entities
@@ -90,10 +102,30 @@ public class ListingMapper {
             listing.getPostalCode(),
             listing.getDateCreated(),
             listing.getListingStatus(),
-            CategoryMapper.toDto(listing.getCategory()),
+            categoryCache.getCategory(listing.getCategory().getId())
+                    .orElseThrow(() -> new AppEntityNotFoundException(CustomErrorMessage.CATEGORY_NOT_FOUND)),
             new UserLiteResponse(listing.getUser().getId(), listing.getUser().getUsername(), listing.getUser().getPhoneNumber()),
             attributeResponses,
-            listing.getImageUrls().size()
+            listing.getImageCount()
     );
   }
+
+  /**
+   * Converts one page of a listing feed to a {@link ListingFeedResponse} DTO.
+   * <p>
+   * The listings are expected to be fetched with one extra listing beyond the page size,
+   * which is only used to determine whether a next page exists.
+   * </p>
+   *
+   * @param listings the listings of the page, including the extra listing if there is a next page
+   * @param size     the number of listings per page
+   * @return a {@link ListingFeedResponse} DTO with the cursor of the next page
+   */
+  public ListingFeedResponse toFeedDto(List<Listing> listings, int size) {
+    boolean hasNext = listings.size() > size;
+    List<Listing> page = hasNext ? listings.subList(0, size) : listings;
+    String nextCursor = hasNext ? ListingCursor.of(page.get(size - 1)).encode() : null;
+
+    return new ListingFeedResponse(page.stream().map(this::toDto).toList(), nextCursor);
+  }
 }
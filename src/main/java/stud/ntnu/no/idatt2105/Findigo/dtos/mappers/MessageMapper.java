@@ -4,8 +4,12 @@ import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.stereotype.Component;
+import stud.ntnu.no.idatt2105.Findigo.dtos.message.MessagePageResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.message.MessageResponse;
 import stud.ntnu.no.idatt2105.Findigo.entities.Message;
+import stud.ntnu.no.idatt2105.Findigo.repository.MessageCursor;
+
+import java.util.List;
 
 /**
  * Mapper class responsible for converting {@link Message} entities into {@link MessageResponse} DTOs.
@@ -40,4 +44,19 @@ public class MessageMapper {
             message.getSentAt()
     );
   }
+
+  /**
+   * Converts one page of a message history to a {@link MessagePageResponse} DTO.
+   *
+   * @param messages up to {@code size + 1} messages, newest first; the extra message only signals a next page
+   * @param size     the number of messages per page
+   * @return a {@link MessagePageResponse} with at most {@code size} messages and the cursor of the next page
+   */
+  public MessagePageResponse toPageDto(List<Message> messages, int size) {
+    boolean hasNext = messages.size() > size;
+    List<Message> page = hasNext ? messages.subList(0, size) : messages;
+    String nextCursor = hasNext ? MessageCursor.of(page.get(size - 1)).encode() : null;
+
+    return new MessagePageResponse(page.stream().map(this::toDto).toList(), nextCursor);
+  }
 }
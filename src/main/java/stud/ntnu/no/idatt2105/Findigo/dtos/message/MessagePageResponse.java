@@ -0,0 +1,33 @@
+package stud.ntnu.no.idatt2105.Findigo.dtos.message;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) representing one page of the message history between two users.
+ * <p>
+ * The next page of older messages is requested by passing {@link #nextCursor} back to the same endpoint.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "DTO representing one page of the message history between two users.")
+public class MessagePageResponse {
+
+  /**
+   * The messages on this page, newest first.
+   */
+  @Schema(description = "Messages on this page, newest first")
+  private List<MessageResponse> messages;
+
+  /**
+   * The cursor of the next page, or {@code null} if this is the last page.
+   */
+  @Schema(description = "Opaque cursor of the next page of older messages, null on the last page", example = "MTcxNTAwMDAwMDAwMDo0Mg")
+  private String nextCursor;
+}
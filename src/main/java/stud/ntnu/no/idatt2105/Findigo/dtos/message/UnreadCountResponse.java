@@ -0,0 +1,31 @@
+package stud.ntnu.no.idatt2105.Findigo.dtos.message;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for the number of unread messages in a conversation.
+ * <p>
+ * Pushed to a user over the message event stream whenever the count changes.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "DTO for the number of unread messages the user has in a conversation.")
+public class UnreadCountResponse {
+
+  /**
+   * The ID of the other participant in the conversation.
+   */
+  @Schema(description = "The ID of the other participant in the conversation", example = "2")
+  private long otherUserId;
+
+  /**
+   * The number of messages from the other participant the user has not read.
+   */
+  @Schema(description = "The number of unread messages in the conversation", example = "3")
+  private int unreadCount;
+}
@@ -22,7 +22,7 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Table(name = "category")
-@ToString(exclude = {"attributes", "listings"})
+@ToString(exclude = {"attributes", "listings", "userAffinities"})
 public class Category {
 
   /**
@@ -59,4 +59,10 @@ public class Category {
    */
   @OneToMany(mappedBy = "category", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
   private List<Listing> listings = new ArrayList<>();
+
+  /**
+   * The affinities users have for this category.
+   */
+  @OneToMany(mappedBy = "category", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+  private List<UserCategoryAffinity> userAffinities = new ArrayList<>();
 }
@@ -0,0 +1,89 @@
+package stud.ntnu.no.idatt2105.Findigo.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import java.util.Date;
+
+/**
+ * Entity representing a conversation between two users.
+ * <p>
+ * There is one conversation per pair of users, stored with the lower user ID first. It points
+ * to the last message exchanged and counts the unread messages of each participant, so the inbox
+ * of a user is read from one row per conversation instead of from all their messages.
+ * </p>
+ * <p>
+ * The last message is referenced by ID without a foreign key, so messages can be removed
+ * independently of their conversation.
+ * </p>
+ */
+@Getter
+@Setter
+@Entity
+@Accessors(chain = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(
+        name = "conversation",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_conversation_participants",
+                columnNames = {"user_low_id", "user_high_id"}
+        ),
+        indexes = {
+                @Index(name = "idx_conversation_user_low_activity", columnList = "user_low_id, last_activity_at"),
+                @Index(name = "idx_conversation_user_high_activity", columnList = "user_high_id, last_activity_at")
+        }
+)
+@ToString(exclude = {"userLow", "userHigh"})
+public class Conversation {
+
+  /**
+   * Unique identifier for the conversation.
+   */
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  /**
+   * The participant with the lower user ID.
+   */
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "user_low_id", nullable = false)
+  private User userLow;
+
+  /**
+   * The participant with the higher user ID.
+   */
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "user_high_id", nullable = false)
+  private User userHigh;
+
+  /**
+   * The ID of the last message sent in the conversation.
+   */
+  @Column(name = "last_message_id", nullable = false)
+  private Long lastMessageId;
+
+  /**
+   * The time the last message was sent.
+   */
+  @Column(name = "last_activity_at", nullable = false)
+  private Date lastActivityAt;
+
+  /**
+   * The number of messages the participant with the lower user ID has not read.
+   */
+  @Column(name = "unread_low", nullable = false)
+  private int unreadLow;
+
+  /**
+   * The number of messages the participant with the higher user ID has not read.
+   */
+  @Column(name = "unread_high", nullable = false)
+  private int unreadHigh;
+}
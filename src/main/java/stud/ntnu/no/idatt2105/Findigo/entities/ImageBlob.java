@@ -0,0 +1,45 @@
+package stud.ntnu.no.idatt2105.Findigo.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * Entity representing a content hash in the {@link stud.ntnu.no.idatt2105.Findigo.service.ImageBlobStore}.
+ * <p>
+ * The row is locked while the blob with its hash is recorded or deleted, so every node sharing the
+ * storage agrees on whether the blob exists. It is kept when the blob is deleted, without its
+ * {@link StoredImage}, and counts the deletions, so a blob uploaded before a deletion is not recorded after it.
+ * </p>
+ */
+@Getter
+@Setter
+@Entity
+@Accessors(chain = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "image_blob")
+public class ImageBlob {
+
+  /**
+   * Hex-encoded SHA-256 hash of the content.
+   */
+  @Id
+  @Column(name = "content_hash", length = 64, nullable = false)
+  private String contentHash;
+
+  /**
+   * The sizes of the stored blob, or {@code null} if the blob is not stored.
+   */
+  @Embedded
+  private StoredImage stored;
+
+  /**
+   * The number of times the blob was deleted, or {@code null} if it never was.
+   */
+  @Column(name = "deletions")
+  private Long deletions;
+}
@@ -4,6 +4,7 @@
   import lombok.*;
   import lombok.experimental.Accessors;
   import org.hibernate.annotations.CreationTimestamp;
+  import org.hibernate.annotations.Formula;
 
   import java.util.ArrayList;
   import java.util.Date;
@@ -22,8 +23,10 @@
   @Accessors(chain = true)
   @NoArgsConstructor
   @AllArgsConstructor
-  @Table(name = "listing")
-  @ToString(exclude = {"category", "user", "listingAttributes", "imageUrls", "browseHistories", "favoriteListings"})
+  @Table(name = "listing", indexes = {
+      @Index(name = "idx_listing_status_date_created", columnList = "listing_status, date_created, id")
+  })
+  @ToString(exclude = {"category", "user", "listingAttributes", "imageUrls", "browseHistories", "favoriteListings", "searchTerms"})
   public class Listing {
 
     /**
@@ -112,8 +115,17 @@
      * List of image URLs associated with this listing.
      */
     @OneToMany(mappedBy = "listing", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("position ASC, id ASC")
     private List<ListingImageUrls> imageUrls = new ArrayList<>();
 
+    /**
+     * Number of images associated with this listing.
+     * Computed by the database when the listing is loaded, so the images themselves are not fetched.
+     */
+    @Formula("(select count(*) from listing_image_urls i where i.listing_id = id)")
+    @Setter(AccessLevel.NONE)
+    private int imageCount;
+
     /**
      * Browsing history entries associated with this listing.
      */
@@ -128,4 +140,11 @@
 
     @OneToOne(mappedBy = "listing", cascade = CascadeType.ALL, orphanRemoval = true)
     private Sale sale;
+
+    /**
+     * Full-text search index entries for this listing.
+     * Maintained by the search index service, and only mapped here so they are removed with the listing.
+     */
+    @OneToMany(mappedBy = "listing", cascade = CascadeType.REMOVE)
+    private List<ListingSearchTerm> searchTerms = new ArrayList<>();
   }
@@ -17,7 +17,10 @@ import lombok.experimental.Accessors;
 @Accessors(chain = true)
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "listing_image_urls")
+@Table(name = "listing_image_urls", indexes = {
+    @Index(name = "idx_listing_image_urls_listing", columnList = "listing_id, position, id"),
+    @Index(name = "idx_listing_image_urls_content_hash", columnList = "content_hash")
+})
 public class ListingImageUrls {
 
   /**
@@ -29,11 +32,60 @@ public class ListingImageUrls {
   private Long id;
 
   /**
-   * URL of the image.
+   * URL of the image. For images in the {@link stud.ntnu.no.idatt2105.Findigo.service.ImageBlobStore},
+   * this is the path of the blob holding the content.
    */
   @Column(nullable = false, name = "image_url")
   private String imageUrl;
 
+  /**
+   * Hex-encoded SHA-256 hash of the image content, used as its ETag.
+   * May be {@code null} for images uploaded before hashes were stored, until the image is first downloaded.
+   */
+  @Column(name = "content_hash", length = 64)
+  private String contentHash;
+
+  /**
+   * The file name the image was uploaded with.
+   * May be {@code null} for images uploaded before file names were stored.
+   */
+  @Column(name = "original_filename")
+  private String originalFilename;
+
+  /**
+   * Media type of the image, as given when it was uploaded.
+   */
+  @Column(name = "content_type")
+  private String contentType;
+
+  /**
+   * Width of the original image in pixels.
+   * May be {@code null} for images in formats that cannot be decoded, or uploaded before sizes were stored.
+   */
+  @Column(name = "width")
+  private Integer width;
+
+  /**
+   * Height of the original image in pixels.
+   * May be {@code null} for images in formats that cannot be decoded, or uploaded before sizes were stored.
+   */
+  @Column(name = "height")
+  private Integer height;
+
+  /**
+   * Sizes of the stored image and its variants, served without asking the storage.
+   * May be {@code null} for images uploaded before sizes were stored.
+   */
+  @Embedded
+  private StoredImage stored;
+
+  /**
+   * Position of the image among the images of its listing; images are shown in ascending order.
+   * May be {@code null} for images uploaded before positions were stored, until they are assigned on startup.
+   */
+  @Column(name = "position")
+  private Integer position;
+
   /**
    * Listing to which this image belongs.
    */
@@ -0,0 +1,65 @@
+package stud.ntnu.no.idatt2105.Findigo.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * Entity representing a single entry in the full-text search index for listings.
+ * <p>
+ * Each entry maps a normalized term to a listing it occurs in, together with a weight
+ * used for relevance ranking. Terms are indexed so that prefix lookups can seek directly
+ * to matching rows.
+ * </p>
+ */
+@Getter
+@Setter
+@Entity
+@Accessors(chain = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(
+        name = "listing_search_term",
+        indexes = {
+                @Index(name = "idx_listing_search_term_term", columnList = "term, listing_id"),
+                @Index(name = "idx_listing_search_term_listing", columnList = "listing_id")
+        }
+)
+@ToString(exclude = "listing")
+public class ListingSearchTerm {
+
+  /**
+   * Maximum length of an indexed term.
+   */
+  public static final int MAX_TERM_LENGTH = 64;
+
+  /**
+   * Unique identifier for the index entry.
+   */
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  /**
+   * The normalized (lowercased) term.
+   */
+  @Column(nullable = false, length = MAX_TERM_LENGTH)
+  private String term;
+
+  /**
+   * The relevance weight of the term within the listing.
+   */
+  @Column(nullable = false)
+  private int weight;
+
+  /**
+   * The listing the term occurs in.
+   */
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "listing_id", nullable = false)
+  private Listing listing;
+}
@@ -18,7 +18,10 @@ import java.util.Date;
  */
 @Data
 @Entity
-@Table(name = "messages")
+@Table(
+        name = "messages",
+        indexes = @Index(name = "idx_messages_participants_sent", columnList = "from_user_id, to_user_id, sent_at, id")
+)
 @Accessors(chain = true)
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,64 @@
+package stud.ntnu.no.idatt2105.Findigo.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.util.Date;
+
+/**
+ * The sizes of a stored image blob and its variants, and the time they were stored.
+ * <p>
+ * Recorded when the blob is stored, so images can be served without asking the storage for the
+ * size of the file first. The sizes of the variants are {@code null} when no variants were stored.
+ * </p>
+ */
+@Data
+@Embeddable
+@Accessors(chain = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredImage {
+
+  /**
+   * Size of the original image in bytes.
+   */
+  @Column(name = "stored_size")
+  private Long size;
+
+  /**
+   * Size of the thumbnail variant in bytes.
+   */
+  @Column(name = "thumbnail_size")
+  private Long thumbnailSize;
+
+  /**
+   * Size of the card variant in bytes.
+   */
+  @Column(name = "card_size")
+  private Long cardSize;
+
+  /**
+   * Size of the full variant in bytes.
+   */
+  @Column(name = "full_size")
+  private Long fullSize;
+
+  /**
+   * The time the blob was stored, served as its last modification time.
+   */
+  @Column(name = "stored_at")
+  private Date storedAt;
+
+  /**
+   * Checks whether the variants of the image were generated and stored.
+   *
+   * @return {@code true} if the variants can be served, {@code false} if every variant is served as the original
+   */
+  public boolean hasVariants() {
+    return thumbnailSize != null && cardSize != null && fullSize != null;
+  }
+}
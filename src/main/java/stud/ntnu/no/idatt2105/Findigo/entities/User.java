@@ -88,6 +88,12 @@ public class User implements UserDetails {
   @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
   private List<FavoriteListings> favoriteListings = new ArrayList<>();
 
+  /**
+   * The user's affinities for the categories they have browsed.
+   */
+  @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
+  private List<UserCategoryAffinity> categoryAffinities = new ArrayList<>();
+
   /**
    * Set of roles assigned to the user.
    * Determines the user's access permissions.
@@ -101,6 +107,18 @@ public class User implements UserDetails {
   @OneToMany(mappedBy = "toUser", cascade = CascadeType.ALL, orphanRemoval = true)
   private List<Message> receivedMessages = new ArrayList<>();
 
+  /**
+   * Conversations in which this user has the lower user ID.
+   */
+  @OneToMany(mappedBy = "userLow", cascade = CascadeType.ALL, orphanRemoval = true)
+  private List<Conversation> lowConversations = new ArrayList<>();
+
+  /**
+   * Conversations in which this user has the higher user ID.
+   */
+  @OneToMany(mappedBy = "userHigh", cascade = CascadeType.ALL, orphanRemoval = true)
+  private List<Conversation> highConversations = new ArrayList<>();
+
   /**
    * Returns the authorities granted to the user.
    * Converts {@link Role} enums to Spring Security's {@link GrantedAuthority}.
@@ -109,7 +127,6 @@ public class User implements UserDetails {
    */
   @Override
   public Collection<? extends GrantedAuthority> getAuthorities() {
-    System.out.println("Getting authorities for user: " + username);
     return userRoles.stream()
             .map(role -> new SimpleGrantedAuthority(role.getRole().name()))
             .toList();
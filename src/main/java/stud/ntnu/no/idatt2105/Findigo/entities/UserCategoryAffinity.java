@@ -0,0 +1,69 @@
+package stud.ntnu.no.idatt2105.Findigo.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import java.util.Date;
+
+/**
+ * Entity representing how strongly a user is interested in a category.
+ * <p>
+ * The score grows by one for every listing the user views in the category and decays
+ * exponentially over time. It is stored as of {@link #updatedAt}, and decayed to the
+ * current time when read.
+ * </p>
+ */
+@Getter
+@Setter
+@Entity
+@Accessors(chain = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(
+        name = "user_category_affinity",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_user_category_affinity_user_category",
+                columnNames = {"user_id", "category_id"}
+        )
+)
+@ToString(exclude = {"user", "category"})
+public class UserCategoryAffinity {
+
+  /**
+   * Unique identifier for the affinity.
+   */
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  /**
+   * The user the affinity belongs to.
+   */
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "user_id", nullable = false)
+  private User user;
+
+  /**
+   * The category the user has viewed listings in.
+   */
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(name = "category_id", nullable = false)
+  private Category category;
+
+  /**
+   * The decayed affinity score as of {@link #updatedAt}.
+   */
+  @Column(nullable = false)
+  private double score;
+
+  /**
+   * The time the score was last decayed to.
+   */
+  @Column(name = "updated_at", nullable = false)
+  private Date updatedAt;
+}
@@ -54,6 +54,16 @@ public enum CustomErrorMessage {
    */
   LISTING_NOT_FOUND_IN_CATEGORY(404, "No listings found in the specified category."),
 
+  /**
+   * Error when the requested image upload is not found.
+   */
+  IMAGE_UPLOAD_NOT_FOUND(404, "Image upload not found."),
+
+  /**
+   * Error when the requested image is not found.
+   */
+  IMAGE_NOT_FOUND(404, "Image not found."),
+
   // --- Unchanged ---
   /**
    * Error when the new category name is the same as the current name.
@@ -76,6 +86,11 @@ public enum CustomErrorMessage {
    */
   IMAGE_DOWNLOAD_FAILED(500, "Failed to download the image."),
 
+  /**
+   * Error when an image upload is rejected because too many uploads are waiting to be processed.
+   */
+  IMAGE_UPLOAD_QUEUE_FULL(503, "Too many images are being processed, try again later."),
+
   // --- Generic ---
   /**
    * Error when a user attempts an unauthorized operation.
@@ -0,0 +1,439 @@
+package stud.ntnu.no.idatt2105.Findigo.loadtest;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import stud.ntnu.no.idatt2105.Findigo.dtos.attribute.AttributeRequest;
+import stud.ntnu.no.idatt2105.Findigo.dtos.category.CategoryRequest;
+import stud.ntnu.no.idatt2105.Findigo.entities.ListingStatus;
+import stud.ntnu.no.idatt2105.Findigo.entities.Role;
+import stud.ntnu.no.idatt2105.Findigo.service.AttributeService;
+import stud.ntnu.no.idatt2105.Findigo.service.CategoryService;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills an empty database with a synthetic marketplace for load testing.
+ * <p>
+ * Enabled with the {@code loadtest} profile, together with {@code test} for an in-memory H2 database
+ * or {@code dev} for a local MySQL. On startup it creates users, categories with attributes, listings
+ * with attribute values, browse history, favorites and message threads. The sizes are set with the
+ * {@code loadtest.*} properties, and the same {@code loadtest.seed} always creates the same data.
+ * </p>
+ * <p>
+ * The data is skewed like a real marketplace: a few categories hold most listings, a few power
+ * sellers own most of them, and most views, favorites and messages go to a small share of popular
+ * listings. Users mostly browse their own preferred category.
+ * </p>
+ * <p>
+ * Rows are inserted with JDBC batches, so millions of listings are created in minutes. The search
+ * index, category affinities and conversations are then built from the generated rows by their
+ * services' own startup rebuilds, which run after this generator. Nothing is generated if the
+ * database already contains listings. H2 keeps the whole database in the heap, so millions of
+ * listings need a few gigabytes of heap there, or a MySQL database.
+ * </p>
+ */
+@Component
+@Profile("loadtest")
+public class MarketplaceDataGenerator {
+
+  private static final Logger logger = LogManager.getLogger(MarketplaceDataGenerator.class);
+
+  /**
+   * The prefix of the username of generated users, followed by their number from zero.
+   */
+  public static final String USERNAME_PREFIX = "loadtest-user-";
+
+  /**
+   * The items listed in each generated category, which are also the words listings are searched by.
+   */
+  public static final Map<String, List<String>> CATALOGUE = Map.of(
+      "Vehicles", List.of("car", "bicycle", "scooter", "motorcycle", "trailer"),
+      "Furniture", List.of("sofa", "table", "chair", "wardrobe", "bookshelf"),
+      "Electronics", List.of("phone", "laptop", "television", "camera", "headphones"),
+      "Clothing", List.of("jacket", "shoes", "dress", "jeans", "sweater"),
+      "Sports", List.of("skis", "tent", "football", "dumbbells", "kayak"),
+      "Garden", List.of("lawnmower", "grill", "planter", "hose", "shed"),
+      "Music", List.of("guitar", "piano", "drums", "amplifier", "violin"),
+      "Books", List.of("novel", "cookbook", "textbook", "comic", "atlas"),
+      "Toys", List.of("lego", "puzzle", "doll", "boardgame", "stroller"),
+      "Tools", List.of("drill", "saw", "ladder", "toolbox", "compressor"));
+
+  private static final List<String> ATTRIBUTES = List.of("Condition", "Brand", "Colour");
+  private static final List<String> CONDITIONS = List.of("new", "like new", "good", "worn");
+  private static final List<String> ADJECTIVES = List.of("Used", "Nice", "Cheap", "Vintage", "Almost new", "Solid");
+
+  private static final int BATCH_SIZE = 5_000;
+  private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+  private final JdbcTemplate jdbcTemplate;
+  private final PasswordEncoder passwordEncoder;
+  private final CategoryService categoryService;
+  private final AttributeService attributeService;
+
+  @Value("${loadtest.users:10000}")
+  private int userCount;
+
+  @Value("${loadtest.listings:100000}")
+  private int listingCount;
+
+  @Value("${loadtest.views-per-user:40}")
+  private int viewsPerUser;
+
+  @Value("${loadtest.favorites-per-user:5}")
+  private int favoritesPerUser;
+
+  @Value("${loadtest.threads-per-user:1}")
+  private int threadsPerUser;
+
+  @Value("${loadtest.messages-per-thread:4}")
+  private int messagesPerThread;
+
+  /**
+   * How strongly popularity is concentrated on few categories, sellers and listings.
+   * One spreads it evenly, and each step up concentrates it further.
+   */
+  @Value("${loadtest.skew:3}")
+  private double skew;
+
+  @Value("${loadtest.password:password}")
+  private String password;
+
+  @Value("${loadtest.seed:42}")
+  private long seed;
+
+  /**
+   * Creates the generator.
+   *
+   * @param jdbcTemplate     the template the rows are inserted with
+   * @param passwordEncoder  the encoder of the password shared by all generated users
+   * @param categoryService  the service the categories are created with
+   * @param attributeService the service the attributes of the categories are created with
+   */
+  public MarketplaceDataGenerator(JdbcTemplate jdbcTemplate, PasswordEncoder passwordEncoder,
+                                  CategoryService categoryService, AttributeService attributeService) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.passwordEncoder = passwordEncoder;
+    this.categoryService = categoryService;
+    this.attributeService = attributeService;
+  }
+
+  /**
+   * Generates the marketplace on startup if the database has no listings, before the search index,
+   * category affinities and conversations are rebuilt from it.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  public void generateIfEmpty() {
+    Long existing = jdbcTemplate.queryForObject("select count(*) from listing", Long.class);
+    if (existing != null && existing > 0) {
+      logger.info("Database already has {} listings, skipping load test data generation", existing);
+      return;
+    }
+    generate();
+  }
+
+  /**
+   * Generates the marketplace.
+   */
+  public void generate() {
+    long start = System.nanoTime();
+    SplittableRandom random = new SplittableRandom(seed);
+
+    long[] userIds = insertUsers();
+    List<String> categoryNames = CATALOGUE.keySet().stream().sorted().toList();
+    long[] categoryIds = insertCategories(categoryNames);
+
+    int[] categoryOfListing = new int[listingCount];
+    long[] ownerOfListing = new long[listingCount];
+    long[] listingIds = insertListings(random, categoryNames, categoryIds, userIds, categoryOfListing, ownerOfListing);
+    long[][] listingsByCategory = groupByCategory(listingIds, categoryOfListing, categoryIds.length);
+
+    int[] preferredCategory = new int[userIds.length];
+    for (int i = 0; i < userIds.length; i++) {
+      preferredCategory[i] = skewed(random, categoryIds.length);
+    }
+
+    int views = insertBrowseHistory(random, userIds, preferredCategory, listingIds, listingsByCategory);
+    int favorites = insertFavorites(random, userIds, preferredCategory, listingIds, listingsByCategory);
+    int messages = insertMessages(random, userIds, listingIds, ownerOfListing);
+
+    logger.info("Generated {} users, {} categories, {} listings, {} views, {} favorites and {} messages in {} s",
+        userIds.length, categoryIds.length, listingIds.length, views, favorites, messages,
+        TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+  }
+
+  /**
+   * Inserts the users, who all share one password so it is only hashed once.
+   *
+   * @return the IDs of the users, in the order of their number
+   */
+  private long[] insertUsers() {
+    String hash = passwordEncoder.encode(password);
+    Timestamp now = new Timestamp(System.currentTimeMillis());
+    List<Object[]> users = new ArrayList<>(BATCH_SIZE);
+    List<Object[]> roles = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < userCount; i++) {
+      users.add(new Object[]{USERNAME_PREFIX + i, hash, now, now, String.valueOf(40_000_000 + i)});
+      if (users.size() == BATCH_SIZE || i == userCount - 1) {
+        jdbcTemplate.batchUpdate("insert into users (username, password, created_at, updated_at, phone_number) "
+            + "values (?, ?, ?, ?, ?)", users);
+        users.clear();
+      }
+    }
+
+    long[] ids = jdbcTemplate.queryForList("select id from users where username like ? order by id",
+        Long.class, USERNAME_PREFIX + "%").stream().mapToLong(Long::longValue).toArray();
+    for (int i = 0; i < ids.length; i++) {
+      roles.add(new Object[]{ids[i], Role.ROLE_USER.name()});
+      if (roles.size() == BATCH_SIZE || i == ids.length - 1) {
+        jdbcTemplate.batchUpdate("insert into user_roles (user_id, role) values (?, ?)", roles);
+        roles.clear();
+      }
+    }
+    logger.info("Inserted {} users", ids.length);
+    return ids;
+  }
+
+  /**
+   * Creates the categories of the catalogue and their attributes.
+   *
+   * @param names the names of the categories, most popular first
+   * @return the IDs of the categories, in the order of their names
+   */
+  private long[] insertCategories(List<String> names) {
+    long[] ids = new long[names.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = categoryService.createCategory(new CategoryRequest(names.get(i))).getId();
+      for (String attribute : ATTRIBUTES) {
+        attributeService.createAttribute(new AttributeRequest(attribute, "string", ids[i]));
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Inserts the listings, with a value for every attribute of their category.
+   *
+   * @param categoryOfListing filled with the category index of each listing
+   * @param ownerOfListing    filled with the user ID of the seller of each listing
+   * @return the IDs of the listings, in the order they were generated
+   */
+  private long[] insertListings(SplittableRandom random, List<String> categoryNames, long[] categoryIds,
+                                long[] userIds, int[] categoryOfListing, long[] ownerOfListing) {
+    long now = System.currentTimeMillis();
+    List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < listingCount; i++) {
+      int category = skewed(random, categoryIds.length);
+      long owner = userIds[skewed(random, userIds.length)];
+      List<String> items = CATALOGUE.get(categoryNames.get(category));
+      String item = items.get(random.nextInt(items.size()));
+      String adjective = ADJECTIVES.get(random.nextInt(ADJECTIVES.size()));
+      int roll = random.nextInt(100);
+      ListingStatus status = roll < 90 ? ListingStatus.ACTIVE : roll < 97 ? ListingStatus.SOLD : ListingStatus.ARCHIVED;
+
+      categoryOfListing[i] = category;
+      ownerOfListing[i] = owner;
+      batch.add(new Object[]{
+          adjective + " " + item,
+          adjective + " " + item + " in " + CONDITIONS.get(random.nextInt(CONDITIONS.size())) + " condition.",
+          10.2 + random.nextDouble(0.4),
+          63.3 + random.nextDouble(0.2),
+          (double) (50 + skewed(random, 50_000)),
+          "Street " + random.nextInt(1, 500),
+          String.valueOf(7000 + random.nextInt(100)),
+          new Timestamp(now - random.nextLong(365 * DAY_MILLIS)),
+          status.name(),
+          categoryIds[category],
+          owner
+      });
+      if (batch.size() == BATCH_SIZE || i == listingCount - 1) {
+        jdbcTemplate.batchUpdate("insert into listing (brief_description, full_description, longitude, latitude, "
+            + "price, address, postal_code, date_created, listing_status, category_id, user_id) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", batch);
+        batch.clear();
+      }
+    }
+
+    jdbcTemplate.update("insert into listing_attribute (attribute_value, listing_id, attribute_id) "
+        + "select concat(a.attribute_name, ' ', mod(l.id, 7)), l.id, a.id "
+        + "from listing l join attribute a on a.category_id = l.category_id");
+    long[] ids = jdbcTemplate.queryForList("select id from listing order by id", Long.class)
+        .stream().mapToLong(Long::longValue).toArray();
+    logger.info("Inserted {} listings", ids.length);
+    return ids;
+  }
+
+  /**
+   * Inserts views of listings. Active users view the most, and most views are of popular listings
+   * in the viewer's preferred category.
+   *
+   * @return the number of views
+   */
+  private int insertBrowseHistory(SplittableRandom random, long[] userIds, int[] preferredCategory,
+                                  long[] listingIds, long[][] listingsByCategory) {
+    int views = userIds.length * viewsPerUser;
+    long now = System.currentTimeMillis();
+    List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < views; i++) {
+      int user = skewed(random, userIds.length);
+      long listing = pickListing(random, preferredCategory[user], listingIds, listingsByCategory);
+      batch.add(new Object[]{userIds[user], listing, new Timestamp(now - random.nextLong(30 * DAY_MILLIS))});
+      if (batch.size() == BATCH_SIZE || i == views - 1) {
+        jdbcTemplate.batchUpdate("insert into browse_history (user_id, listing_id, created_at) values (?, ?, ?)", batch);
+        batch.clear();
+      }
+    }
+    logger.info("Inserted {} views", views);
+    return views;
+  }
+
+  /**
+   * Inserts favorite listings, mostly popular listings in each user's preferred category.
+   *
+   * @return the number of favorites
+   */
+  private int insertFavorites(SplittableRandom random, long[] userIds, int[] preferredCategory,
+                              long[] listingIds, long[][] listingsByCategory) {
+    int favorites = 0;
+    List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+    for (int user = 0; user < userIds.length; user++) {
+      Set<Long> listings = new HashSet<>();
+      int count = random.nextInt(2 * favoritesPerUser + 1);
+      for (int i = 0; i < count; i++) {
+        listings.add(pickListing(random, preferredCategory[user], listingIds, listingsByCategory));
+      }
+      for (Long listing : listings) {
+        batch.add(new Object[]{userIds[user], listing});
+      }
+      favorites += listings.size();
+      if (batch.size() >= BATCH_SIZE || user == userIds.length - 1) {
+        jdbcTemplate.batchUpdate("insert into favorite_listings (user_id, listing_id) values (?, ?)", batch);
+        batch.clear();
+      }
+    }
+    logger.info("Inserted {} favorites", favorites);
+    return favorites;
+  }
+
+  /**
+   * Inserts message threads between buyers and the sellers of popular listings. Every thread starts
+   * with a question from the buyer, and only its latest message may be unread.
+   *
+   * @return the number of messages
+   */
+  private int insertMessages(SplittableRandom random, long[] userIds, long[] listingIds, long[] ownerOfListing) {
+    int threads = userIds.length * threadsPerUser;
+    int messages = 0;
+    long now = System.currentTimeMillis();
+    List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+    for (int thread = 0; thread < threads; thread++) {
+      long buyer = userIds[skewed(random, userIds.length)];
+      int listing = skewed(random, listingIds.length);
+      long seller = ownerOfListing[listing];
+      if (buyer == seller) {
+        continue;
+      }
+
+      int count = random.nextInt(1, 2 * messagesPerThread);
+      long sentAt = now - random.nextLong(60 * DAY_MILLIS);
+      for (int i = 0; i < count; i++) {
+        boolean fromBuyer = i % 2 == 0;
+        String text = i == 0
+            ? "Hi, is listing " + listingIds[listing] + " still available?"
+            : fromBuyer ? "Would you take a lower price?" : "Yes, it is still available.";
+        sentAt += random.nextLong(1, DAY_MILLIS / 4);
+        batch.add(new Object[]{
+            fromBuyer ? buyer : seller,
+            fromBuyer ? seller : buyer,
+            text,
+            new Timestamp(Math.min(sentAt, now)),
+            i < count - 1 || random.nextBoolean()
+        });
+      }
+      messages += count;
+      if (batch.size() >= BATCH_SIZE) {
+        insertMessageBatch(batch);
+      }
+    }
+    insertMessageBatch(batch);
+    logger.info("Inserted {} messages", messages);
+    return messages;
+  }
+
+  /**
+   * Inserts a batch of messages and clears it.
+   *
+   * @param batch the columns of the messages
+   */
+  private void insertMessageBatch(List<Object[]> batch) {
+    jdbcTemplate.batchUpdate("insert into messages (from_user_id, to_user_id, message_text, sent_at, is_read) "
+        + "values (?, ?, ?, ?, ?)", batch);
+    batch.clear();
+  }
+
+  /**
+   * Picks a listing, from the given category four times out of five and from any category otherwise,
+   * preferring popular listings.
+   *
+   * @return the ID of the listing
+   */
+  private long pickListing(SplittableRandom random, int category, long[] listingIds, long[][] listingsByCategory) {
+    long[] candidates = listingsByCategory[category];
+    if (candidates.length == 0 || random.nextInt(5) == 0) {
+      candidates = listingIds;
+    }
+    return candidates[skewed(random, candidates.length)];
+  }
+
+  /**
+   * Groups the IDs of the listings by their category.
+   *
+   * @return the IDs of the listings of each category index
+   */
+  private static long[][] groupByCategory(long[] listingIds, int[] categoryOfListing, int categories) {
+    int[] sizes = new int[categories];
+    for (int category : categoryOfListing) {
+      sizes[category]++;
+    }
+    long[][] groups = new long[categories][];
+    for (int i = 0; i < categories; i++) {
+      groups[i] = new long[sizes[i]];
+      sizes[i] = 0;
+    }
+    for (int i = 0; i < listingIds.length; i++) {
+      int category = categoryOfListing[i];
+      groups[category][sizes[category]++] = listingIds[i];
+    }
+    return groups;
+  }
+
+  /**
+   * Picks an index below {@code bound}, with low indexes more likely the higher the skew.
+   * <p>
+   * With the default skew of 3, the first tenth of the indexes is picked almost half of the time.
+   * </p>
+   *
+   * @param random the source of randomness
+   * @param bound  the number of indexes to pick from, which must be positive
+   * @return the picked index
+   */
+  private int skewed(SplittableRandom random, int bound) {
+    return Math.min((int) (bound * Math.pow(random.nextDouble(), skew)), bound - 1);
+  }
+}
@@ -0,0 +1,205 @@
+package stud.ntnu.no.idatt2105.Findigo.logging;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aspect profiling the service methods in the {@code stud.ntnu.no.idatt2105.Findigo.service} package.
+ *
+ * <p>A sampled share of the calls, set with {@code profiling.sample-rate}, is timed into the
+ * {@code findigo.service.calls} timer, tagged with the class, method and outcome. Since there are
+ * two timers per service method, their histogram buckets are only published when
+ * {@code profiling.percentile-histogram} is enabled; the hot paths publish their own histograms
+ * with {@link io.micrometer.core.annotation.Timed}. Sampled calls
+ * slower than {@code profiling.slow-threshold-ms} are logged with a summary of their arguments,
+ * and exceptions are logged for every call. Arguments are summarized by their type and size, and
+ * return values are never logged, so no result graph is converted to a string.</p>
+ */
+@Component
+@Aspect
+public class ProfilingAspect {
+
+  private static final Logger logger = LogManager.getLogger(ProfilingAspect.class);
+
+  /**
+   * The longest string argument logged in full; longer strings are logged by their length.
+   */
+  private static final int MAX_LOGGED_STRING_LENGTH = 64;
+
+  private final MeterRegistry meterRegistry;
+  private final double sampleRate;
+  private final long slowThresholdNanos;
+  private final boolean percentileHistogram;
+  private final Map<Method, MethodTimers> timers = new ConcurrentHashMap<>();
+
+  /**
+   * Creates the aspect.
+   *
+   * @param meterRegistry       the registry the timers are published to
+   * @param sampleRate          the share of calls to time, from 0 for none to 1 for all
+   * @param slowThresholdMillis the duration above which a sampled call is logged
+   * @param percentileHistogram {@code true} to publish histogram buckets for the timers of every service method
+   */
+  public ProfilingAspect(MeterRegistry meterRegistry,
+                         @Value("${profiling.sample-rate:1.0}") double sampleRate,
+                         @Value("${profiling.slow-threshold-ms:500}") long slowThresholdMillis,
+                         @Value("${profiling.percentile-histogram:false}") boolean percentileHistogram) {
+    this.meterRegistry = meterRegistry;
+    this.sampleRate = sampleRate;
+    this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+    this.percentileHistogram = percentileHistogram;
+  }
+
+  /**
+   * Times a sampled service call and logs it if it is slow or throws.
+   *
+   * @param joinPoint the service call
+   * @return the return value of the call
+   * @throws Throwable the exception thrown by the call
+   */
+  @Around("execution(* stud.ntnu.no.idatt2105.Findigo.service.*.*(..))")
+  public Object profile(ProceedingJoinPoint joinPoint) throws Throwable {
+    if (!isSampled()) {
+      try {
+        return joinPoint.proceed();
+      } catch (Throwable e) {
+        logError(joinPoint, e);
+        throw e;
+      }
+    }
+
+    MethodTimers methodTimers = timers.computeIfAbsent(
+        ((MethodSignature) joinPoint.getSignature()).getMethod(), this::createTimers);
+    long start = System.nanoTime();
+    boolean failed = false;
+    try {
+      return joinPoint.proceed();
+    } catch (Throwable e) {
+      failed = true;
+      logError(joinPoint, e);
+      throw e;
+    } finally {
+      long elapsed = System.nanoTime() - start;
+      (failed ? methodTimers.failure() : methodTimers.success()).record(elapsed, TimeUnit.NANOSECONDS);
+      if (elapsed >= slowThresholdNanos && logger.isWarnEnabled()) {
+        logger.warn("Slow call {} took {} ms with arguments {}", joinPoint.getSignature().toShortString(),
+            TimeUnit.NANOSECONDS.toMillis(elapsed), summarize(joinPoint.getArgs()));
+      }
+    }
+  }
+
+  /**
+   * Decides whether a call is timed.
+   *
+   * @return {@code true} for the configured share of calls
+   */
+  private boolean isSampled() {
+    return sampleRate >= 1.0 || (sampleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+  }
+
+  /**
+   * Logs an exception thrown by a service call.
+   *
+   * @param joinPoint the service call
+   * @param e         the exception
+   */
+  private void logError(ProceedingJoinPoint joinPoint, Throwable e) {
+    logger.error("Exception in {}: {}", joinPoint.getSignature().toShortString(), e.getMessage());
+  }
+
+  /**
+   * Creates the timers of a service method.
+   *
+   * @param method the method
+   * @return the timers of successful and failed calls
+   */
+  private MethodTimers createTimers(Method method) {
+    return new MethodTimers(createTimer(method, "success"), createTimer(method, "failure"));
+  }
+
+  /**
+   * Creates and registers the timer of one outcome of a service method.
+   *
+   * @param method  the method
+   * @param outcome {@code success} or {@code failure}
+   * @return the registered timer
+   */
+  private Timer createTimer(Method method, String outcome) {
+    return Timer.builder("findigo.service.calls")
+        .description("Time spent in service methods")
+        .tag("class", method.getDeclaringClass().getSimpleName())
+        .tag("method", method.getName())
+        .tag("outcome", outcome)
+        .publishPercentileHistogram(percentileHistogram)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Summarizes the arguments of a call without converting them to strings.
+   * <p>
+   * Numbers, booleans, enums and short strings are logged by value, collections, maps and arrays
+   * by their type and size, and other objects by their type only.
+   * </p>
+   *
+   * @param args the arguments
+   * @return the summary
+   */
+  private static String summarize(Object[] args) {
+    StringJoiner summary = new StringJoiner(", ", "[", "]");
+    for (Object arg : args) {
+      summary.add(summarize(arg));
+    }
+    return summary.toString();
+  }
+
+  /**
+   * Summarizes one argument of a call without converting it to a string.
+   *
+   * @param arg the argument
+   * @return the value, or the type and size, of the argument
+   */
+  private static String summarize(Object arg) {
+    if (arg == null || arg instanceof Number || arg instanceof Boolean || arg instanceof Enum<?>) {
+      return String.valueOf(arg);
+    }
+    if (arg instanceof CharSequence text) {
+      return text.length() <= MAX_LOGGED_STRING_LENGTH ? "\"" + text + "\"" : "String[length=" + text.length() + "]";
+    }
+    if (arg instanceof Collection<?> collection) {
+      return arg.getClass().getSimpleName() + "[size=" + collection.size() + "]";
+    }
+    if (arg instanceof Map<?, ?> map) {
+      return arg.getClass().getSimpleName() + "[size=" + map.size() + "]";
+    }
+    if (arg.getClass().isArray()) {
+      return arg.getClass().getComponentType().getSimpleName() + "[" + Array.getLength(arg) + "]";
+    }
+    return arg.getClass().getSimpleName();
+  }
+
+  /**
+   * The timers of one service method.
+   *
+   * @param success the timer of calls that returned
+   * @param failure the timer of calls that threw
+   */
+  private record MethodTimers(Timer success, Timer failure) {
+  }
+}
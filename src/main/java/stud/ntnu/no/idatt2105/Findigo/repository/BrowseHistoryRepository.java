@@ -1,6 +1,7 @@
 package stud.ntnu.no.idatt2105.Findigo.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import stud.ntnu.no.idatt2105.Findigo.entities.BrowseHistory;
 import stud.ntnu.no.idatt2105.Findigo.entities.User;
@@ -33,4 +34,13 @@ public interface BrowseHistoryRepository extends JpaRepository<BrowseHistory, Lo
    * @return a list of {@link BrowseHistory} entries for the specified user
    */
   List<BrowseHistory> findByUser(User user);
+
+  /**
+   * Counts the views of each user in each category, along with the time of the latest view.
+   *
+   * @return rows of {@code [userId, categoryId, viewCount, lastViewedAt]}
+   */
+  @Query("select b.user.id, b.listing.category.id, count(b), max(b.createdAt) from BrowseHistory b "
+      + "group by b.user.id, b.listing.category.id")
+  List<Object[]> countViewsByUserAndCategory();
 }
@@ -0,0 +1,89 @@
+package stud.ntnu.no.idatt2105.Findigo.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import stud.ntnu.no.idatt2105.Findigo.entities.Conversation;
+import stud.ntnu.no.idatt2105.Findigo.entities.User;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for managing {@link Conversation} entities.
+ * <p>
+ * Conversations are unique per pair of users, with the lower user ID first.
+ * </p>
+ */
+@Repository
+public interface ConversationRepository extends JpaRepository<Conversation, Long> {
+
+  /**
+   * Finds the conversation between two users and locks it for update, so concurrent
+   * messages in the same conversation update it one at a time.
+   *
+   * @param userLowId  the lower of the two user IDs
+   * @param userHighId the higher of the two user IDs
+   * @return an {@link Optional} containing the conversation if the users have exchanged messages
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  Optional<Conversation> findByUserLowIdAndUserHighId(Long userLowId, Long userHighId);
+
+  /**
+   * Finds the conversation between two users without locking it, for reads.
+   *
+   * @param userLowId  the lower of the two user IDs
+   * @param userHighId the higher of the two user IDs
+   * @return an {@link Optional} containing the conversation if the users have exchanged messages
+   */
+  Optional<Conversation> readByUserLowIdAndUserHighId(Long userLowId, Long userHighId);
+
+  /**
+   * Creates the conversation between two users without unread messages in a single statement,
+   * unless it exists already.
+   * <p>
+   * The database waits for a concurrent transaction inserting the same conversation and then
+   * skips the insert, so concurrent first messages end up in the same conversation.
+   * </p>
+   *
+   * @param userLow        the participant with the lower user ID
+   * @param userHigh       the participant with the higher user ID
+   * @param lastMessageId  the ID of the first message
+   * @param lastActivityAt the time the first message was sent
+   * @return the number of created conversations, zero or one
+   */
+  @Modifying
+  @Query("""
+      insert into Conversation (userLow, userHigh, lastMessageId, lastActivityAt, unreadLow, unreadHigh)
+      values (:userLow, :userHigh, :lastMessageId, :lastActivityAt, 0, 0)
+      on conflict do nothing
+      """)
+  int insertIfAbsent(@Param("userLow") User userLow,
+                     @Param("userHigh") User userHigh,
+                     @Param("lastMessageId") Long lastMessageId,
+                     @Param("lastActivityAt") Date lastActivityAt);
+
+  /**
+   * Summarizes the existing messages per pair of users, for building conversations.
+   *
+   * @return rows of {@code [userLowId, userHighId, lastMessageId, lastActivityAt, unreadLow, unreadHigh]}
+   */
+  @Query("""
+      select case when m.fromUser.id < m.toUser.id then m.fromUser.id else m.toUser.id end,
+             case when m.fromUser.id < m.toUser.id then m.toUser.id else m.fromUser.id end,
+             max(m.id),
+             max(m.sentAt),
+             sum(case when m.isRead = false and m.toUser.id < m.fromUser.id then 1 else 0 end),
+             sum(case when m.isRead = false and m.toUser.id > m.fromUser.id then 1 else 0 end)
+      from Message m
+      where m.fromUser.id <> m.toUser.id
+      group by case when m.fromUser.id < m.toUser.id then m.fromUser.id else m.toUser.id end,
+               case when m.fromUser.id < m.toUser.id then m.toUser.id else m.fromUser.id end
+      """)
+  List<Object[]> summarizeMessagesByParticipants();
+}
@@ -0,0 +1,69 @@
+package stud.ntnu.no.idatt2105.Findigo.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.function.BiFunction;
+
+/**
+ * Encoding shared by the cursors of the cursor-paginated feeds, such as {@link ListingCursor}
+ * and {@link MessageCursor}.
+ * <p>
+ * A cursor is the time and ID of the last row of a page, encoded as an opaque URL-safe string.
+ * </p>
+ */
+public final class Cursors {
+
+  private static final char SEPARATOR = ':';
+
+  private Cursors() {
+  }
+
+  /**
+   * Encodes the time and ID of a row as an opaque URL-safe string.
+   *
+   * @param time the time of the row
+   * @param id   the ID of the row
+   * @return the encoded cursor
+   */
+  static String encode(Date time, long id) {
+    String raw = time.getTime() + String.valueOf(SEPARATOR) + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodes a cursor previously returned by {@link #encode(Date, long)}.
+   *
+   * @param cursor  the encoded cursor, or {@code null} for the first page
+   * @param factory creates the cursor from the decoded time and ID
+   * @param <T>     the type of the cursor
+   * @return the decoded cursor, or {@code null} if no cursor was given
+   * @throws IllegalArgumentException if the cursor is malformed
+   */
+  static <T> T decode(String cursor, BiFunction<Date, Long, T> factory) {
+    if (cursor == null || cursor.isBlank()) {
+      return null;
+    }
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int separator = decoded.indexOf(SEPARATOR);
+      return factory.apply(
+          new Date(Long.parseLong(decoded.substring(0, separator))),
+          Long.parseLong(decoded.substring(separator + 1)));
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+  }
+
+  /**
+   * Validates the page size of a cursor-paginated feed.
+   *
+   * @param size the number of rows per page
+   * @throws IllegalArgumentException if the size is less than one
+   */
+  public static void requireValidPageSize(int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Page size must not be less than one");
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package stud.ntnu.no.idatt2105.Findigo.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import stud.ntnu.no.idatt2105.Findigo.entities.FavoriteListings;
@@ -33,5 +34,6 @@ public interface FavoriteListingsRepository extends JpaRepository<FavoriteListin
    * @param user the user whose favorite listings are to be retrieved
    * @return a list of {@link FavoriteListings} for the given user
    */
+  @EntityGraph(attributePaths = {"listing", "listing.user", "listing.sale"})
   List<FavoriteListings> findAllByUser(User user);
 }
@@ -0,0 +1,26 @@
+package stud.ntnu.no.idatt2105.Findigo.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.stereotype.Repository;
+import stud.ntnu.no.idatt2105.Findigo.entities.ImageBlob;
+
+import java.util.Optional;
+
+/**
+ * Repository interface for managing {@link ImageBlob} entities.
+ */
+@Repository
+public interface ImageBlobRepository extends JpaRepository<ImageBlob, String> {
+
+  /**
+   * Finds the row of a content hash and locks it for update, so the blob is stored or deleted
+   * by one node at a time.
+   *
+   * @param contentHash the hash of the blob
+   * @return an {@link Optional} containing the row if it has been created
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  Optional<ImageBlob> findByContentHash(String contentHash);
+}
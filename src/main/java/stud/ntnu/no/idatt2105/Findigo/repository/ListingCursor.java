@@ -0,0 +1,49 @@
+package stud.ntnu.no.idatt2105.Findigo.repository;
+
+import stud.ntnu.no.idatt2105.Findigo.entities.Listing;
+
+import java.util.Date;
+
+/**
+ * Position in a listing feed ordered by {@link ListingSpecifications#NEWEST_FIRST}.
+ * <p>
+ * The cursor holds the creation date and ID of the last listing on a page, so the next page
+ * can be found by seeking past it in the index instead of skipping an offset. Clients receive
+ * the cursor as an opaque URL-safe string.
+ * </p>
+ *
+ * @param dateCreated the creation date of the last listing returned
+ * @param id          the ID of the last listing returned
+ */
+public record ListingCursor(Date dateCreated, long id) {
+
+  /**
+   * Creates a cursor positioned at the given listing.
+   *
+   * @param listing the last listing of a page
+   * @return the cursor pointing past the listing
+   */
+  public static ListingCursor of(Listing listing) {
+    return new ListingCursor(listing.getDateCreated(), listing.getId());
+  }
+
+  /**
+   * Decodes a cursor previously returned by {@link #encode()}.
+   *
+   * @param cursor the encoded cursor, or {@code null} for the first page
+   * @return the decoded cursor, or {@code null} if no cursor was given
+   * @throws IllegalArgumentException if the cursor is malformed
+   */
+  public static ListingCursor decode(String cursor) {
+    return Cursors.decode(cursor, ListingCursor::new);
+  }
+
+  /**
+   * Encodes the cursor as an opaque URL-safe string.
+   *
+   * @return the encoded cursor
+   */
+  public String encode() {
+    return Cursors.encode(dateCreated, id);
+  }
+}
@@ -1,9 +1,12 @@
 package stud.ntnu.no.idatt2105.Findigo.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import stud.ntnu.no.idatt2105.Findigo.entities.ListingImageUrls;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -22,4 +25,81 @@ public interface ListingImageRepository extends JpaRepository<ListingImageUrls,
    * @return a list of {@link ListingImageUrls} linked to the given listing
    */
   List<ListingImageUrls> findByListingId(Long listingId);
+
+  /**
+   * Finds all image URLs associated with a specific listing, in display order.
+   *
+   * @param listingId the ID of the listing
+   * @return the {@link ListingImageUrls} of the listing, by position and then oldest first
+   */
+  List<ListingImageUrls> findByListingIdOrderByPositionAscIdAsc(Long listingId);
+
+  /**
+   * Finds a page of the image URLs of a specific listing, in display order.
+   * <p>
+   * Reads the {@code listing_image_urls} table only, so a single image can be looked up by its index
+   * without loading the listing.
+   * </p>
+   *
+   * @param listingId the ID of the listing
+   * @param pageable  the page to retrieve
+   * @return the {@link ListingImageUrls} on the page
+   */
+  List<ListingImageUrls> findByListingIdOrderByPositionAscIdAsc(Long listingId, Pageable pageable);
+
+  /**
+   * Finds the images of several listings in a single query, in display order within each listing.
+   *
+   * @param listingIds the IDs of the listings
+   * @return the {@link ListingImageUrls} of the listings, by listing and then by position
+   */
+  List<ListingImageUrls> findByListingIdInOrderByListingIdAscPositionAscIdAsc(Collection<Long> listingIds);
+
+  /**
+   * Finds the highest position of the images of a specific listing.
+   *
+   * @param listingId the ID of the listing
+   * @return the highest position, or {@code -1} if the listing has no positioned images
+   */
+  @Query("select coalesce(max(i.position), -1) from ListingImageUrls i where i.listing.id = :listingId")
+  int findMaxPositionByListingId(Long listingId);
+
+  /**
+   * Finds the images that have no position yet, grouped by listing in the order they were uploaded.
+   *
+   * @return the {@link ListingImageUrls} without a position
+   */
+  List<ListingImageUrls> findByPositionIsNullOrderByListingIdAscIdAsc();
+
+  /**
+   * Finds the images whose sizes have not been recorded, uploaded before sizes were stored.
+   *
+   * @return the {@link ListingImageUrls} without recorded sizes
+   */
+  List<ListingImageUrls> findByStoredSizeIsNull();
+
+  /**
+   * Counts the images of a specific listing.
+   *
+   * @param listingId the ID of the listing
+   * @return the number of images of the listing
+   */
+  long countByListingId(Long listingId);
+
+  /**
+   * Counts the image rows referring to the content with the given hash.
+   *
+   * @param contentHash the hex-encoded SHA-256 hash of the content
+   * @return the number of images with the content
+   */
+  long countByContentHash(String contentHash);
+
+  /**
+   * Finds the distinct content hashes of the images of a specific listing.
+   *
+   * @param listingId the ID of the listing
+   * @return the content hashes of the listing's images
+   */
+  @Query("select distinct i.contentHash from ListingImageUrls i where i.listing.id = :listingId and i.contentHash is not null")
+  List<String> findContentHashesByListingId(Long listingId);
 }
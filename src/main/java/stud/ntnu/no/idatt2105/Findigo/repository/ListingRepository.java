@@ -1,8 +1,16 @@
 package stud.ntnu.no.idatt2105.Findigo.repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import stud.ntnu.no.idatt2105.Findigo.entities.Category;
 import stud.ntnu.no.idatt2105.Findigo.entities.Listing;
@@ -10,6 +18,7 @@ import stud.ntnu.no.idatt2105.Findigo.entities.ListingStatus;
 import stud.ntnu.no.idatt2105.Findigo.entities.User;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -17,10 +26,21 @@ import java.util.Set;
  * <p>
  * Provides CRUD operations and custom queries for listings,
  * including filtering by user, category, and exclusions.
+ * Dynamic filtering is supported through {@link ListingSpecifications}.
  * </p>
  */
 @Repository
-public interface ListingRepository extends JpaRepository<Listing, Long> {
+public interface ListingRepository extends JpaRepository<Listing, Long>, JpaSpecificationExecutor<Listing> {
+
+  /**
+   * Finds a listing and locks it for update, so images are added to the listing one at a time.
+   *
+   * @param id the ID of the listing
+   * @return an {@link Optional} containing the listing if it exists
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select l from Listing l where l.id = :id")
+  Optional<Listing> findAndLockById(@Param("id") Long id);
 
   /**
    * Finds all listings created by a specific user.
@@ -28,6 +48,7 @@ public interface ListingRepository extends JpaRepository<Listing, Long> {
    * @param user the user whose listings are to be retrieved
    * @return a list of listings associated with the given user
    */
+  @EntityGraph(attributePaths = {"user", "sale"})
   List<Listing> findListingsByUser(User user);
 
   /**
@@ -36,6 +57,7 @@ public interface ListingRepository extends JpaRepository<Listing, Long> {
    * @param id the ID of the category
    * @return a list of listings belonging to the specified category
    */
+  @EntityGraph(attributePaths = {"user", "sale"})
   List<Listing> findListingsByCategoryIdAndListingStatus(Long id, ListingStatus listingStatus);
 
   /**
@@ -44,8 +66,13 @@ public interface ListingRepository extends JpaRepository<Listing, Long> {
    * @param id the ID of the user to exclude
    * @return a list of listings not created by the specified user
    */
+  @EntityGraph(attributePaths = {"user", "sale"})
   List<Listing> findAllByUser_IdNotAndListingStatus(long id, ListingStatus listingStatus);
+
+  @EntityGraph(attributePaths = {"user", "sale"})
   List<Listing> findAllByListingStatus(ListingStatus listingStatus);
+
+  @EntityGraph(attributePaths = {"user", "sale"})
   List<Listing> findByCategoryAndIdNotInAndListingStatus(Category category, Set<Long> ids, ListingStatus listingStatus);
 
   /**
@@ -57,8 +84,66 @@ public interface ListingRepository extends JpaRepository<Listing, Long> {
    * @param pageable pagination information
    * @return a page of listings matching the criteria
    */
+  @EntityGraph(attributePaths = {"user", "sale"})
   Page<Listing> findByCategoryAndIdNotIn(Category category, Set<Long> ids, Pageable pageable);
+  @EntityGraph(attributePaths = {"user", "sale"})
   List<Listing> findByCategoryIdAndUser_IdNotAndListingStatus(Long categoryId, Long userId, ListingStatus listingStatus);
+
+  @EntityGraph(attributePaths = {"user", "sale"})
   Page<Listing> findListingsByCategoryIdAndListingStatus(Long categoryId, ListingStatus status, Pageable pageable);
 
+  /**
+   * Finds all listings matching the specification, fetching their user and sale in the same query.
+   *
+   * @param spec the listings to find
+   * @return the matching listings
+   */
+  @Override
+  @EntityGraph(attributePaths = {"user", "sale"})
+  List<Listing> findAll(Specification<Listing> spec);
+
+  /**
+   * Finds a page of listings matching the specification, fetching their user and sale in the same query.
+   *
+   * @param spec     the listings to find
+   * @param pageable pagination information
+   * @return a page of the matching listings
+   */
+  @Override
+  @EntityGraph(attributePaths = {"user", "sale"})
+  Page<Listing> findAll(Specification<Listing> spec, Pageable pageable);
+
+  /**
+   * Finds the ID and descriptions of listings with the given status, ordered by ID and starting after the given ID.
+   * Used to build the search index in batches without loading full entities.
+   *
+   * @param listingStatus the status of the listings
+   * @param afterId the exclusive lower bound of the listing IDs
+   * @param limit the maximum number of rows to return
+   * @return rows of {@code [id, briefDescription, fullDescription]}
+   */
+  @Query("select l.id, l.briefDescription, l.fullDescription from Listing l "
+      + "where l.listingStatus = :status and l.id > :afterId order by l.id")
+  List<Object[]> findSearchableTextByListingStatusAfterId(
+      @Param("status") ListingStatus listingStatus, @Param("afterId") long afterId, Limit limit);
+
+  /**
+   * Finds one page of a listing feed ordered by {@link ListingSpecifications#NEWEST_FIRST}, starting after the cursor.
+   * <p>
+   * One listing more than the page size is fetched, so callers can tell whether a next page exists
+   * without a count query. The user and sale of each listing are fetched in the same query.
+   * </p>
+   *
+   * @param specification the listings to include in the feed
+   * @param cursor        the position of the last listing on the previous page, or {@code null} for the first page
+   * @param size          the number of listings per page
+   * @return up to {@code size + 1} listings following the cursor
+   */
+  default List<Listing> findFeedPage(Specification<Listing> specification, ListingCursor cursor, int size) {
+    return findBy(Specification.where(specification).and(ListingSpecifications.after(cursor)),
+        query -> query.sortBy(ListingSpecifications.NEWEST_FIRST)
+            .project("user", "sale")
+            .limit(size + 1)
+            .all());
+  }
 }
@@ -0,0 +1,38 @@
+package stud.ntnu.no.idatt2105.Findigo.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import stud.ntnu.no.idatt2105.Findigo.entities.ListingSearchTerm;
+
+import java.util.List;
+
+/**
+ * Repository interface for managing {@link ListingSearchTerm} entities.
+ * <p>
+ * Provides operations for maintaining the listing full-text search index.
+ * </p>
+ */
+@Repository
+public interface ListingSearchTermRepository extends JpaRepository<ListingSearchTerm, Long> {
+
+  /**
+   * Removes all index entries for a listing in a single statement.
+   *
+   * @param listingId the ID of the listing
+   * @return the number of removed entries
+   */
+  @Modifying
+  @Query("delete from ListingSearchTerm t where t.listing.id = :listingId")
+  int deleteByListingId(@Param("listingId") Long listingId);
+
+  /**
+   * Finds all index entries for a listing.
+   *
+   * @param listingId the ID of the listing
+   * @return a list of {@link ListingSearchTerm} entries for the listing
+   */
+  List<ListingSearchTerm> findByListingId(Long listingId);
+}
@@ -0,0 +1,297 @@
+package stud.ntnu.no.idatt2105.Findigo.repository;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import lombok.experimental.UtilityClass;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import stud.ntnu.no.idatt2105.Findigo.dtos.listing.FilterListingsRequest;
+import stud.ntnu.no.idatt2105.Findigo.entities.Listing;
+import stud.ntnu.no.idatt2105.Findigo.entities.ListingSearchTerm;
+import stud.ntnu.no.idatt2105.Findigo.entities.ListingStatus;
+import stud.ntnu.no.idatt2105.Findigo.search.SearchTokenizer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Utility class for building {@link Specification} queries over {@link Listing} entities.
+ * <p>
+ * Each specification translates one filter criterion into a SQL predicate, so that a
+ * {@link FilterListingsRequest} can be evaluated entirely by the database, including paging.
+ * Specifications given a {@code null} value do not restrict the result.
+ * </p>
+ */
+@UtilityClass
+public class ListingSpecifications {
+
+  /**
+   * The default ordering of listing search results, newest first with the ID as tie-breaker.
+   */
+  public static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "dateCreated", "id");
+
+  private static final char LIKE_ESCAPE = '\\';
+
+  /**
+   * Builds a specification matching active listings that satisfy every criterion in the filter request,
+   * ordered by relevance to the query and then newest first.
+   *
+   * @param filter        the filter criteria
+   * @param excludeUserId the ID of a user whose listings should be excluded, or {@code null} to include all users
+   * @return a {@link Specification} combining all criteria
+   */
+  public static Specification<Listing> fromFilter(FilterListingsRequest filter, Long excludeUserId) {
+    return matchesFilter(filter, excludeUserId)
+        .and(orderedByRelevance(filter.getQuery()));
+  }
+
+  /**
+   * Builds a specification matching active listings that satisfy every criterion in the filter request,
+   * without imposing an ordering.
+   *
+   * @param filter        the filter criteria
+   * @param excludeUserId the ID of a user whose listings should be excluded, or {@code null} to include all users
+   * @return a {@link Specification} combining all criteria
+   */
+  public static Specification<Listing> matchesFilter(FilterListingsRequest filter, Long excludeUserId) {
+    return Specification.where(hasStatus(ListingStatus.ACTIVE))
+        .and(notOwnedBy(excludeUserId))
+        .and(inCategory(filter.getCategoryId()))
+        .and(matchesQuery(filter.getQuery()))
+        .and(priceAtLeast(filter.getFromPrice()))
+        .and(priceAtMost(filter.getToPrice()))
+        .and(createdAfter(filter.getFromDate()));
+  }
+
+  /**
+   * Matches listings with the given status.
+   *
+   * @param status the listing status
+   * @return a {@link Specification} on the listing status
+   */
+  public static Specification<Listing> hasStatus(ListingStatus status) {
+    return (root, query, cb) -> status == null ? null : cb.equal(root.get("listingStatus"), status);
+  }
+
+  /**
+   * Matches listings not created by the given user.
+   *
+   * @param userId the ID of the user to exclude
+   * @return a {@link Specification} excluding the user's listings
+   */
+  public static Specification<Listing> notOwnedBy(Long userId) {
+    return (root, query, cb) -> userId == null ? null : cb.notEqual(root.get("user").get("id"), userId);
+  }
+
+  /**
+   * Matches listings in the given category.
+   *
+   * @param categoryId the ID of the category
+   * @return a {@link Specification} on the category
+   */
+  public static Specification<Listing> inCategory(Long categoryId) {
+    return (root, query, cb) -> categoryId == null ? null : cb.equal(root.get("category").get("id"), categoryId);
+  }
+
+  /**
+   * Matches listings in any of the given categories.
+   *
+   * @param categoryIds the IDs of the categories
+   * @return a {@link Specification} on the category
+   */
+  public static Specification<Listing> inCategories(Collection<Long> categoryIds) {
+    return (root, query, cb) -> categoryIds == null ? null : root.get("category").get("id").in(categoryIds);
+  }
+
+  /**
+   * Matches listings after the cursor position when ordered by {@link #NEWEST_FIRST}.
+   * <p>
+   * Expressed as a row comparison on {@code (dateCreated, id)}, so the database can seek
+   * directly to the position in the index instead of skipping the preceding rows.
+   * </p>
+   *
+   * @param cursor the position of the last listing on the previous page, or {@code null} for the first page
+   * @return a {@link Specification} on the creation date and ID
+   */
+  public static Specification<Listing> after(ListingCursor cursor) {
+    return (root, query, cb) -> {
+      if (cursor == null) {
+        return null;
+      }
+      Path<Date> dateCreated = root.get("dateCreated");
+      return cb.or(
+          cb.lessThan(dateCreated, cursor.dateCreated()),
+          cb.and(cb.equal(dateCreated, cursor.dateCreated()), cb.lessThan(root.get("id"), cursor.id())));
+    };
+  }
+
+  /**
+   * Matches listings containing every term of the query, using the full-text search index.
+   * <p>
+   * Each query term is matched as a prefix of the indexed terms, so {@code "bic"} matches
+   * a listing containing {@code "bicycle"}. A query without any searchable terms, such as a single
+   * letter or punctuation, is matched as a substring of the descriptions instead.
+   * </p>
+   *
+   * @param text the text to search for
+   * @return a {@link Specification} on the indexed listing terms
+   */
+  public static Specification<Listing> matchesQuery(String text) {
+    return (root, query, cb) -> {
+      if (text == null || text.isBlank()) {
+        return null;
+      }
+      List<String> terms = SearchTokenizer.tokenize(text);
+      if (terms.isEmpty()) {
+        String pattern = "%" + escapeLike(text.trim().toLowerCase(Locale.ROOT)) + "%";
+        return cb.or(
+            cb.like(cb.lower(root.get("briefDescription")), pattern, LIKE_ESCAPE),
+            cb.like(cb.lower(root.get("fullDescription")), pattern, LIKE_ESCAPE));
+      }
+
+      List<Predicate> termPredicates = new ArrayList<>();
+      for (String term : new LinkedHashSet<>(terms)) {
+        Subquery<Long> match = query.subquery(Long.class);
+        Root<ListingSearchTerm> indexed = match.from(ListingSearchTerm.class);
+        match.select(indexed.get("id"))
+            .where(cb.equal(indexed.get("listing"), root), termPrefix(cb, indexed, term));
+        termPredicates.add(cb.exists(match));
+      }
+      return cb.and(termPredicates.toArray(Predicate[]::new));
+    };
+  }
+
+  /**
+   * Orders listings by their relevance to the query, then newest first.
+   * <p>
+   * The relevance of a listing is the sum of the index weights of its terms matching the query.
+   * Without a searchable query, listings are ordered by {@link #NEWEST_FIRST}. The ordering
+   * is not applied to count queries.
+   * </p>
+   *
+   * @param text the text to rank by, may be {@code null}
+   * @return a {@link Specification} that only orders the result
+   */
+  public static Specification<Listing> orderedByRelevance(String text) {
+    return (root, query, cb) -> {
+      if (Long.class.equals(query.getResultType()) || long.class.equals(query.getResultType())) {
+        return null;
+      }
+      List<Order> orders = new ArrayList<>();
+      List<String> terms = SearchTokenizer.tokenize(text);
+      if (!terms.isEmpty()) {
+        Subquery<Integer> relevance = query.subquery(Integer.class);
+        Root<ListingSearchTerm> indexed = relevance.from(ListingSearchTerm.class);
+        relevance.select(cb.sum(indexed.get("weight")))
+            .where(cb.equal(indexed.get("listing"), root),
+                cb.or(new LinkedHashSet<>(terms).stream()
+                    .map(term -> termPrefix(cb, indexed, term))
+                    .toArray(Predicate[]::new)));
+        orders.add(cb.desc(relevance));
+      }
+      orders.addAll(newestFirst(root, cb));
+      query.orderBy(orders);
+      return null;
+    };
+  }
+
+  /**
+   * Orders listings by the rank of their category, then newest first.
+   * <p>
+   * Listings in categories not in the ranking are ordered last. The ordering is not applied to count queries.
+   * </p>
+   *
+   * @param rankedCategoryIds the category IDs, highest ranked first
+   * @return a {@link Specification} that only orders the result
+   */
+  public static Specification<Listing> orderedByCategoryRank(List<Long> rankedCategoryIds) {
+    return (root, query, cb) -> {
+      if (Long.class.equals(query.getResultType()) || long.class.equals(query.getResultType())) {
+        return null;
+      }
+      CriteriaBuilder.SimpleCase<Long, Integer> categoryRank = cb.selectCase(root.get("category").<Long>get("id"));
+      for (int rank = 0; rank < rankedCategoryIds.size(); rank++) {
+        categoryRank.when(rankedCategoryIds.get(rank), rank);
+      }
+
+      List<Order> orders = new ArrayList<>();
+      orders.add(cb.asc(categoryRank.otherwise(rankedCategoryIds.size())));
+      orders.addAll(newestFirst(root, cb));
+      query.orderBy(orders);
+      return null;
+    };
+  }
+
+  /**
+   * Matches listings with a price greater than or equal to the given price.
+   *
+   * @param fromPrice the lower price bound
+   * @return a {@link Specification} on the price
+   */
+  public static Specification<Listing> priceAtLeast(Integer fromPrice) {
+    return (root, query, cb) -> fromPrice == null ? null : cb.ge(root.get("price"), fromPrice);
+  }
+
+  /**
+   * Matches listings with a price less than or equal to the given price.
+   *
+   * @param toPrice the upper price bound
+   * @return a {@link Specification} on the price
+   */
+  public static Specification<Listing> priceAtMost(Integer toPrice) {
+    return (root, query, cb) -> toPrice == null ? null : cb.le(root.get("price"), toPrice);
+  }
+
+  /**
+   * Matches listings created after the given date.
+   *
+   * @param fromDate the exclusive lower bound of the creation date
+   * @return a {@link Specification} on the creation date
+   */
+  public static Specification<Listing> createdAfter(Date fromDate) {
+    return (root, query, cb) -> fromDate == null ? null : cb.greaterThan(root.get("dateCreated"), fromDate);
+  }
+
+  /**
+   * Builds the {@link #NEWEST_FIRST} ordering, for specifications that order by other criteria first.
+   *
+   * @param root the listing root
+   * @param cb   the criteria builder
+   * @return the orders on the creation date and ID
+   */
+  private static List<Order> newestFirst(Root<Listing> root, CriteriaBuilder cb) {
+    return List.of(cb.desc(root.get("dateCreated")), cb.desc(root.get("id")));
+  }
+
+  /**
+   * Matches indexed terms starting with the given query term.
+   *
+   * @param cb      the criteria builder
+   * @param indexed the root of the search term subquery
+   * @param term    the normalized query term
+   * @return a prefix {@code LIKE} predicate on the term column
+   */
+  private static Predicate termPrefix(CriteriaBuilder cb, Root<ListingSearchTerm> indexed, String term) {
+    return cb.like(indexed.get("term"), escapeLike(term) + "%", LIKE_ESCAPE);
+  }
+
+  /**
+   * Escapes the wildcard characters of a SQL {@code LIKE} pattern so the text is matched literally.
+   *
+   * @param text the text to escape
+   * @return the escaped text
+   */
+  private static String escapeLike(String text) {
+    return text.replace("\\", "\\\\")
+        .replace("%", "\\%")
+        .replace("_", "\\_");
+  }
+}
@@ -0,0 +1,49 @@
+package stud.ntnu.no.idatt2105.Findigo.repository;
+
+import stud.ntnu.no.idatt2105.Findigo.entities.Message;
+
+import java.util.Date;
+
+/**
+ * Position in the message history between two users, ordered newest first.
+ * <p>
+ * The cursor holds the send time and ID of the oldest message on a page, so the next page
+ * of older messages can be found by seeking past it in the index instead of skipping an offset.
+ * Clients receive the cursor as an opaque URL-safe string.
+ * </p>
+ *
+ * @param sentAt the send time of the last message returned
+ * @param id     the ID of the last message returned
+ */
+public record MessageCursor(Date sentAt, long id) {
+
+  /**
+   * Creates a cursor positioned at the given message.
+   *
+   * @param message the last message of a page
+   * @return the cursor pointing past the message
+   */
+  public static MessageCursor of(Message message) {
+    return new MessageCursor(message.getSentAt(), message.getId());
+  }
+
+  /**
+   * Decodes a cursor previously returned by {@link #encode()}.
+   *
+   * @param cursor the encoded cursor, or {@code null} for the first page
+   * @return the decoded cursor, or {@code null} if no cursor was given
+   * @throws IllegalArgumentException if the cursor is malformed
+   */
+  public static MessageCursor decode(String cursor) {
+    return Cursors.decode(cursor, MessageCursor::new);
+  }
+
+  /**
+   * Encodes the cursor as an opaque URL-safe string.
+   *
+   * @return the encoded cursor
+   */
+  public String encode() {
+    return Cursors.encode(sentAt, id);
+  }
+}
@@ -1,10 +1,14 @@
 package stud.ntnu.no.idatt2105.Findigo.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import stud.ntnu.no.idatt2105.Findigo.entities.Message;
 import stud.ntnu.no.idatt2105.Findigo.entities.User;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -40,4 +44,113 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
    * @return a list of messages received by {@code toUser}
    */
   List<Message> findMessagesByToUser(User toUser);
+
+  /**
+   * Finds the last message of every conversation a user takes part in, newest first.
+   * <p>
+   * Reads one row per conversation through the {@code conversation} table, and fetches
+   * the sender and receiver of each message in the same query.
+   * </p>
+   *
+   * @param userId the ID of the user
+   * @return the last message of each of the user's conversations
+   */
+  @Query("""
+      select m from Message m
+      join fetch m.fromUser
+      join fetch m.toUser
+      where m.id in (
+        select c.lastMessageId from Conversation c
+        where c.userLow.id = :userId or c.userHigh.id = :userId
+      )
+      order by m.sentAt desc, m.id desc
+      """)
+  List<Message> findLastMessagesOfConversations(Long userId);
+
+  /**
+   * Finds all messages exchanged between two users in either direction, newest first.
+   *
+   * @param userId1 the ID of the first user
+   * @param userId2 the ID of the second user
+   * @return the messages between the users, with sender and receiver fetched
+   */
+  @Query("""
+      select m from Message m
+      join fetch m.fromUser
+      join fetch m.toUser
+      where (m.fromUser.id = :userId1 and m.toUser.id = :userId2)
+         or (m.fromUser.id = :userId2 and m.toUser.id = :userId1)
+      order by m.sentAt desc, m.id desc
+      """)
+  List<Message> findAllBetween(Long userId1, Long userId2);
+
+  /**
+   * Finds the newest messages exchanged between two users in either direction.
+   *
+   * @param userId1 the ID of the first user
+   * @param userId2 the ID of the second user
+   * @param limit   the maximum number of messages
+   * @return the newest messages between the users, newest first
+   */
+  @Query("""
+      select m from Message m
+      join fetch m.fromUser
+      join fetch m.toUser
+      where (m.fromUser.id = :userId1 and m.toUser.id = :userId2)
+         or (m.fromUser.id = :userId2 and m.toUser.id = :userId1)
+      order by m.sentAt desc, m.id desc
+      """)
+  List<Message> findNewestBetween(Long userId1, Long userId2, Limit limit);
+
+  /**
+   * Finds the messages exchanged between two users that are older than a given message.
+   *
+   * @param userId1 the ID of the first user
+   * @param userId2 the ID of the second user
+   * @param sentAt  the send time of the message to seek past
+   * @param id      the ID of the message to seek past
+   * @param limit   the maximum number of messages
+   * @return the messages sent before the given message, newest first
+   */
+  @Query("""
+      select m from Message m
+      join fetch m.fromUser
+      join fetch m.toUser
+      where ((m.fromUser.id = :userId1 and m.toUser.id = :userId2)
+          or (m.fromUser.id = :userId2 and m.toUser.id = :userId1))
+        and (m.sentAt < :sentAt or (m.sentAt = :sentAt and m.id < :id))
+      order by m.sentAt desc, m.id desc
+      """)
+  List<Message> findBetweenBefore(Long userId1, Long userId2, Date sentAt, long id, Limit limit);
+
+  /**
+   * Finds one page of the message history between two users, newest first.
+   * <p>
+   * One more message than the page size is fetched, so the caller can tell whether there is a next page.
+   * </p>
+   *
+   * @param userId1 the ID of the first user
+   * @param userId2 the ID of the second user
+   * @param cursor  the position of the last message on the previous page, or {@code null} for the first page
+   * @param size    the number of messages per page
+   * @return up to {@code size + 1} messages following the cursor
+   */
+  default List<Message> findPageBetween(Long userId1, Long userId2, MessageCursor cursor, int size) {
+    Limit limit = Limit.of(size + 1);
+    if (cursor == null) {
+      return findNewestBetween(userId1, userId2, limit);
+    }
+    return findBetweenBefore(userId1, userId2, cursor.sentAt(), cursor.id(), limit);
+  }
+
+  /**
+   * Marks every unread message from one user to another as read in a single update.
+   *
+   * @param fromUserId the ID of the sender
+   * @param toUserId   the ID of the recipient who read the messages
+   * @return the number of messages marked as read
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("update Message m set m.isRead = true where m.fromUser.id = :fromUserId and m.toUser.id = :toUserId and m.isRead = false")
+  int markAllRead(Long fromUserId, Long toUserId);
 }
@@ -0,0 +1,35 @@
+package stud.ntnu.no.idatt2105.Findigo.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import stud.ntnu.no.idatt2105.Findigo.entities.UserCategoryAffinity;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for managing {@link UserCategoryAffinity} entities.
+ * <p>
+ * Affinities are unique per user and category, and looked up through the same index.
+ * </p>
+ */
+@Repository
+public interface UserCategoryAffinityRepository extends JpaRepository<UserCategoryAffinity, Long> {
+
+  /**
+   * Finds the affinity of a user for a category.
+   *
+   * @param userId the ID of the user
+   * @param categoryId the ID of the category
+   * @return an {@link Optional} containing the affinity if the user has viewed the category
+   */
+  Optional<UserCategoryAffinity> findByUserIdAndCategoryId(Long userId, Long categoryId);
+
+  /**
+   * Finds all category affinities of a user.
+   *
+   * @param userId the ID of the user
+   * @return the user's affinities, one per viewed category
+   */
+  List<UserCategoryAffinity> findByUserId(Long userId);
+}
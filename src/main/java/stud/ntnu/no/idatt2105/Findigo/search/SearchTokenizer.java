@@ -0,0 +1,50 @@
+package stud.ntnu.no.idatt2105.Findigo.search;
+
+import lombok.experimental.UtilityClass;
+import stud.ntnu.no.idatt2105.Findigo.entities.ListingSearchTerm;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class for splitting free text into normalized search terms.
+ * <p>
+ * The same tokenization is used both when indexing listings and when parsing search queries,
+ * so that query terms can be matched against the index by prefix.
+ * </p>
+ */
+@UtilityClass
+public class SearchTokenizer {
+
+  /**
+   * Terms shorter than this are too common to be useful and are not indexed.
+   */
+  public static final int MIN_TERM_LENGTH = 2;
+
+  private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+  /**
+   * Splits the given text into lowercased terms of letters and digits.
+   * <p>
+   * Terms shorter than {@link #MIN_TERM_LENGTH} are dropped, and terms longer than
+   * {@link ListingSearchTerm#MAX_TERM_LENGTH} are truncated. Duplicates are preserved
+   * so callers can use them for term frequency.
+   * </p>
+   *
+   * @param text the text to tokenize, may be {@code null}
+   * @return the list of terms in the order they appear
+   */
+  public static List<String> tokenize(String text) {
+    if (text == null || text.isBlank()) {
+      return List.of();
+    }
+    return Arrays.stream(SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+        .filter(term -> term.length() >= MIN_TERM_LENGTH)
+        .map(term -> term.length() > ListingSearchTerm.MAX_TERM_LENGTH
+            ? term.substring(0, ListingSearchTerm.MAX_TERM_LENGTH)
+            : term)
+        .toList();
+  }
+}
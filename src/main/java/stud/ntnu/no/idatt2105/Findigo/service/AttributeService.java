@@ -32,22 +32,21 @@ public class AttributeService {
 
   private final AttributeRepository attributeRepository;
   private final CategoryService categoryService;
+  private final CategoryCache categoryCache;
 
   private static final Logger logger = LogManager.getLogger(AttributeService.class);
   private final SecurityUtil securityUtil;
 
   /**
-   * Retrieves all attributes from the database and maps them to AttributeResponse DTOs.
+   * Retrieves all attributes as AttributeResponse DTOs from the {@link CategoryCache}.
    *
    * @return a list of {@link AttributeResponse} objects representing all available attributes
    */
   public List<AttributeResponse> getAllAttributes() {
     logger.info("Fetching all attributes");
-    List<Attribute> attributes = attributeRepository.findAll();
+    List<AttributeResponse> attributes = categoryCache.getAllAttributes();
     logger.info("Fetched {} attributes", attributes.size());
-    return attributes.stream()
-            .map(AttributeMapper::toDto)
-            .toList();
+    return attributes;
   }
 
   /**
@@ -77,6 +76,7 @@ public class AttributeService {
     Category category = categoryService.getCategoryById(request.getCategoryId());
     Attribute attribute = AttributeMapper.toEntity(request, category);
     Attribute savedAttribute = attributeRepository.save(attribute);
+    categoryCache.invalidate();
 
     logger.info("Attribute created with ID {}", savedAttribute.getId());
     return AttributeMapper.toDto(savedAttribute);
@@ -104,6 +104,7 @@ public class AttributeService {
     attribute.setCategory(categoryService.getCategoryById(request.getCategoryId()));
 
     attributeRepository.save(attribute);
+    categoryCache.invalidate();
     logger.info("Attribute with ID {} edited successfully", attributeId);
   }
 
@@ -119,6 +120,7 @@ public class AttributeService {
       throw new AppEntityNotFoundException(CustomErrorMessage.ATTRIBUTE_NOT_FOUND);
     }
     attributeRepository.deleteById(attributeId);
+    categoryCache.invalidate();
     logger.info("Attribute with ID {} deleted successfully", attributeId);
   }
 }
@@ -0,0 +1,245 @@
+package stud.ntnu.no.idatt2105.Findigo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service writing browse history in the background.
+ * <p>
+ * Views are added to a bounded in-memory queue and returned from immediately. A single
+ * background thread drains the queue at a fixed interval, inserting the browse history
+ * in JDBC batches and updating the category affinities of the viewing users. When the
+ * queue is full, the configured {@link OverflowPolicy} decides what happens to new views.
+ * Views still queued on shutdown are written before the application stops.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+public class BrowseHistoryWriter {
+
+  private static final Logger logger = LogManager.getLogger(BrowseHistoryWriter.class);
+
+  private static final String INSERT_BROWSE_HISTORY_SQL =
+      "insert into browse_history (user_id, listing_id, created_at) values (?, ?, ?)";
+
+  /**
+   * What to do with a view when the queue is full.
+   */
+  public enum OverflowPolicy {
+    /**
+     * Discard the new view.
+     */
+    DROP_NEWEST,
+    /**
+     * Discard the oldest queued view to make room for the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * Write the new view synchronously on the calling thread.
+     */
+    CALLER_RUNS
+  }
+
+  /**
+   * The maximum number of views waiting to be written.
+   */
+  @Value("${browse-history.queue-capacity:10000}")
+  private int queueCapacity;
+
+  /**
+   * The time between each flush of the queue, in milliseconds.
+   */
+  @Value("${browse-history.flush-interval-ms:1000}")
+  private long flushIntervalMs;
+
+  /**
+   * The maximum number of views written in one JDBC batch.
+   */
+  @Value("${browse-history.batch-size:500}")
+  private int batchSize;
+
+  /**
+   * What to do with a view when the queue is full.
+   */
+  @Value("${browse-history.overflow-policy:DROP_NEWEST}")
+  private OverflowPolicy overflowPolicy;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final CategoryAffinityService categoryAffinityService;
+
+  private final AtomicLong droppedViews = new AtomicLong();
+  private BlockingQueue<BrowseView> queue;
+  private ScheduledExecutorService flusher;
+
+  /**
+   * Creates the queue and starts the background flusher.
+   */
+  @PostConstruct
+  void start() {
+    queue = new ArrayBlockingQueue<>(queueCapacity);
+    flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "browse-history-writer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    logger.info("Browse history writer started with capacity {}, flush interval {} ms and overflow policy {}",
+        queueCapacity, flushIntervalMs, overflowPolicy);
+  }
+
+  /**
+   * Queues a view of a listing to be written to the browse history.
+   *
+   * @param userId     the ID of the viewing user
+   * @param listingId  the ID of the viewed listing
+   * @param categoryId the ID of the category of the viewed listing
+   */
+  public void record(Long userId, Long listingId, Long categoryId) {
+    BrowseView view = new BrowseView(userId, listingId, categoryId, new Date());
+    if (queue.offer(view)) {
+      return;
+    }
+
+    switch (overflowPolicy) {
+      case DROP_NEWEST -> dropped(view);
+      case DROP_OLDEST -> {
+        BrowseView oldest = queue.poll();
+        if (oldest != null) {
+          dropped(oldest);
+        }
+        if (!queue.offer(view)) {
+          dropped(view);
+        }
+      }
+      case CALLER_RUNS -> write(List.of(view));
+    }
+  }
+
+  /**
+   * Writes every queued view.
+   * <p>
+   * Called by the background flusher, and may be called directly to make queued views visible immediately.
+   * </p>
+   */
+  public synchronized void flush() {
+    List<BrowseView> batch = new ArrayList<>(batchSize);
+    while (queue.drainTo(batch, batchSize) > 0) {
+      write(batch);
+      batch.clear();
+    }
+
+    long dropped = droppedViews.getAndSet(0);
+    if (dropped > 0) {
+      logger.warn("Dropped {} browse history views since the last flush because the queue was full", dropped);
+    }
+  }
+
+  /**
+   * Stops the background flusher and writes the views still in the queue.
+   */
+  @PreDestroy
+  void stop() throws InterruptedException {
+    flusher.shutdown();
+    if (!flusher.awaitTermination(flushIntervalMs * 2, TimeUnit.MILLISECONDS)) {
+      logger.warn("Browse history writer did not stop in time");
+    }
+    flush();
+    logger.info("Browse history writer stopped");
+  }
+
+  /**
+   * Flushes the queue from the background thread, logging instead of propagating failures
+   * so that later flushes keep running.
+   */
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      logger.error("Failed to flush browse history", e);
+    }
+  }
+
+  /**
+   * Writes a batch of views to the browse history and updates the category affinities.
+   * <p>
+   * The batch is inserted in one transaction. If it is rejected, for instance because a listing was
+   * deleted after it was viewed, the whole batch is rolled back and the views are written one by one,
+   * skipping the rejected ones, so no view is written twice. A failed affinity update is logged and
+   * does not undo the written browse history.
+   * </p>
+   * <p>
+   * Synchronized with {@link #flush()}, so views written on the calling thread by
+   * {@link OverflowPolicy#CALLER_RUNS} never interleave with a flush.
+   * </p>
+   *
+   * @param views the views to write
+   */
+  private synchronized void write(List<BrowseView> views) {
+    List<BrowseView> written = views;
+    try {
+      transactionTemplate.executeWithoutResult(status ->
+          jdbcTemplate.batchUpdate(INSERT_BROWSE_HISTORY_SQL, views.stream().map(BrowseView::toRow).toList()));
+    } catch (DataAccessException e) {
+      logger.warn("Browse history batch of {} views rejected, writing views individually", views.size());
+      written = new ArrayList<>();
+      for (BrowseView view : views) {
+        try {
+          jdbcTemplate.update(INSERT_BROWSE_HISTORY_SQL, view.toRow());
+          written.add(view);
+        } catch (DataAccessException rejected) {
+          logger.debug("Skipping browse history view of listing ID {} by user ID {}", view.listingId(), view.userId());
+        }
+      }
+    }
+
+    try {
+      categoryAffinityService.recordViews(written.stream().map(BrowseView::toCategoryView).toList());
+    } catch (RuntimeException e) {
+      logger.warn("Failed to update category affinities for {} browse history views", written.size(), e);
+    }
+    logger.debug("Wrote {} browse history views", written.size());
+  }
+
+  /**
+   * Counts a view discarded because the queue was full.
+   *
+   * @param view the discarded view
+   */
+  private void dropped(BrowseView view) {
+    droppedViews.incrementAndGet();
+    logger.debug("Browse history queue full, dropping view of listing ID {}", view.listingId());
+  }
+
+  /**
+   * A view of a listing waiting to be written.
+   */
+  private record BrowseView(Long userId, Long listingId, Long categoryId, Date viewedAt) {
+
+    private Object[] toRow() {
+      return new Object[]{userId, listingId, new Timestamp(viewedAt.getTime())};
+    }
+
+    private CategoryAffinityService.CategoryView toCategoryView() {
+      return new CategoryAffinityService.CategoryView(userId, categoryId, viewedAt);
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package stud.ntnu.no.idatt2105.Findigo.service;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import stud.ntnu.no.idatt2105.Findigo.entities.UserCategoryAffinity;
+import stud.ntnu.no.idatt2105.Findigo.repository.BrowseHistoryRepository;
+import stud.ntnu.no.idatt2105.Findigo.repository.CategoryRepository;
+import stud.ntnu.no.idatt2105.Findigo.repository.UserCategoryAffinityRepository;
+import stud.ntnu.no.idatt2105.Findigo.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service maintaining each user's affinity for the categories they browse.
+ * <p>
+ * Every viewed listing adds one to the user's score for its category, and scores halve
+ * every half-life. Recommendations read the affinities of a user in a single indexed
+ * lookup instead of aggregating their browse history on every request.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+public class CategoryAffinityService {
+
+  private static final Logger logger = LogManager.getLogger(CategoryAffinityService.class);
+
+  /**
+   * Decayed scores below this value no longer count as an interest in the category.
+   */
+  public static final double MIN_SCORE = 0.05;
+
+  /**
+   * The number of days it takes for an affinity score to halve.
+   */
+  @Value("${recommendation.affinity.half-life-days:3}")
+  private double halfLifeDays;
+  private final UserCategoryAffinityRepository affinityRepository;
+  private final BrowseHistoryRepository browseHistoryRepository;
+  private final UserRepository userRepository;
+  private final CategoryRepository categoryRepository;
+
+  /**
+   * Records that users viewed listings in the given categories.
+   * <p>
+   * Each affinity is read and written once per call, however many views it receives.
+   * Views older than the stored score are decayed to the time of the score instead,
+   * so views may be recorded out of order.
+   * </p>
+   *
+   * @param views the views to record
+   */
+  @Transactional
+  public void recordViews(List<CategoryView> views) {
+    Map<CategoryView.Key, UserCategoryAffinity> affinities = new HashMap<>();
+
+    for (CategoryView view : views) {
+      UserCategoryAffinity affinity = affinities.computeIfAbsent(view.key(), key ->
+          affinityRepository.findByUserIdAndCategoryId(key.userId(), key.categoryId())
+              .orElseGet(() -> new UserCategoryAffinity()
+                  .setUser(userRepository.getReferenceById(key.userId()))
+                  .setCategory(categoryRepository.getReferenceById(key.categoryId()))
+                  .setUpdatedAt(view.viewedAt())));
+
+      if (view.viewedAt().before(affinity.getUpdatedAt())) {
+        affinity.setScore(affinity.getScore() + decay(1, view.viewedAt(), affinity.getUpdatedAt()));
+      } else {
+        affinity.setScore(decay(affinity.getScore(), affinity.getUpdatedAt(), view.viewedAt()) + 1)
+            .setUpdatedAt(view.viewedAt());
+      }
+    }
+    affinityRepository.saveAll(affinities.values());
+  }
+
+  /**
+   * Retrieves the IDs of the categories a user is interested in, most interesting first.
+   *
+   * @param userId the ID of the user
+   * @return the category IDs ordered by decayed affinity score, empty if the user has no recent views
+   */
+  @Transactional
+  public List<Long> getRankedCategoryIds(Long userId) {
+    Date now = new Date();
+
+    return affinityRepository.findByUserId(userId).stream()
+        .map(affinity -> new RankedCategory(
+            affinity.getCategory().getId(), decay(affinity.getScore(), affinity.getUpdatedAt(), now)))
+        .filter(ranked -> ranked.score() >= MIN_SCORE)
+        .sorted(Comparator.comparingDouble(RankedCategory::score).reversed())
+        .map(RankedCategory::categoryId)
+        .toList();
+  }
+
+  /**
+   * Builds the affinities from the existing browse history on startup if there are none,
+   * so users keep their recommendations when the affinity table is introduced.
+   * <p>
+   * Each user and category is approximated by its number of views, decayed from the latest view.
+   * </p>
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional
+  public void rebuildIfEmpty() {
+    if (affinityRepository.count() > 0) {
+      return;
+    }
+
+    Date now = new Date();
+    List<UserCategoryAffinity> affinities = new ArrayList<>();
+    for (Object[] row : browseHistoryRepository.countViewsByUserAndCategory()) {
+      Date lastViewedAt = (Date) row[3];
+      double score = decay(((Number) row[2]).doubleValue(), lastViewedAt, now);
+      if (score >= MIN_SCORE) {
+        affinities.add(new UserCategoryAffinity()
+            .setUser(userRepository.getReferenceById((Long) row[0]))
+            .setCategory(categoryRepository.getReferenceById((Long) row[1]))
+            .setScore(score)
+            .setUpdatedAt(now));
+      }
+    }
+    affinityRepository.saveAll(affinities);
+    logger.info("Built {} category affinities from browse history", affinities.size());
+  }
+
+  /**
+   * Decays a score from one point in time to a later one.
+   *
+   * @param score the score at {@code from}
+   * @param from  the time of the score
+   * @param to    the time to decay the score to
+   * @return the score at {@code to}
+   */
+  private double decay(double score, Date from, Date to) {
+    double elapsedDays = (double) (to.getTime() - from.getTime()) / TimeUnit.DAYS.toMillis(1);
+    return score * Math.pow(0.5, elapsedDays / halfLifeDays);
+  }
+
+  /**
+   * A view of a listing in a category by a user.
+   *
+   * @param userId     the ID of the user
+   * @param categoryId the ID of the category of the viewed listing
+   * @param viewedAt   the time of the view
+   */
+  public record CategoryView(Long userId, Long categoryId, Date viewedAt) {
+
+    private Key key() {
+      return new Key(userId, categoryId);
+    }
+
+    private record Key(Long userId, Long categoryId) {
+    }
+  }
+
+  /**
+   * A category with the decayed affinity score of a user.
+   */
+  private record RankedCategory(Long categoryId, double score) {
+  }
+}
@@ -0,0 +1,209 @@
+package stud.ntnu.no.idatt2105.Findigo.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import stud.ntnu.no.idatt2105.Findigo.dtos.attribute.AttributeResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.category.CategoryResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.mappers.CategoryMapper;
+import stud.ntnu.no.idatt2105.Findigo.repository.CategoryRepository;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-process cache of the category and attribute metadata.
+ * <p>
+ * All categories and their attributes are loaded together into one read-only snapshot of DTOs,
+ * so serializing listings never reads category data from the database. Categories and attributes
+ * only change through {@link CategoryService} and {@link AttributeService}, which call
+ * {@link #invalidate()} after every write. The snapshot also expires after a configurable time
+ * to pick up changes made by other application instances.
+ * </p>
+ * <p>
+ * A lookup of an unknown ID reloads the snapshot, in case the category or attribute was created by
+ * another instance, but at most once per {@code category.cache.miss-reload-interval-ms}. Requests
+ * for nonexistent IDs can therefore not make every call reload the tables.
+ * </p>
+ * <p>
+ * The returned DTOs are immutable and shared between callers.
+ * </p>
+ */
+@Service
+public class CategoryCache {
+
+  private static final Logger logger = LogManager.getLogger(CategoryCache.class);
+
+  private static final String CATALOG_KEY = "categories";
+
+  private final CategoryRepository categoryRepository;
+  private final LoadingCache<String, Catalog> cache;
+  private final long missReloadIntervalNanos;
+
+  /**
+   * Creates the cache.
+   *
+   * @param categoryRepository the repository to load the categories from
+   * @param ttlSeconds                the number of seconds a loaded snapshot is used before it is reloaded
+   * @param missReloadIntervalMillis  the minimum age of a snapshot before a lookup of an unknown ID reloads it
+   * @param meterRegistry             the registry the hit ratio of the cache is published to
+   */
+  public CategoryCache(CategoryRepository categoryRepository,
+                       @Value("${category.cache.ttl-seconds:600}") long ttlSeconds,
+                       @Value("${category.cache.miss-reload-interval-ms:1000}") long missReloadIntervalMillis,
+                       MeterRegistry meterRegistry) {
+    this.categoryRepository = categoryRepository;
+    this.missReloadIntervalNanos = Duration.ofMillis(missReloadIntervalMillis).toNanos();
+    this.cache = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+        .recordStats()
+        .build(key -> load());
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "categories");
+  }
+
+  /**
+   * Retrieves all categories.
+   *
+   * @return an unmodifiable list of every {@link CategoryResponse}
+   */
+  public List<CategoryResponse> getAllCategories() {
+    return catalog().categories();
+  }
+
+  /**
+   * Retrieves a category by its ID.
+   * <p>
+   * A category missing from the snapshot causes a reload, in case it was created since the snapshot was loaded,
+   * unless the snapshot is newer than the miss reload interval.
+   * </p>
+   *
+   * @param categoryId the ID of the category
+   * @return the {@link CategoryResponse}, or empty if the category does not exist
+   */
+  public Optional<CategoryResponse> getCategory(long categoryId) {
+    Catalog catalog = catalog();
+    CategoryResponse category = catalog.categoriesById().get(categoryId);
+    if (category == null) {
+      category = reloadAfterMiss(catalog).categoriesById().get(categoryId);
+    }
+    return Optional.ofNullable(category);
+  }
+
+  /**
+   * Retrieves all attributes of all categories.
+   *
+   * @return an unmodifiable list of every {@link AttributeResponse}
+   */
+  public List<AttributeResponse> getAllAttributes() {
+    return catalog().attributes();
+  }
+
+  /**
+   * Retrieves an attribute by its ID.
+   * <p>
+   * An attribute missing from the snapshot causes a reload, in case it was created since the snapshot was loaded,
+   * unless the snapshot is newer than the miss reload interval.
+   * </p>
+   *
+   * @param attributeId the ID of the attribute
+   * @return the {@link AttributeResponse}, or empty if the attribute does not exist
+   */
+  public Optional<AttributeResponse> getAttribute(long attributeId) {
+    Catalog catalog = catalog();
+    AttributeResponse attribute = catalog.attributesById().get(attributeId);
+    if (attribute == null) {
+      attribute = reloadAfterMiss(catalog).attributesById().get(attributeId);
+    }
+    return Optional.ofNullable(attribute);
+  }
+
+  /**
+   * Discards the snapshot so the next read loads the current categories.
+   * <p>
+   * When called inside a transaction the snapshot is discarded again after the commit,
+   * so a snapshot loaded by a concurrent read before the commit is not kept.
+   * </p>
+   */
+  public void invalidate() {
+    cache.invalidateAll();
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          cache.invalidateAll();
+        }
+      });
+    }
+    logger.debug("Category cache invalidated");
+  }
+
+  /**
+   * Retrieves the current snapshot, loading it if needed.
+   *
+   * @return the current {@link Catalog}
+   */
+  private Catalog catalog() {
+    return cache.get(CATALOG_KEY);
+  }
+
+  /**
+   * Reloads the snapshot after a lookup of an unknown ID, unless it was loaded within the miss reload interval.
+   * <p>
+   * The snapshot is only discarded if it is still the one the lookup missed in, so concurrent misses
+   * reload it once.
+   * </p>
+   *
+   * @param stale the snapshot the lookup missed in
+   * @return the snapshot to repeat the lookup in
+   */
+  private Catalog reloadAfterMiss(Catalog stale) {
+    if (System.nanoTime() - stale.loadedAt() < missReloadIntervalNanos) {
+      return stale;
+    }
+    cache.asMap().remove(CATALOG_KEY, stale);
+    return catalog();
+  }
+
+  /**
+   * Loads all categories and their attributes from the database.
+   *
+   * @return a new {@link Catalog}
+   */
+  private Catalog load() {
+    List<CategoryResponse> categories = categoryRepository.findAll().stream()
+        .map(CategoryMapper::toDto)
+        .toList();
+    List<AttributeResponse> attributes = categories.stream()
+        .flatMap(category -> category.getAttributes().stream())
+        .toList();
+
+    Map<Long, CategoryResponse> categoriesById = new HashMap<>();
+    categories.forEach(category -> categoriesById.put(category.getId(), category));
+    Map<Long, AttributeResponse> attributesById = new HashMap<>();
+    attributes.forEach(attribute -> attributesById.put(attribute.getId(), attribute));
+
+    logger.info("Loaded {} categories with {} attributes into the category cache", categories.size(), attributes.size());
+    return new Catalog(categories, attributes, Map.copyOf(categoriesById), Map.copyOf(attributesById),
+        System.nanoTime());
+  }
+
+  /**
+   * A snapshot of all categories and attributes, with the {@link System#nanoTime()} it was loaded at.
+   */
+  private record Catalog(List<CategoryResponse> categories,
+                         List<AttributeResponse> attributes,
+                         Map<Long, CategoryResponse> categoriesById,
+                         Map<Long, AttributeResponse> attributesById,
+                         long loadedAt) {
+  }
+}
@@ -32,19 +32,17 @@ public class CategoryService {
   private static final Logger logger = LogManager.getLogger(CategoryService.class);
 
   private final CategoryRepository categoryRepository;
+  private final CategoryCache categoryCache;
   private final SecurityUtil securityUtil;
 
   /**
-   * Retrieves all categories from the database and maps them to CategoryResponse DTOs.
+   * Retrieves all categories as CategoryResponse DTOs from the {@link CategoryCache}.
    *
    * @return a list of {@link CategoryResponse} objects representing all available categories
    */
-  @Transactional
   public List<CategoryResponse> getAllCategories() {
     logger.info("Fetching all categories");
-    List<CategoryResponse> categories = categoryRepository.findAll().stream()
-            .map(CategoryMapper::toDto)
-            .toList();
+    List<CategoryResponse> categories = categoryCache.getAllCategories();
     logger.info("Fetched {} categories", categories.size());
     return categories;
   }
@@ -63,7 +61,7 @@ public class CategoryService {
   }
 
   /**
-   * Retrieves a specific category as a DTO by its ID.
+   * Retrieves a specific category as a DTO by its ID from the {@link CategoryCache}.
    *
    * @param categoryId the ID of the category to retrieve
    * @return the {@link CategoryResponse} DTO
@@ -71,10 +69,10 @@ public class CategoryService {
    */
   public CategoryResponse getCategoryDtoById(long categoryId) {
     logger.info("Fetching category DTO with ID {}", categoryId);
-    Category category = categoryRepository.findById(categoryId)
+    CategoryResponse category = categoryCache.getCategory(categoryId)
             .orElseThrow(() -> new AppEntityNotFoundException(CustomErrorMessage.CATEGORY_NOT_FOUND));
     logger.info("Category DTO with ID {} fetched successfully", categoryId);
-    return CategoryMapper.toDto(category);
+    return category;
   }
 
   /**
@@ -92,6 +90,7 @@ public class CategoryService {
 
     Category category = CategoryMapper.toEntity(request);
     categoryRepository.save(category);
+    categoryCache.invalidate();
     logger.info("Category with name '{}' created successfully", request.getName());
     return CategoryMapper.toDto(category);
   }
@@ -114,6 +113,7 @@ public class CategoryService {
 
     category.setCategoryName(request.getName());
     categoryRepository.save(category);
+    categoryCache.invalidate();
     logger.info("Category with ID {} edited successfully", categoryId);
   }
 
@@ -132,6 +132,7 @@ public class CategoryService {
     Category category = categoryRepository.findById(categoryId)
             .orElseThrow(() -> new AppEntityNotFoundException(CustomErrorMessage.CATEGORY_NOT_FOUND));
     categoryRepository.delete(category);
+    categoryCache.invalidate();
     logger.info("Category with ID {} deleted successfully", categoryId);
   }
 
@@ -139,6 +140,7 @@ public class CategoryService {
   public void clearAll() {
     logger.info("Clearing all categories");
     categoryRepository.deleteAll();
+    categoryCache.invalidate();
     logger.info("All categories cleared successfully");
   }
 }
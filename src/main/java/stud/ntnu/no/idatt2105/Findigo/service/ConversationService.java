@@ -0,0 +1,140 @@
+package stud.ntnu.no.idatt2105.Findigo.service;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import stud.ntnu.no.idatt2105.Findigo.entities.Conversation;
+import stud.ntnu.no.idatt2105.Findigo.entities.Message;
+import stud.ntnu.no.idatt2105.Findigo.repository.ConversationRepository;
+import stud.ntnu.no.idatt2105.Findigo.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Service maintaining one {@link Conversation} per pair of users who have exchanged messages.
+ * <p>
+ * {@link MessageService} records every sent message here, which moves the conversation's last
+ * message and activity time and counts the message as unread for the recipient. The inbox of a
+ * user is then read from their conversations instead of from all their messages.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+public class ConversationService {
+
+  private static final Logger logger = LogManager.getLogger(ConversationService.class);
+
+  private final ConversationRepository conversationRepository;
+  private final UserRepository userRepository;
+
+  /**
+   * Records a sent message in the conversation between its sender and recipient,
+   * creating the conversation for the first message.
+   * <p>
+   * Messages a user sends to themselves are not part of any conversation.
+   * </p>
+   * <p>
+   * The conversation row is locked while it is updated. A missing row cannot be locked, so it is
+   * first inserted without unread messages in the same transaction, with a statement that skips
+   * the insert if a concurrent first message created the conversation already.
+   * </p>
+   *
+   * @param message the saved message
+   * @return the number of messages in the conversation the recipient has not read
+   */
+  @Transactional
+  public int recordMessage(Message message) {
+    Long fromUserId = message.getFromUser().getId();
+    Long toUserId = message.getToUser().getId();
+    if (fromUserId.equals(toUserId)) {
+      return 0;
+    }
+
+    Long userLowId = Math.min(fromUserId, toUserId);
+    Long userHighId = Math.max(fromUserId, toUserId);
+    Date sentAt = message.getSentAt() != null ? message.getSentAt() : new Date();
+    if (conversationRepository.readByUserLowIdAndUserHighId(userLowId, userHighId).isEmpty()
+        && conversationRepository.insertIfAbsent(userRepository.getReferenceById(userLowId),
+            userRepository.getReferenceById(userHighId), message.getId(), sentAt) == 0) {
+      logger.debug("Conversation between user IDs {} and {} was created concurrently", userLowId, userHighId);
+    }
+    Conversation conversation = conversationRepository.findByUserLowIdAndUserHighId(userLowId, userHighId)
+        .orElseThrow(() -> new IllegalStateException(
+            "Conversation between user IDs " + userLowId + " and " + userHighId + " was not created"));
+
+    conversation.setLastMessageId(message.getId())
+        .setLastActivityAt(sentAt);
+    if (toUserId.equals(userLowId)) {
+      conversation.setUnreadLow(conversation.getUnreadLow() + 1);
+    } else {
+      conversation.setUnreadHigh(conversation.getUnreadHigh() + 1);
+    }
+    conversationRepository.save(conversation);
+    return toUserId.equals(userLowId) ? conversation.getUnreadLow() : conversation.getUnreadHigh();
+  }
+
+  /**
+   * Marks every message in a conversation as read by one of its participants.
+   *
+   * @param userId      the ID of the participant who read the messages
+   * @param otherUserId the ID of the other participant
+   */
+  @Transactional
+  public void markRead(Long userId, Long otherUserId) {
+    conversationRepository.findByUserLowIdAndUserHighId(Math.min(userId, otherUserId), Math.max(userId, otherUserId))
+        .ifPresent(conversation -> {
+          if (userId.equals(conversation.getUserLow().getId())) {
+            conversation.setUnreadLow(0);
+          } else {
+            conversation.setUnreadHigh(0);
+          }
+        });
+  }
+
+  /**
+   * Retrieves the number of messages in a conversation one of its participants has not read.
+   *
+   * @param userId      the ID of the participant
+   * @param otherUserId the ID of the other participant
+   * @return the number of unread messages, or zero if the users have not exchanged messages
+   */
+  @Transactional
+  public int getUnreadCount(Long userId, Long otherUserId) {
+    return conversationRepository.readByUserLowIdAndUserHighId(Math.min(userId, otherUserId), Math.max(userId, otherUserId))
+        .map(conversation -> userId.equals(conversation.getUserLow().getId())
+            ? conversation.getUnreadLow()
+            : conversation.getUnreadHigh())
+        .orElse(0);
+  }
+
+  /**
+   * Builds the conversations from the existing messages on startup if there are none,
+   * so users keep their inbox when the conversation table is introduced.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional
+  public void rebuildIfEmpty() {
+    if (conversationRepository.count() > 0) {
+      return;
+    }
+
+    List<Conversation> conversations = new ArrayList<>();
+    for (Object[] row : conversationRepository.summarizeMessagesByParticipants()) {
+      conversations.add(new Conversation()
+          .setUserLow(userRepository.getReferenceById((Long) row[0]))
+          .setUserHigh(userRepository.getReferenceById((Long) row[1]))
+          .setLastMessageId((Long) row[2])
+          .setLastActivityAt((Date) row[3])
+          .setUnreadLow(((Number) row[4]).intValue())
+          .setUnreadHigh(((Number) row[5]).intValue()));
+    }
+    conversationRepository.saveAll(conversations);
+    logger.info("Built {} conversations from messages", conversations.size());
+  }
+}
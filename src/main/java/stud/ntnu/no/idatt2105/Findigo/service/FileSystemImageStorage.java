@@ -0,0 +1,142 @@
+package stud.ntnu.no.idatt2105.Findigo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+
+/**
+ * {@link ImageStorage} keeping images as files under a root directory on local disk.
+ * <p>
+ * This is the default storage. Keys are resolved as relative paths under the root, which defaults
+ * to the parent directory of {@code picturesPath}. Files are written to a temporary file next to
+ * their target and moved into place, so readers never see a partially written image.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "images.storage.type", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemImageStorage implements ImageStorage {
+
+  private final Path root;
+
+  /**
+   * Creates the storage from the application configuration.
+   *
+   * @param picturesPath the base path of listing images, used to place the storage if no root is set
+   * @param root         the root directory, or blank for the parent directory of {@code picturesPath}
+   */
+  @Autowired
+  public FileSystemImageStorage(@Value("${picturesPath}") String picturesPath,
+                                @Value("${images.storage.filesystem.root:}") String root) {
+    this(root.isBlank() ? Paths.get(picturesPath).toAbsolutePath().getParent() : Paths.get(root));
+  }
+
+  /**
+   * Creates a storage with the given root directory.
+   *
+   * @param root the directory keys are resolved under
+   */
+  public FileSystemImageStorage(Path root) {
+    this.root = root;
+  }
+
+  @Override
+  public void put(String key, Path source, String contentType) throws IOException {
+    Path target = resolve(key);
+    Files.createDirectories(target.getParent());
+    Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+    try {
+      Files.copy(source, tmp, StandardCopyOption.REPLACE_EXISTING);
+      try {
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  @Override
+  public Optional<StoredObject> stat(String key) throws IOException {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(resolve(key), BasicFileAttributes.class);
+      return Optional.of(new StoredObject(attributes.size(), attributes.lastModifiedTime().toInstant()));
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    }
+  }
+
+  @Override
+  public InputStream open(String key, long start, long end) throws IOException {
+    FileChannel file = FileChannel.open(resolve(key), StandardOpenOption.READ);
+    file.position(start);
+    InputStream in = Channels.newInputStream(file);
+    return new InputStream() {
+      private long remaining = end - start + 1;
+
+      @Override
+      public int read() throws IOException {
+        if (remaining <= 0) {
+          return -1;
+        }
+        int b = in.read();
+        if (b >= 0) {
+          remaining--;
+        }
+        return b;
+      }
+
+      @Override
+      public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (remaining <= 0) {
+          return -1;
+        }
+        int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+        if (read > 0) {
+          remaining -= read;
+        }
+        return read;
+      }
+
+      @Override
+      public void close() throws IOException {
+        in.close();
+      }
+    };
+  }
+
+  @Override
+  public void delete(String key) throws IOException {
+    Files.deleteIfExists(resolve(key));
+  }
+
+  @Override
+  public Optional<Path> localPath(String key) {
+    return Optional.of(resolve(key));
+  }
+
+  /**
+   * Resolves the file of a key.
+   *
+   * @param key the key of the object
+   * @return the path of the file under the root
+   */
+  private Path resolve(String key) {
+    return root.resolve(key);
+  }
+}
@@ -0,0 +1,447 @@
+package stud.ntnu.no.idatt2105.Findigo.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import stud.ntnu.no.idatt2105.Findigo.entities.ImageBlob;
+import stud.ntnu.no.idatt2105.Findigo.entities.StoredImage;
+import stud.ntnu.no.idatt2105.Findigo.repository.ImageBlobRepository;
+import stud.ntnu.no.idatt2105.Findigo.repository.ListingImageRepository;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Content-addressed store of image files.
+ * <p>
+ * Every image is stored once in the {@link ImageStorage}, under the hex-encoded SHA-256 hash of its
+ * content, in keys sharded by the first two bytes of the hash ({@code blobs/ab/cd/abcd...}). Uploading
+ * the same image again, to the same or another listing, reuses the stored image and its {@link ImageVariant}s.
+ * Since a stored image never changes, its hash can be used as a strong cache key.
+ * </p>
+ * <p>
+ * The references to a blob are the {@link stud.ntnu.no.idatt2105.Findigo.entities.ListingImageUrls}
+ * rows with its hash. A blob is deleted with its variants when it is released and no rows refer to it.
+ * Recording and releasing a blob lock the {@link ImageBlob} row of its hash in the database, so a blob
+ * is never deleted while a new reference to it is being saved, on any node sharing the storage. The
+ * row also records the sizes of the stored blob, which are copied to the image rows referring to it.
+ * Blobs are uploaded before the row is locked; the row counts deletions, so an upload that a
+ * concurrent deletion removed again is repeated instead of recorded.
+ * </p>
+ */
+@Component
+public class ImageBlobStore {
+
+  private static final Logger logger = LogManager.getLogger(ImageBlobStore.class);
+
+  private static final String HASH_ALGORITHM = "SHA-256";
+  private static final String KEY_PREFIX = "blobs/";
+
+  private final ListingImageRepository listingImageRepository;
+  private final ImageBlobRepository imageBlobRepository;
+  private final ImageVariantGenerator imageVariantGenerator;
+  private final ImageStorage imageStorage;
+  private final Path stagingDirectory;
+  private final TransactionTemplate transaction;
+  private final TransactionTemplate newTransaction;
+
+  /**
+   * Creates the store.
+   *
+   * @param listingImageRepository the repository of the image rows referring to blobs
+   * @param imageBlobRepository    the repository of the rows locking the blobs
+   * @param imageVariantGenerator  the generator of the variants of new blobs
+   * @param imageStorage           the storage holding the blobs
+   * @param transactionManager     the transaction manager the rows of the blobs are locked with
+   * @param stagingDirectory       the local directory images are hashed and scaled in before they are stored
+   */
+  public ImageBlobStore(ListingImageRepository listingImageRepository,
+                        ImageBlobRepository imageBlobRepository,
+                        ImageVariantGenerator imageVariantGenerator,
+                        ImageStorage imageStorage,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${images.blob-store.staging-dir:${java.io.tmpdir}/findigo-blob-staging}") String stagingDirectory) {
+    this.listingImageRepository = listingImageRepository;
+    this.imageBlobRepository = imageBlobRepository;
+    this.imageVariantGenerator = imageVariantGenerator;
+    this.imageStorage = imageStorage;
+    this.stagingDirectory = Paths.get(stagingDirectory);
+    this.transaction = new TransactionTemplate(transactionManager);
+    this.newTransaction = new TransactionTemplate(transactionManager);
+    this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  /**
+   * Stores an image, unless an image with the same content is already stored.
+   * <p>
+   * The content is hashed while it is written to a local staging file. New content gets its variants
+   * generated from the staging file, and is then streamed to the {@link ImageStorage} with them
+   * before any transaction is opened; duplicates are discarded. The row of the hash is then locked
+   * only to record the blob and to let the caller save its reference to it in {@code reference},
+   * which runs in that transaction, or in the caller's transaction if there is one. If saving the
+   * reference to new content fails, the new blob and its variants are deleted again unless other
+   * image rows refer to them.
+   * </p>
+   * <p>
+   * Blobs stored before their hash had a row are recognized in the storage, and their sizes recorded.
+   * </p>
+   *
+   * @param content     the content of the image
+   * @param contentType the media type of the image
+   * @param reference   saves the reference to the stored blob
+   * @return the stored {@link Blob}
+   * @throws IOException if the image could not be stored
+   */
+  public Blob store(InputStream content, String contentType, Consumer<Blob> reference) throws IOException {
+    Path staged = Files.createTempFile(Files.createDirectories(stagingDirectory), "blob-", ".tmp");
+    try {
+      MessageDigest digest = newDigest();
+      try (InputStream in = new DigestInputStream(content, digest)) {
+        Files.copy(in, staged, StandardCopyOption.REPLACE_EXISTING);
+      }
+      String hash = HexFormat.of().formatHex(digest.digest());
+      Optional<Dimension> dimensions = imageVariantGenerator.readDimensions(staged);
+
+      createIfAbsent(hash);
+      Upload upload = null;
+      while (true) {
+        ImageBlob current = imageBlobRepository.findById(hash)
+            .orElseThrow(() -> new IllegalStateException("Missing row of image blob " + hash));
+        if (current.getStored() == null && (upload == null || !Objects.equals(upload.deletions(), current.getDeletions()))) {
+          upload = upload(staged, hash, contentType, current.getDeletions(), upload != null);
+        }
+        Upload uploaded = upload;
+        Optional<Blob> blob;
+        try {
+          blob = transaction.execute(status -> record(hash, dimensions, uploaded, reference));
+        } catch (RuntimeException e) {
+          if (uploaded != null && uploaded.created()) {
+            deleteIfUnreferenced(hash);
+          }
+          throw e;
+        }
+        if (blob.isPresent()) {
+          logger.debug("{} image blob {}", blob.get().created() ? "Stored new" : "Reused existing", hash);
+          return blob.get();
+        }
+        logger.debug("Image blob {} was deleted while it was uploaded, uploading it again", hash);
+      }
+    } finally {
+      imageVariantGenerator.delete(staged);
+      Files.deleteIfExists(staged);
+    }
+  }
+
+  /**
+   * Records an uploaded blob unless it is recorded already, and saves the reference to it.
+   * Called in the transaction locking the row of the hash.
+   *
+   * @param hash       the hash of the blob
+   * @param dimensions the dimensions of the image, if its format is supported
+   * @param upload     the upload of the blob, or {@code null} if it was recorded when the upload was skipped
+   * @param reference  saves the reference to the stored blob
+   * @return the stored {@link Blob}, or an empty {@link Optional} if the blob is not recorded and
+   *         the upload is missing or was deleted since
+   */
+  private Optional<Blob> record(String hash, Optional<Dimension> dimensions, Upload upload, Consumer<Blob> reference) {
+    ImageBlob row = imageBlobRepository.findByContentHash(hash)
+        .orElseThrow(() -> new IllegalStateException("Missing row of image blob " + hash));
+    boolean created = false;
+    if (row.getStored() == null) {
+      if (upload == null || !Objects.equals(upload.deletions(), row.getDeletions())) {
+        return Optional.empty();
+      }
+      created = upload.created();
+      row.setStored(upload.stored());
+    }
+    Blob blob = new Blob(hash, key(hash), created, dimensions.map(size -> size.width).orElse(null),
+        dimensions.map(size -> size.height).orElse(null), copy(row.getStored()));
+    reference.accept(blob);
+    return Optional.of(blob);
+  }
+
+  /**
+   * Looks up the sizes of a stored blob, for image rows saved before sizes were recorded.
+   * <p>
+   * The sizes recorded on the row of the hash are used, and the storage is only asked for blobs
+   * stored before their hash had a row.
+   * </p>
+   *
+   * @param hash the hash of the blob
+   * @return the sizes of the blob, or an empty {@link Optional} if it is not stored
+   * @throws IOException if the storage could not be reached
+   */
+  public Optional<StoredImage> stored(String hash) throws IOException {
+    Optional<StoredImage> recorded = imageBlobRepository.findById(hash).map(ImageBlob::getStored).map(ImageBlobStore::copy);
+    return recorded.isPresent() ? recorded : stat(imageStorage, key(hash));
+  }
+
+  /**
+   * Reads the sizes of an image and its variants from a storage.
+   * <p>
+   * The variants count as stored only if all of them are found.
+   * </p>
+   *
+   * @param storage the storage holding the image
+   * @param key     the key of the image
+   * @return the sizes of the image, with its modification time as the time it was stored, or an
+   *         empty {@link Optional} if it is not stored
+   * @throws IOException if the storage could not be reached
+   */
+  public static Optional<StoredImage> stat(ImageStorage storage, String key) throws IOException {
+    Optional<ImageStorage.StoredObject> original = storage.stat(key);
+    if (original.isEmpty()) {
+      return Optional.empty();
+    }
+    StoredImage stored = new StoredImage()
+        .setSize(original.get().size())
+        .setStoredAt(Date.from(original.get().lastModified()));
+    Optional<ImageStorage.StoredObject> thumbnail = storage.stat(ImageVariant.THUMBNAIL.resolve(key));
+    Optional<ImageStorage.StoredObject> card = storage.stat(ImageVariant.CARD.resolve(key));
+    Optional<ImageStorage.StoredObject> full = storage.stat(ImageVariant.FULL.resolve(key));
+    if (thumbnail.isPresent() && card.isPresent() && full.isPresent()) {
+      stored.setThumbnailSize(thumbnail.get().size())
+          .setCardSize(card.get().size())
+          .setFullSize(full.get().size());
+    }
+    return Optional.of(stored);
+  }
+
+  /**
+   * Returns the {@link ImageStorage} the blobs are stored in.
+   *
+   * @return the storage of the blobs
+   */
+  public ImageStorage storage() {
+    return imageStorage;
+  }
+
+  /**
+   * Resolves the storage key of the blob with the given hash.
+   *
+   * @param hash the hex-encoded SHA-256 hash of the content
+   * @return the key the blob is stored under
+   */
+  public String key(String hash) {
+    return KEY_PREFIX + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+  }
+
+  /**
+   * Checks whether the URL of an image row refers to a blob in this store.
+   *
+   * @param imageUrl the URL of the image
+   * @param hash     the content hash of the image
+   * @return {@code true} if {@code imageUrl} is the key, or a local path ending with the key, of the blob with the given hash
+   */
+  public boolean isBlob(String imageUrl, String hash) {
+    return hash != null && (imageUrl.equals(key(hash)) || Paths.get(imageUrl).endsWith(key(hash)));
+  }
+
+  /**
+   * Releases a reference to a blob, deleting the blob and its variants if no image rows refer to it any more.
+   * <p>
+   * When called inside a transaction the blob is released after the commit, so a rolled-back
+   * deletion of an image row never deletes its blob.
+   * </p>
+   *
+   * @param hash the hash of the blob
+   */
+  public void release(String hash) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          deleteIfUnreferenced(hash);
+        }
+      });
+    } else {
+      deleteIfUnreferenced(hash);
+    }
+  }
+
+  /**
+   * Deletes a blob and its variants if no image rows refer to it, logging instead of propagating failures.
+   *
+   * @param hash the hash of the blob
+   */
+  private void deleteIfUnreferenced(String hash) {
+    try {
+      createIfAbsent(hash);
+      newTransaction.executeWithoutResult(status -> {
+        ImageBlob row = imageBlobRepository.findByContentHash(hash)
+            .orElseThrow(() -> new IllegalStateException("Missing row of image blob " + hash));
+        if (listingImageRepository.countByContentHash(hash) > 0) {
+          return;
+        }
+        deleteBlob(hash);
+        row.setStored(null)
+            .setDeletions(row.getDeletions() == null ? 1 : row.getDeletions() + 1);
+      });
+    } catch (RuntimeException e) {
+      logger.warn("Failed to release image blob {}", hash, e);
+    }
+  }
+
+  /**
+   * Creates the row of a hash unless it exists, in its own transaction; a row created concurrently
+   * by another upload or node is used instead.
+   *
+   * @param hash the hash of the blob
+   */
+  private void createIfAbsent(String hash) {
+    if (imageBlobRepository.existsById(hash)) {
+      return;
+    }
+    try {
+      newTransaction.executeWithoutResult(status -> imageBlobRepository.saveAndFlush(new ImageBlob().setContentHash(hash)));
+    } catch (DataIntegrityViolationException e) {
+      logger.debug("Row of image blob {} was created concurrently", hash);
+    }
+  }
+
+  /**
+   * Uploads a blob that is not recorded, with its variants, from the staging file. Called without a
+   * transaction, so no rows are locked while the storage is written to.
+   * <p>
+   * A blob stored before its hash had a row is found in the storage and not uploaded again, unless
+   * a previous upload was deleted meanwhile, since what is left in the storage is then incomplete.
+   * If the upload fails, what was uploaded is deleted again unless image rows refer to it.
+   * </p>
+   *
+   * @param staged      the staging file of the blob
+   * @param hash        the hash of the blob
+   * @param contentType the media type of the blob
+   * @param deletions   the number of deletions of the blob when the upload started
+   * @param retry       {@code true} if a previous upload was deleted meanwhile
+   * @return the upload of the blob
+   * @throws IOException if the blob could not be uploaded
+   */
+  private Upload upload(Path staged, String hash, String contentType, Long deletions, boolean retry) throws IOException {
+    String key = key(hash);
+    Optional<StoredImage> existing = retry ? Optional.empty() : stat(imageStorage, key);
+    if (existing.isPresent()) {
+      return new Upload(existing.get(), false, deletions);
+    }
+    try {
+      StoredImage stored = storeVariants(staged, key);
+      imageStorage.put(key, staged, contentType);
+      return new Upload(stored.setSize(Files.size(staged)).setStoredAt(new Date()), true, deletions);
+    } catch (IOException e) {
+      deleteIfUnreferenced(hash);
+      throw e;
+    }
+  }
+
+  /**
+   * Deletes a blob and its variants, logging instead of propagating failures. Called with the row of the hash locked.
+   *
+   * @param hash the hash of the blob
+   */
+  private void deleteBlob(String hash) {
+    String key = key(hash);
+    try {
+      for (ImageVariant variant : ImageVariant.values()) {
+        imageStorage.delete(variant.resolve(key));
+      }
+      logger.debug("Deleted unreferenced image blob {}", hash);
+    } catch (IOException e) {
+      logger.warn("Failed to delete unreferenced image blob {}", hash, e);
+    }
+  }
+
+  /**
+   * Generates the variants of a new blob from its staging file and stores them, logging instead of
+   * propagating failures to generate them, since the blob can still be served as the original.
+   *
+   * @param staged the staging file of the blob
+   * @param key    the key of the blob
+   * @return the sizes of the stored variants, which are {@code null} if none were generated
+   * @throws IOException if a generated variant could not be stored
+   */
+  private StoredImage storeVariants(Path staged, String key) throws IOException {
+    StoredImage stored = new StoredImage();
+    try {
+      if (!imageVariantGenerator.generate(staged)) {
+        return stored;
+      }
+    } catch (IOException e) {
+      logger.warn("Failed to generate variants of image blob {}, serving the original instead", key, e);
+      return stored;
+    }
+    for (ImageVariant variant : ImageVariant.values()) {
+      if (variant != ImageVariant.ORIGINAL) {
+        imageStorage.put(variant.resolve(key), variant.resolve(staged), ImageVariant.CONTENT_TYPE);
+      }
+    }
+    return stored.setThumbnailSize(Files.size(ImageVariant.THUMBNAIL.resolve(staged)))
+        .setCardSize(Files.size(ImageVariant.CARD.resolve(staged)))
+        .setFullSize(Files.size(ImageVariant.FULL.resolve(staged)));
+  }
+
+  /**
+   * Copies the sizes of a blob, for an image row to embed without sharing them with the row of the blob.
+   *
+   * @param stored the sizes of the blob
+   * @return a copy of the sizes
+   */
+  private static StoredImage copy(StoredImage stored) {
+    return new StoredImage(stored.getSize(), stored.getThumbnailSize(), stored.getCardSize(), stored.getFullSize(),
+        stored.getStoredAt());
+  }
+
+  /**
+   * Creates a SHA-256 digest.
+   *
+   * @return a new {@link MessageDigest}
+   */
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(HASH_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+    }
+  }
+
+  /**
+   * A blob uploaded, or found in the storage, before its row was locked.
+   *
+   * @param stored    the sizes of the blob
+   * @param created   {@code true} if the blob was uploaded, {@code false} if it was found in the storage
+   * @param deletions the number of deletions of the blob when the upload started
+   */
+  private record Upload(StoredImage stored, boolean created, Long deletions) {
+  }
+
+  /**
+   * A stored image.
+   *
+   * @param hash    the hex-encoded SHA-256 hash of the content
+   * @param key     the key the image is stored under
+   * @param created {@code true} if the image was new, {@code false} if an identical image was already stored
+   * @param width   the width of the image in pixels, or {@code null} if the format is not supported
+   * @param height  the height of the image in pixels, or {@code null} if the format is not supported
+   * @param stored  the sizes of the stored image and its variants
+   */
+  public record Blob(String hash, String key, boolean created, Integer width, Integer height, StoredImage stored) {
+  }
+}
@@ -0,0 +1,216 @@
+package stud.ntnu.no.idatt2105.Findigo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import stud.ntnu.no.idatt2105.Findigo.config.SecurityUtil;
+import stud.ntnu.no.idatt2105.Findigo.dtos.image.ImageUploadStatusResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.image.ImageUploadStatusResponse.Status;
+import stud.ntnu.no.idatt2105.Findigo.exception.CustomErrorMessage;
+import stud.ntnu.no.idatt2105.Findigo.exception.customExceptions.AppEntityNotFoundException;
+import stud.ntnu.no.idatt2105.Findigo.exception.customExceptions.EntityOperationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service ingesting uploaded listing images in the background.
+ * <p>
+ * An upload is checked and copied to a staging file on the request thread, and acknowledged
+ * with an upload ID. A bounded pool of worker threads then stores the image through
+ * {@link ImageService}, generating its variants and saving its image row. Uploads are rejected
+ * when the queue of waiting uploads is full, instead of piling up on the request threads.
+ * </p>
+ * <p>
+ * The status of each upload is kept in memory for a configurable time, and can only be read by
+ * the user who uploaded it.
+ * </p>
+ */
+@Service
+public class ImageIngestionService {
+
+  private static final Logger logger = LogManager.getLogger(ImageIngestionService.class);
+
+  private final ImageService imageService;
+  private final SecurityUtil securityUtil;
+  private final Path stagingDirectory;
+  private final ThreadPoolExecutor workers;
+  private final Cache<String, Upload> uploads;
+
+  /**
+   * Creates the service and starts its worker pool.
+   *
+   * @param imageService     the service storing the images
+   * @param securityUtil     the utility for reading the current user
+   * @param stagingDirectory the directory uploads are staged in until a worker stores them
+   * @param threads          the number of worker threads
+   * @param queueCapacity    the maximum number of staged uploads waiting for a worker
+   * @param statusTtlSeconds the number of seconds the status of an upload is kept
+   */
+  public ImageIngestionService(ImageService imageService,
+                               SecurityUtil securityUtil,
+                               @Value("${images.ingestion.staging-dir:${java.io.tmpdir}/findigo-image-staging}") String stagingDirectory,
+                               @Value("${images.ingestion.threads:2}") int threads,
+                               @Value("${images.ingestion.queue-capacity:100}") int queueCapacity,
+                               @Value("${images.ingestion.status-ttl-seconds:3600}") long statusTtlSeconds) {
+    this.imageService = imageService;
+    this.securityUtil = securityUtil;
+    this.stagingDirectory = Paths.get(stagingDirectory);
+    AtomicInteger threadNumber = new AtomicInteger();
+    this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+          Thread thread = new Thread(runnable, "image-ingestion-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    this.uploads = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofSeconds(statusTtlSeconds))
+        .build();
+    logger.info("Image ingestion started with {} workers and queue capacity {}", threads, queueCapacity);
+  }
+
+  /**
+   * Accepts an image upload to a listing for processing in the background.
+   *
+   * @param listingId the ID of the listing to upload the image to
+   * @param file      the image file to upload
+   * @return the {@link ImageUploadStatusResponse} of the queued upload
+   * @throws AccessDeniedException if the current user is not the owner of the listing
+   * @throws IllegalArgumentException if the file is null or empty
+   * @throws AppEntityNotFoundException if the listing does not exist
+   * @throws EntityOperationException if the upload could not be staged or the queue is full
+   */
+  public ImageUploadStatusResponse submit(long listingId, MultipartFile file) {
+    imageService.checkUploadAllowed(listingId, file);
+
+    Path staged;
+    try {
+      Files.createDirectories(stagingDirectory);
+      staged = Files.createTempFile(stagingDirectory, "upload-", ".tmp");
+      file.transferTo(staged);
+    } catch (IOException e) {
+      logger.error("Failed to stage image for listing ID {}", listingId, e);
+      throw new EntityOperationException(CustomErrorMessage.IMAGE_UPLOAD_FAILED);
+    }
+
+    String uploadId = UUID.randomUUID().toString();
+    Upload upload = new Upload(securityUtil.getCurrentUserId(),
+        new ImageUploadStatusResponse(uploadId, listingId, Status.QUEUED, null, null));
+    uploads.put(uploadId, upload);
+
+    try {
+      workers.execute(() -> ingest(upload, staged, file.getOriginalFilename(), file.getContentType()));
+    } catch (RejectedExecutionException e) {
+      uploads.invalidate(uploadId);
+      deleteStaged(staged);
+      logger.warn("Image upload for listing ID {} rejected, {} uploads are already queued", listingId, workers.getQueue().size());
+      throw new EntityOperationException(CustomErrorMessage.IMAGE_UPLOAD_QUEUE_FULL);
+    }
+
+    logger.info("Image upload {} for listing ID {} queued", uploadId, listingId);
+    return upload.status();
+  }
+
+  /**
+   * Retrieves the status of an upload of the current user.
+   *
+   * @param uploadId the ID of the upload
+   * @return the {@link ImageUploadStatusResponse} of the upload
+   * @throws AppEntityNotFoundException if there is no such upload by the current user, or its status has expired
+   */
+  public ImageUploadStatusResponse getStatus(String uploadId) {
+    Upload upload = uploads.getIfPresent(uploadId);
+    if (upload == null || !Objects.equals(upload.userId(), securityUtil.getCurrentUserIdIfAuthenticated().orElse(null))) {
+      throw new AppEntityNotFoundException(CustomErrorMessage.IMAGE_UPLOAD_NOT_FOUND);
+    }
+    return upload.status();
+  }
+
+  /**
+   * Stops the worker pool, letting queued uploads finish.
+   *
+   * @throws InterruptedException if interrupted while waiting for the workers
+   */
+  @PreDestroy
+  void stop() throws InterruptedException {
+    workers.shutdown();
+    if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+      logger.warn("Image ingestion did not finish {} queued uploads before shutdown", workers.getQueue().size());
+      workers.shutdownNow();
+    }
+  }
+
+  /**
+   * Stores a staged upload, updating its status. Runs on a worker thread.
+   *
+   * @param upload      the upload to store
+   * @param staged      the staging file of the upload
+   * @param filename    the original file name of the image
+   * @param contentType the media type of the image
+   */
+  private void ingest(Upload upload, Path staged, String filename, String contentType) {
+    ImageUploadStatusResponse status = upload.status();
+    update(upload, Status.PROCESSING, null, null);
+
+    try (InputStream in = Files.newInputStream(staged)) {
+      int imageCount = imageService.storeImage(status.getListingId(), in, filename, contentType);
+      update(upload, Status.COMPLETED, imageCount, null);
+      logger.info("Image upload {} for listing ID {} completed", status.getUploadId(), status.getListingId());
+    } catch (Exception e) {
+      logger.error("Image upload {} for listing ID {} failed", status.getUploadId(), status.getListingId(), e);
+      update(upload, Status.FAILED, null, CustomErrorMessage.IMAGE_UPLOAD_FAILED.getMessage());
+    } finally {
+      deleteStaged(staged);
+    }
+  }
+
+  /**
+   * Replaces the status of an upload.
+   *
+   * @param upload     the upload
+   * @param status     the new state
+   * @param imageCount the number of images of the listing, if completed
+   * @param error      the reason the upload failed, if failed
+   */
+  private void update(Upload upload, Status status, Integer imageCount, String error) {
+    ImageUploadStatusResponse current = upload.status();
+    uploads.put(current.getUploadId(), new Upload(upload.userId(),
+        new ImageUploadStatusResponse(current.getUploadId(), current.getListingId(), status, imageCount, error)));
+  }
+
+  /**
+   * Deletes a staging file, logging instead of propagating failures.
+   *
+   * @param staged the staging file
+   */
+  private static void deleteStaged(Path staged) {
+    try {
+      Files.deleteIfExists(staged);
+    } catch (IOException e) {
+      logger.warn("Failed to delete staged upload {}", staged, e);
+    }
+  }
+
+  /**
+   * An upload and the user who made it.
+   */
+  private record Upload(Long userId, ImageUploadStatusResponse status) {
+  }
+}
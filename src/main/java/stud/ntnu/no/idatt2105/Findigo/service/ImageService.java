@@ -1,18 +1,26 @@
 package stud.ntnu.no.idatt2105.Findigo.service;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import stud.ntnu.no.idatt2105.Findigo.config.SecurityUtil;
+import stud.ntnu.no.idatt2105.Findigo.dtos.image.ImageMetadataResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.image.ListingImageResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.mappers.ImageMapper;
 import stud.ntnu.no.idatt2105.Findigo.entities.Listing;
 import stud.ntnu.no.idatt2105.Findigo.entities.ListingImageUrls;
-import stud.ntnu.no.idatt2105.Findigo.entities.User;
+import stud.ntnu.no.idatt2105.Findigo.entities.StoredImage;
 import stud.ntnu.no.idatt2105.Findigo.exception.CustomErrorMessage;
 import stud.ntnu.no.idatt2105.Findigo.exception.customExceptions.AppEntityNotFoundException;
 import stud.ntnu.no.idatt2105.Findigo.exception.customExceptions.EntityOperationException;
@@ -20,13 +28,26 @@ import stud.ntnu.no.idatt2105.Findigo.repository.ListingImageRepository;
 import stud.ntnu.no.idatt2105.Findigo.repository.ListingRepository;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Service for handling image upload and download operations related to listings.
@@ -37,18 +58,38 @@ public class ImageService {
 
   private static final Logger logger = LogManager.getLogger(ImageService.class);
 
-  /**
-   * The base path where listing images are stored.
-   */
-  @Value("${picturesPath}")
-  private String picturesPath;
   private final ListingRepository listingRepository;
-  private final UserService userService;
   private final SecurityUtil securityUtil;
   private final ListingImageRepository listingImageRepository;
+  private final ImageVariantGenerator imageVariantGenerator;
+  private final ImageBlobStore imageBlobStore;
+  private final ImageMapper imageMapper;
+
+  /**
+   * The maximum number of listings whose image metadata can be fetched in one request.
+   */
+  @Value("${images.metadata.max-listings:100}")
+  private int maxMetadataListings;
+
+  private static final String HASH_ALGORITHM = "SHA-256";
+
+  /**
+   * The media types images are stored and served with. Any other declared type, such as
+   * {@code text/html} or {@code image/svg+xml}, could be rendered as a page on the application's origin.
+   */
+  private static final Set<String> IMAGE_CONTENT_TYPES = Set.of(
+          MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_GIF_VALUE, "image/webp");
+
+  /**
+   * Storage of images uploaded before the {@link ImageBlobStore}, whose URL is their local path.
+   */
+  private static final ImageStorage LEGACY_STORAGE = new FileSystemImageStorage(Paths.get(""));
 
   /**
    * Uploads an image to a specific listing.
+   * <p>
+   * The scaled-down {@link ImageVariant}s of the image are generated and stored next to it.
+   * </p>
    *
    * @param listingId the ID of the listing to upload the image to
    * @param file the image file to upload
@@ -57,112 +98,490 @@ public class ImageService {
    * @throws EntityOperationException if an error occurs during file upload
    * @throws AppEntityNotFoundException if the listing does not exist
    */
+  @Timed(value = "findigo.images.upload", description = "Time spent accepting an uploaded image", histogram = true)
   public int uploadImageToListing(long listingId, MultipartFile file) {
-    User currentUser = userService.getCurrentUser();
+    checkUploadAllowed(listingId, file);
+
+    try (InputStream in = file.getInputStream()) {
+      storeImage(listingId, in, file.getOriginalFilename(), file.getContentType());
+    } catch (Exception e) {
+      logger.error("Failed to upload image for listing ID {}, error {}", listingId, e);
+      throw new EntityOperationException(CustomErrorMessage.IMAGE_UPLOAD_FAILED);
+    }
+
+    return (int) listingImageRepository.countByListingId(listingId);
+  }
+
+  /**
+   * Checks that the current user may upload a file to a listing.
+   *
+   * @param listingId the ID of the listing to upload the image to
+   * @param file the image file to upload
+   * @throws AccessDeniedException if the current user is not the owner of the listing
+   * @throws IllegalArgumentException if the file is null or empty
+   * @throws AppEntityNotFoundException if the listing does not exist
+   */
+  void checkUploadAllowed(long listingId, MultipartFile file) {
     Listing listing = listingRepository.findById(listingId)
             .orElseThrow(() -> new AppEntityNotFoundException(CustomErrorMessage.LISTING_NOT_FOUND));
 
     if (!securityUtil.isListingOwner(listing)) {
-      logger.warn("Access denied: User {} attempted to upload image to listing owned by user {}", currentUser.getId(), listing.getUser().getId());
-      throw new AccessDeniedException("Current logged in user (" + currentUser.getId() + ") does not match user (" + listing.getUser().getId() + ") of listing with ID " + listingId);
+      logger.warn("Access denied: User {} attempted to upload image to listing owned by user {}", securityUtil.getCurrentUserId(), listing.getUser().getId());
+      throw new AccessDeniedException("Current logged in user (" + securityUtil.getCurrentUserId() + ") does not match user (" + listing.getUser().getId() + ") of listing with ID " + listingId);
     }
 
     if (file == null || file.isEmpty()) {
       logger.warn("File is null or empty for listing ID {}", listingId);
       throw new IllegalArgumentException("File cannot be null or empty");
     }
+  }
 
-    try {
-      Path directoryPath = Paths.get(picturesPath + listingId + "/");
-      Files.createDirectories(directoryPath);
+  /**
+   * Stores an uploaded image of a listing in the {@link ImageBlobStore} and saves its image row.
+   * <p>
+   * Does not check access; callers check it with {@link #checkUploadAllowed(long, MultipartFile)} first.
+   * The listing is locked while the image row is saved, so images uploaded to the same listing
+   * concurrently get consecutive positions.
+   * </p>
+   *
+   * @param listingId the ID of the listing
+   * @param content the content of the image
+   * @param filename the original file name of the image
+   * @param contentType the media type the client declared for the image; replaced by the type of the
+   *                    file name, or {@code application/octet-stream}, unless it is a raster image type
+   * @return the number of images currently associated with the listing
+   * @throws IOException if the file name is not a plain file name or the image could not be stored
+   */
+  int storeImage(long listingId, InputStream content, String filename, String contentType) throws IOException {
+    if (filename == null || filename.isBlank() || !filename.equals(Paths.get(filename).getFileName().toString())) {
+      throw new IOException("Invalid file name: " + filename);
+    }
+    String imageContentType = imageContentType(contentType, filename);
 
-      Path targetPath = directoryPath.resolve(file.getOriginalFilename());
-      Files.copy(file.getInputStream(), targetPath, StandardCopyOption.REPLACE_EXISTING);
+    ImageBlobStore.Blob blob = imageBlobStore.store(content, imageContentType, stored -> {
+      Listing listing = listingRepository.findAndLockById(listingId)
+              .orElseThrow(() -> new AppEntityNotFoundException(CustomErrorMessage.LISTING_NOT_FOUND));
+      listingImageRepository.save(new ListingImageUrls()
+              .setImageUrl(stored.key())
+              .setOriginalFilename(filename)
+              .setContentHash(stored.hash())
+              .setContentType(imageContentType)
+              .setWidth(stored.width())
+              .setHeight(stored.height())
+              .setStored(stored.stored())
+              .setPosition(listingImageRepository.findMaxPositionByListingId(listingId) + 1)
+              .setListing(listing));
+    });
 
-      String currentImagePath = picturesPath + listingId + "/" + file.getOriginalFilename();
-      ListingImageUrls imageUrl = new ListingImageUrls()
-              .setImageUrl(currentImagePath)
-              .setListing(listing);
-      listingImageRepository.save(imageUrl);
+    logger.info("Image uploaded successfully for listing ID {}: {} ({})", listingId, filename,
+            blob.created() ? "new content" : "duplicate content");
+    return (int) listingImageRepository.countByListingId(listingId);
+  }
 
-      logger.info("Image uploaded successfully for listing ID {}: {}", listingId, currentImagePath);
+  /**
+   * Retrieves the images of a listing in display order.
+   *
+   * @param listingId the ID of the listing
+   * @return the {@link ListingImageResponse}s of the listing's images, by position
+   * @throws AppEntityNotFoundException if the listing does not exist
+   */
+  public List<ListingImageResponse> getImagesOfListing(long listingId) {
+    List<ListingImageUrls> images = listingImageRepository.findByListingIdOrderByPositionAscIdAsc(listingId);
+    if (images.isEmpty() && !listingRepository.existsById(listingId)) {
+      throw new AppEntityNotFoundException(CustomErrorMessage.LISTING_NOT_FOUND);
+    }
+    return images.stream().map(imageMapper::toDto).toList();
+  }
 
-    } catch (Exception e) {
-      logger.error("Failed to upload image for listing ID {}, error {}", listingId, e);
-      throw new EntityOperationException(CustomErrorMessage.IMAGE_UPLOAD_FAILED);
+  /**
+   * Retrieves the metadata of the images of several listings in a single query, for rendering a grid of listings.
+   *
+   * @param listingIds the IDs of the listings; unknown listings are ignored
+   * @return the {@link ImageMetadataResponse}s of the listings' images, by listing and then by position
+   * @throws IllegalArgumentException if more than {@code images.metadata.max-listings} listings are requested
+   */
+  public List<ImageMetadataResponse> getImageMetadata(Collection<Long> listingIds) {
+    if (listingIds.size() > maxMetadataListings) {
+      throw new IllegalArgumentException("Cannot fetch the images of more than " + maxMetadataListings + " listings at once");
     }
+    if (listingIds.isEmpty()) {
+      return List.of();
+    }
+    return listingImageRepository.findByListingIdInOrderByListingIdAscPositionAscIdAsc(new HashSet<>(listingIds)).stream()
+            .map(imageMapper::toMetadataDto)
+            .toList();
+  }
 
-    return listingImageRepository.findByListingId(listingId).size();
+  /**
+   * Looks up the original of a specific image from a listing by its index.
+   *
+   * @param listingId the ID of the listing
+   * @param imageIndex the index of the image to download
+   * @return the {@link ImageFile} describing the image
+   * @throws IllegalArgumentException if the image index is invalid
+   * @throws EntityOperationException if the image could not be loaded
+   * @throws AppEntityNotFoundException if the listing does not exist
+   */
+  public ImageFile downloadImageFromListing(long listingId, int imageIndex) {
+    return downloadImageFromListing(listingId, imageIndex, ImageVariant.ORIGINAL);
   }
 
   /**
-   * Downloads a specific image from a listing by its index.
+   * Looks up a specific image from a listing by its index in display order, for streaming it to a client.
+   * <p>
+   * Only the requested image row is read, and the listing itself is only checked when the image
+   * does not exist.
+   * </p>
    *
    * @param listingId the ID of the listing
    * @param imageIndex the index of the image to download
-   * @return a {@link Resource} representing the image file
+   * @param variant the size of the image; images without generated variants are served as the original
+   * @return the {@link ImageFile} describing the image
    * @throws IllegalArgumentException if the image index is invalid
    * @throws EntityOperationException if the image could not be loaded
    * @throws AppEntityNotFoundException if the listing does not exist
    */
-  public Resource downloadImageFromListing(long listingId, int imageIndex) {
-    Listing listing = listingRepository.findById(listingId)
-            .orElseThrow(() -> new AppEntityNotFoundException(CustomErrorMessage.LISTING_NOT_FOUND));
+  public ImageFile downloadImageFromListing(long listingId, int imageIndex, ImageVariant variant) {
+    return toImageFile(findImageByIndex(listingId, imageIndex), variant);
+  }
 
-    List<ListingImageUrls> listingImageUrls = new ArrayList<>(listingImageRepository.findByListingId(listingId));
+  /**
+   * Looks up a specific image by its ID, for streaming it to a client.
+   *
+   * @param imageId the ID of the image
+   * @param variant the size of the image; images without generated variants are served as the original
+   * @return the {@link ImageFile} describing the image
+   * @throws AppEntityNotFoundException if the image does not exist
+   * @throws EntityOperationException if the image could not be loaded
+   */
+  public ImageFile downloadImage(long imageId, ImageVariant variant) {
+    ListingImageUrls image = listingImageRepository.findById(imageId)
+            .orElseThrow(() -> new AppEntityNotFoundException(CustomErrorMessage.IMAGE_NOT_FOUND));
+    return toImageFile(image, variant);
+  }
 
-    if (imageIndex < 0 || imageIndex >= listingImageUrls.size()) {
-      logger.warn("Invalid image index {} for listing ID {}. Total images: {}", imageIndex, listingId, listingImageUrls.size());
-      throw new IllegalArgumentException("Image index cannot be negative or greater than the amount of images (" + listingImageUrls.size() + "), imageIndex is " + imageIndex);
+  /**
+   * Deletes a specific image from a listing by its index in display order.
+   *
+   * @param listingId the ID of the listing
+   * @param imageIndex the index of the image to delete
+   * @return the number of images remaining in the listing
+   * @throws IllegalArgumentException if the image index is invalid
+   * @throws EntityOperationException if the image could not be deleted
+   * @throws AppEntityNotFoundException if the listing does not exist
+   */
+  public int deleteImageFromListing(long listingId, int imageIndex) {
+    checkOwner(listingId);
+    delete(findImageByIndex(listingId, imageIndex));
+    logger.info("Deleted image at index {} for listing ID {}", imageIndex, listingId);
+    return (int) listingImageRepository.countByListingId(listingId);
+  }
+
+  /**
+   * Deletes a specific image by its ID.
+   *
+   * @param imageId the ID of the image
+   * @return the number of images remaining in the image's listing
+   * @throws AppEntityNotFoundException if the image does not exist
+   * @throws AccessDeniedException if the current user is not the owner of the image's listing
+   * @throws EntityOperationException if the image could not be deleted
+   */
+  public int deleteImage(long imageId) {
+    ListingImageUrls image = listingImageRepository.findById(imageId)
+            .orElseThrow(() -> new AppEntityNotFoundException(CustomErrorMessage.IMAGE_NOT_FOUND));
+    long listingId = image.getListing().getId();
+    checkOwner(listingId);
+    delete(image);
+    logger.info("Deleted image {} of listing ID {}", imageId, listingId);
+    return (int) listingImageRepository.countByListingId(listingId);
+  }
+
+  /**
+   * Reorders the images of a listing.
+   *
+   * @param listingId the ID of the listing
+   * @param imageIds  the IDs of every image of the listing, in the new order
+   * @return the {@link ListingImageResponse}s of the listing's images, in the new order
+   * @throws AppEntityNotFoundException if the listing does not exist
+   * @throws AccessDeniedException if the current user is not the owner of the listing
+   * @throws IllegalArgumentException if {@code imageIds} is not exactly the IDs of the listing's images
+   */
+  @Transactional
+  public List<ListingImageResponse> reorderImages(long listingId, List<Long> imageIds) {
+    checkOwner(listingId);
+
+    Map<Long, ListingImageUrls> images = new HashMap<>();
+    listingImageRepository.findByListingIdOrderByPositionAscIdAsc(listingId)
+            .forEach(image -> images.put(image.getId(), image));
+    if (imageIds.size() != images.size() || !images.keySet().equals(new HashSet<>(imageIds))) {
+      logger.warn("Invalid image order {} for listing ID {} with images {}", imageIds, listingId, images.keySet());
+      throw new IllegalArgumentException("The image IDs must be the IDs of every image of the listing, each once");
+    }
+
+    List<ListingImageUrls> ordered = new ArrayList<>(imageIds.size());
+    for (int position = 0; position < imageIds.size(); position++) {
+      ordered.add(images.get(imageIds.get(position)).setPosition(position));
+    }
+    logger.info("Reordered {} images of listing ID {}", ordered.size(), listingId);
+    return ordered.stream().map(imageMapper::toDto).toList();
+  }
+
+  /**
+   * Assigns positions on startup to images uploaded before positions were stored,
+   * keeping the upload order of each listing's images.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional
+  public void assignMissingPositions() {
+    List<ListingImageUrls> images = listingImageRepository.findByPositionIsNullOrderByListingIdAscIdAsc();
+    Map<Long, Integer> nextPositions = new HashMap<>();
+    for (ListingImageUrls image : images) {
+      long listingId = image.getListing().getId();
+      int position = nextPositions.computeIfAbsent(listingId, id -> listingImageRepository.findMaxPositionByListingId(id) + 1);
+      image.setPosition(position);
+      nextPositions.put(listingId, position + 1);
+    }
+    if (!images.isEmpty()) {
+      logger.info("Assigned positions to {} images", images.size());
     }
+  }
 
-    Path imagePath = Paths.get(listingImageUrls.get(imageIndex).getImageUrl());
+  /**
+   * Records the sizes of the images uploaded before sizes were stored on startup, so their
+   * metadata lists the variants they can be downloaded in.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void recordMissingSizes() {
+    int recorded = 0;
+    for (ListingImageUrls image : listingImageRepository.findByStoredSizeIsNull()) {
+      try {
+        recordStored(image);
+        recorded++;
+      } catch (IOException | NoSuchAlgorithmException e) {
+        logger.warn("Failed to record the size of image {}", image.getId(), e);
+      }
+    }
+    if (recorded > 0) {
+      logger.info("Recorded the sizes of {} images", recorded);
+    }
+  }
+
+  /**
+   * Releases the stored content of every image of a listing that is being deleted.
+   * <p>
+   * Call before deleting the listing, inside the same transaction. Content no longer used by any
+   * listing is deleted from the {@link ImageBlobStore} once the transaction commits.
+   * </p>
+   *
+   * @param listingId the ID of the listing
+   */
+  public void releaseImagesOfListing(long listingId) {
+    listingImageRepository.findContentHashesByListingId(listingId).forEach(imageBlobStore::release);
+  }
+
+  /**
+   * Looks up the image at an index of a listing's images in display order, reading that row only.
+   *
+   * @param listingId  the ID of the listing
+   * @param imageIndex the index of the image
+   * @return the image
+   * @throws IllegalArgumentException if the image index is invalid
+   * @throws AppEntityNotFoundException if the listing does not exist
+   */
+  private ListingImageUrls findImageByIndex(long listingId, int imageIndex) {
+    List<ListingImageUrls> images = imageIndex < 0
+            ? List.of()
+            : listingImageRepository.findByListingIdOrderByPositionAscIdAsc(listingId, PageRequest.of(imageIndex, 1));
+
+    if (images.isEmpty()) {
+      if (!listingRepository.existsById(listingId)) {
+        throw new AppEntityNotFoundException(CustomErrorMessage.LISTING_NOT_FOUND);
+      }
+      long imageCount = listingImageRepository.countByListingId(listingId);
+      logger.warn("Invalid image index {} for listing ID {}. Total images: {}", imageIndex, listingId, imageCount);
+      throw new IllegalArgumentException("Image index cannot be negative or greater than the amount of images (" + imageCount + "), imageIndex is " + imageIndex);
+    }
+    return images.get(0);
+  }
+
+  /**
+   * Describes the stored file of an image, for streaming it to a client.
+   * <p>
+   * The sizes and storage time recorded on the image row are served, so the {@link ImageStorage} is
+   * not asked for them. Images uploaded before they were recorded have them recorded first.
+   * Images stored before the {@link ImageBlobStore} are served from their own path.
+   * </p>
+   *
+   * @param image   the image
+   * @param variant the size of the image; images without stored variants are served as the original
+   * @return the {@link ImageFile} describing the image
+   * @throws EntityOperationException if the image could not be loaded
+   */
+  private ImageFile toImageFile(ListingImageUrls image, ImageVariant variant) {
+    Path imagePath = Paths.get(image.getImageUrl());
 
     try {
-      Resource resource = new UrlResource(imagePath.toUri());
-      logger.info("Image successfully loaded for listing ID {}: {}", listingId, imagePath);
-      return resource;
-    } catch (MalformedURLException e) {
-      logger.error("Failed to load image for listing ID {} at path {}", listingId, imagePath, e);
+      if (image.getStored() == null) {
+        recordStored(image);
+      }
+
+      boolean blob = imageBlobStore.isBlob(image.getImageUrl(), image.getContentHash());
+      ImageStorage storage = blob ? imageBlobStore.storage() : LEGACY_STORAGE;
+      String key = blob ? imageBlobStore.key(image.getContentHash()) : image.getImageUrl();
+      StoredImage stored = image.getStored();
+
+      Long variantSize = variant.size(stored);
+      if (variant != ImageVariant.ORIGINAL && variantSize != null) {
+        logger.debug("Image variant {} of image {} successfully loaded: {}", variant, image.getId(), variant.resolve(key));
+        return new ImageFile(storage, variant.resolve(key), filename(image, imagePath), ImageVariant.CONTENT_TYPE,
+                image.getContentHash() + "-" + variant.name().toLowerCase(Locale.ROOT), variantSize,
+                stored.getStoredAt().toInstant());
+      }
+
+      String contentType = imageContentType(image.getContentType(), filename(image, imagePath));
+      logger.debug("Image {} successfully loaded: {}", image.getId(), key);
+      return new ImageFile(storage, key, filename(image, imagePath), contentType, image.getContentHash(),
+              stored.getSize(), stored.getStoredAt().toInstant());
+    } catch (IOException | NoSuchAlgorithmException e) {
+      logger.error("Failed to load image {} at path {}", image.getId(), imagePath, e);
       throw new EntityOperationException(CustomErrorMessage.IMAGE_DOWNLOAD_FAILED);
     }
   }
 
   /**
-   * Deletes a specific image from a listing by its index.
+   * Records the sizes of an image uploaded before they were stored on its row, hashing images
+   * uploaded before hashes were stored too.
+   * <p>
+   * Blobs take the sizes recorded in the {@link ImageBlobStore}; other images are looked up in the storage.
+   * </p>
+   *
+   * @param image the image
+   * @throws IOException if the image is not stored or could not be read
+   * @throws NoSuchAlgorithmException if SHA-256 is not available
+   */
+  private void recordStored(ListingImageUrls image) throws IOException, NoSuchAlgorithmException {
+    if (image.getContentHash() == null) {
+      image.setContentHash(hash(Paths.get(image.getImageUrl())));
+    }
+    Optional<StoredImage> stored = imageBlobStore.isBlob(image.getImageUrl(), image.getContentHash())
+            ? imageBlobStore.stored(image.getContentHash())
+            : ImageBlobStore.stat(LEGACY_STORAGE, image.getImageUrl());
+    image.setStored(stored.orElseThrow(() -> new NoSuchFileException(image.getImageUrl())));
+    listingImageRepository.save(image);
+  }
+
+  /**
+   * Checks that the current user owns a listing.
    *
    * @param listingId the ID of the listing
-   * @param imageIndex the index of the image to delete
-   * @return the number of images remaining in the listing
-   * @throws IllegalArgumentException if the image index is invalid
-   * @throws EntityOperationException if the image could not be deleted
    * @throws AppEntityNotFoundException if the listing does not exist
+   * @throws AccessDeniedException if the current user is not the owner of the listing
    */
-  public int deleteImageFromListing(long listingId, int imageIndex) {
+  private void checkOwner(long listingId) {
     Listing listing = listingRepository.findById(listingId)
             .orElseThrow(() -> new AppEntityNotFoundException(CustomErrorMessage.LISTING_NOT_FOUND));
 
     if (!securityUtil.isListingOwner(listing)) {
-      logger.warn("Access denied: User {} attempted to delete image from listing owned by user {}", userService.getCurrentUser().getId(), listing.getUser().getId());
-      throw new AccessDeniedException("Current logged in user (" + userService.getCurrentUser().getId() + ") does not match user (" + listing.getUser().getId() + ") of listing with ID " + listingId);
-    }
-    List<ListingImageUrls> listingImageUrls = new ArrayList<>(listingImageRepository.findByListingId(listingId));
-
-    if (imageIndex < 0 || imageIndex >= listingImageUrls.size()) {
-      logger.warn("Invalid image index {} for listing ID {}. Total images: {}", imageIndex, listingId, listingImageUrls.size());
-      throw new IllegalArgumentException("Image index cannot be negative or greater than the amount of images (" + listingImageUrls.size() + "), imageIndex is " + imageIndex);
+      logger.warn("Access denied: User {} attempted to change images of listing owned by user {}", securityUtil.getCurrentUserId(), listing.getUser().getId());
+      throw new AccessDeniedException("Current logged in user (" + securityUtil.getCurrentUserId() + ") does not match user (" + listing.getUser().getId() + ") of listing with ID " + listingId);
     }
+  }
 
+  /**
+   * Deletes an image row, and its file unless the file is a blob other images may share.
+   *
+   * @param image the image to delete
+   * @throws EntityOperationException if the image could not be deleted
+   */
+  private void delete(ListingImageUrls image) {
+    Path imagePath = Paths.get(image.getImageUrl());
     try {
-      Path imagePath = Paths.get(listingImageUrls.get(imageIndex).getImageUrl());
-      Files.deleteIfExists(imagePath);
-      listingImageRepository.delete(listingImageUrls.get(imageIndex));
-      logger.info("Deleted image at index {} for listing ID {}", imageIndex, listingId);
+      listingImageRepository.delete(image);
+      if (imageBlobStore.isBlob(image.getImageUrl(), image.getContentHash())) {
+        imageBlobStore.release(image.getContentHash());
+      } else {
+        Files.deleteIfExists(imagePath);
+        imageVariantGenerator.delete(imagePath);
+      }
     } catch (IOException e) {
-      logger.error("Failed to delete image for listing ID {}", listingId, e);
+      logger.error("Failed to delete image {}", image.getId(), e);
       throw new EntityOperationException(CustomErrorMessage.IMAGE_DELETE_FAILED);
     }
+  }
+
+  /**
+   * Returns the file name to present for an image.
+   *
+   * @param image the image row
+   * @param path  the path of the image file
+   * @return the uploaded file name, or the name of the file for images stored without it
+   */
+  private static String filename(ListingImageUrls image, Path path) {
+    return image.getOriginalFilename() != null ? image.getOriginalFilename() : path.getFileName().toString();
+  }
+
+  /**
+   * Returns the media type to store and serve an image with.
+   * <p>
+   * The declared type is only trusted if it is one of the {@link #IMAGE_CONTENT_TYPES}. Otherwise the
+   * type is derived from the file name, and falls back to {@code application/octet-stream}.
+   * </p>
+   *
+   * @param contentType the declared media type, or {@code null}
+   * @param filename    the file name of the image
+   * @return a raster image type, or {@code application/octet-stream}
+   */
+  static String imageContentType(String contentType, String filename) {
+    if (contentType != null) {
+      String type = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+      if (IMAGE_CONTENT_TYPES.contains(type)) {
+        return type;
+      }
+    }
+    return MediaTypeFactory.getMediaType(filename)
+            .map(MediaType::toString)
+            .filter(IMAGE_CONTENT_TYPES::contains)
+            .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+  }
 
-    return listingImageRepository.findByListingId(listingId).size();
+  /**
+   * Computes the content hash of an image file.
+   *
+   * @param path the path of the image
+   * @return the hex-encoded SHA-256 hash of the file
+   * @throws IOException if the file could not be read
+   * @throws NoSuchAlgorithmException if SHA-256 is not available
+   */
+  private static String hash(Path path) throws IOException, NoSuchAlgorithmException {
+    MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+    try (InputStream in = new DigestInputStream(Files.newInputStream(path), digest)) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * An image file of a listing, with the metadata needed to serve it over HTTP.
+   *
+   * @param storage      the storage holding the file
+   * @param key          the key of the file in the storage
+   * @param filename     the file name the image was uploaded with
+   * @param contentType  the media type of the image
+   * @param contentHash  the hex-encoded SHA-256 hash of the original content, suffixed with the variant for variants
+   * @param size         the size of the file in bytes
+   * @param lastModified the time the file was last modified
+   */
+  public record ImageFile(ImageStorage storage, String key, String filename, String contentType, String contentHash,
+                          long size, Instant lastModified) {
+
+    /**
+     * Opens a stream of the whole file.
+     *
+     * @return a stream of the file, which the caller closes
+     * @throws IOException if the file could not be read
+     */
+    public InputStream open() throws IOException {
+      return size == 0 ? InputStream.nullInputStream() : storage.open(key, 0, size - 1);
+    }
   }
 }
@@ -0,0 +1,92 @@
+package stud.ntnu.no.idatt2105.Findigo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Storage of image files, addressed by keys such as {@code blobs/ab/cd/abcd...}.
+ * <p>
+ * The {@link ImageBlobStore} writes images and their variants through this interface, so app nodes
+ * can share images without sharing a disk. {@link FileSystemImageStorage} keeps the files on local
+ * disk, and {@link S3ImageStorage} keeps them in an S3-compatible bucket; the backend is chosen with
+ * {@code images.storage.type}.
+ * </p>
+ */
+public interface ImageStorage {
+
+  /**
+   * Stores a file under a key, replacing any object stored under it.
+   * <p>
+   * The file is streamed to the storage, and readers see either the previous object or the whole new one.
+   * </p>
+   *
+   * @param key         the key to store the file under
+   * @param source      the file to store
+   * @param contentType the media type of the file
+   * @throws IOException if the file could not be stored
+   */
+  void put(String key, Path source, String contentType) throws IOException;
+
+  /**
+   * Looks up the size and modification time of a stored object.
+   *
+   * @param key the key of the object
+   * @return the {@link StoredObject}, or empty if nothing is stored under the key
+   * @throws IOException if the storage could not be read
+   */
+  Optional<StoredObject> stat(String key) throws IOException;
+
+  /**
+   * Opens a stream of a byte range of a stored object.
+   *
+   * @param key   the key of the object
+   * @param start the first byte to read
+   * @param end   the last byte to read, inclusive
+   * @return a stream of the bytes, which the caller closes
+   * @throws IOException if the object does not exist or could not be read
+   */
+  InputStream open(String key, long start, long end) throws IOException;
+
+  /**
+   * Deletes a stored object, if it exists.
+   *
+   * @param key the key of the object
+   * @throws IOException if the object could not be deleted
+   */
+  void delete(String key) throws IOException;
+
+  /**
+   * Resolves the local file of a stored object, which lets downloads be handed to the connector's sendfile.
+   *
+   * @param key the key of the object
+   * @return the path of the file, or empty if the storage is not a local file system
+   */
+  default Optional<Path> localPath(String key) {
+    return Optional.empty();
+  }
+
+  /**
+   * Creates a URL clients can download a stored object from directly, without going through the app.
+   *
+   * @param key the key of the object
+   * @param ttl how long the URL is valid
+   * @return the presigned URL, or empty if the storage does not support it
+   */
+  default Optional<URI> presignedUrl(String key, Duration ttl) {
+    return Optional.empty();
+  }
+
+  /**
+   * The size and modification time of a stored object.
+   *
+   * @param size         the size in bytes
+   * @param lastModified the time the object was stored
+   */
+  record StoredObject(long size, Instant lastModified) {
+  }
+}
@@ -0,0 +1,129 @@
+package stud.ntnu.no.idatt2105.Findigo.service;
+
+import stud.ntnu.no.idatt2105.Findigo.entities.StoredImage;
+
+import java.awt.Dimension;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * The sizes in which listing images can be downloaded.
+ * <p>
+ * Every variant except {@link #ORIGINAL} is a JPEG scaled down to a fixed width, generated by
+ * {@link ImageVariantGenerator} when the image is uploaded and stored next to the original.
+ * </p>
+ */
+public enum ImageVariant {
+
+  /**
+   * Small preview, for lists and chat.
+   */
+  THUMBNAIL(160),
+
+  /**
+   * Medium size, for listing cards in the feed.
+   */
+  CARD(480),
+
+  /**
+   * Large size, for the listing page.
+   */
+  FULL(1280),
+
+  /**
+   * The uploaded file as-is.
+   */
+  ORIGINAL(0);
+
+  /**
+   * The media type of the generated variants.
+   */
+  public static final String CONTENT_TYPE = "image/jpeg";
+
+  private final int width;
+
+  ImageVariant(int width) {
+    this.width = width;
+  }
+
+  /**
+   * Returns the maximum width of the variant.
+   *
+   * @return the width in pixels, or {@code 0} for {@link #ORIGINAL}
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Calculates the size of this variant of an image, keeping its aspect ratio.
+   *
+   * @param width  the width of the original image
+   * @param height the height of the original image
+   * @return the size of the variant; images narrower than the variant, and {@link #ORIGINAL}, keep their size
+   */
+  public Dimension scale(int width, int height) {
+    if (this == ORIGINAL || width <= this.width) {
+      return new Dimension(width, height);
+    }
+    return new Dimension(this.width, Math.max(1, (int) Math.round((double) height * this.width / width)));
+  }
+
+  /**
+   * Returns the size of this variant of a stored image.
+   *
+   * @param stored the sizes of the stored image
+   * @return the size in bytes, or {@code null} if the variant was not stored
+   */
+  public Long size(StoredImage stored) {
+    return switch (this) {
+      case THUMBNAIL -> stored.getThumbnailSize();
+      case CARD -> stored.getCardSize();
+      case FULL -> stored.getFullSize();
+      case ORIGINAL -> stored.getSize();
+    };
+  }
+
+  /**
+   * Resolves the path of this variant of an image.
+   *
+   * @param original the path of the original image
+   * @return the path the variant is stored at, or {@code original} for {@link #ORIGINAL}
+   */
+  public Path resolve(Path original) {
+    if (this == ORIGINAL) {
+      return original;
+    }
+    return original.resolveSibling(resolve(original.getFileName().toString()));
+  }
+
+  /**
+   * Resolves the {@link ImageStorage} key of this variant of an image.
+   *
+   * @param original the key of the original image
+   * @return the key the variant is stored under, or {@code original} for {@link #ORIGINAL}
+   */
+  public String resolve(String original) {
+    if (this == ORIGINAL) {
+      return original;
+    }
+    int extension = original.lastIndexOf('.');
+    String baseName = extension > original.lastIndexOf('/') + 1 ? original.substring(0, extension) : original;
+    return baseName + "." + name().toLowerCase(Locale.ROOT) + ".jpg";
+  }
+
+  /**
+   * Parses a variant from a request parameter, ignoring case.
+   *
+   * @param value the name of the variant
+   * @return the {@link ImageVariant}
+   * @throws IllegalArgumentException if there is no variant with the given name
+   */
+  public static ImageVariant fromParameter(String value) {
+    try {
+      return valueOf(value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException | NullPointerException e) {
+      throw new IllegalArgumentException("Unknown image variant: " + value);
+    }
+  }
+}
@@ -0,0 +1,215 @@
+package stud.ntnu.no.idatt2105.Findigo.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * Generates the scaled-down {@link ImageVariant}s of uploaded listing images.
+ * <p>
+ * Each variant is scaled to its width, keeping the aspect ratio, and encoded as a compressed JPEG.
+ * Images narrower than a variant are re-encoded at their own width. Uploads the JDK cannot decode
+ * get no variants, and are served as the original in every size.
+ * </p>
+ * <p>
+ * The size of an image is read from its header before it is decoded, and images with more pixels than
+ * {@code images.variants.max-pixels} are not decoded at all, so a small but highly compressed upload
+ * cannot expand to gigabytes of heap.
+ * </p>
+ */
+@Component
+public class ImageVariantGenerator {
+
+  private static final Logger logger = LogManager.getLogger(ImageVariantGenerator.class);
+
+  /**
+   * The JPEG quality of the variants, between 0 and 1.
+   */
+  @Value("${images.variants.jpeg-quality:0.8}")
+  private float jpegQuality;
+
+  /**
+   * The largest number of pixels of an image that is decoded to generate its variants.
+   */
+  @Value("${images.variants.max-pixels:40000000}")
+  private long maxPixels;
+
+  /**
+   * Generates every variant of an image, next to the original.
+   *
+   * @param original the path of the uploaded image
+   * @return {@code true} if the variants were generated, {@code false} if the image could not be decoded
+   *         or has more than {@code images.variants.max-pixels} pixels
+   * @throws IOException if the image could not be read or a variant could not be written
+   */
+  public boolean generate(Path original) throws IOException {
+    Optional<BufferedImage> decoded = withReader(original, reader -> {
+      long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+      if (pixels > maxPixels) {
+        logger.warn("No variants generated for {}, its {}x{} pixels exceed the limit of {}",
+            original, reader.getWidth(0), reader.getHeight(0), maxPixels);
+        return null;
+      }
+      return reader.read(0);
+    });
+    if (decoded.isEmpty()) {
+      logger.debug("No variants generated for {}, the format is not supported or the image is too large", original);
+      return false;
+    }
+    BufferedImage source = decoded.get();
+
+    for (ImageVariant variant : ImageVariant.values()) {
+      if (variant != ImageVariant.ORIGINAL) {
+        writeJpeg(scale(source, variant.scale(source.getWidth(), source.getHeight())), variant.resolve(original));
+      }
+    }
+    logger.debug("Generated variants of {} ({}x{})", original, source.getWidth(), source.getHeight());
+    return true;
+  }
+
+  /**
+   * Reads the size of an image from its header, without decoding the pixels.
+   *
+   * @param image the path of the image
+   * @return the width and height of the image, or empty if the format is not supported
+   * @throws IOException if the image could not be read
+   */
+  public Optional<Dimension> readDimensions(Path image) throws IOException {
+    try {
+      return withReader(image, reader -> new Dimension(reader.getWidth(0), reader.getHeight(0)));
+    } catch (IOException e) {
+      logger.debug("Could not read the size of {}", image, e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Reads an image with the first {@link ImageReader} supporting its format.
+   *
+   * @param image the path of the image
+   * @param read  reads from the reader, which is positioned at the start of the image
+   * @param <T>   the type of the result
+   * @return the result of {@code read}, or empty if the format is not supported or {@code read} returned {@code null}
+   * @throws IOException if the image could not be read
+   */
+  private static <T> Optional<T> withReader(Path image, ReaderFunction<T> read) throws IOException {
+    try (ImageInputStream in = ImageIO.createImageInputStream(image.toFile())) {
+      Iterator<ImageReader> readers = in == null ? Collections.emptyIterator() : ImageIO.getImageReaders(in);
+      if (!readers.hasNext()) {
+        return Optional.empty();
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(in, true, true);
+        return Optional.ofNullable(read.apply(reader));
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  /**
+   * Deletes every generated variant of an image.
+   *
+   * @param original the path of the original image
+   * @throws IOException if a variant could not be deleted
+   */
+  public void delete(Path original) throws IOException {
+    for (ImageVariant variant : ImageVariant.values()) {
+      if (variant != ImageVariant.ORIGINAL) {
+        Files.deleteIfExists(variant.resolve(original));
+      }
+    }
+  }
+
+  /**
+   * Scales an image down to a target size on a white opaque background.
+   * <p>
+   * Large reductions are done in steps of at most half the size, which keeps bilinear
+   * interpolation from dropping detail.
+   * </p>
+   *
+   * @param source the image to scale
+   * @param target the size of the result, from {@link ImageVariant#scale(int, int)}
+   * @return an RGB image of the target size
+   */
+  private static BufferedImage scale(BufferedImage source, Dimension target) {
+    int targetWidth = target.width;
+    int targetHeight = target.height;
+
+    BufferedImage current = source;
+    int width = source.getWidth();
+    int height = source.getHeight();
+    do {
+      width = Math.max(targetWidth, width / 2);
+      height = width == targetWidth ? targetHeight : Math.max(targetHeight, height / 2);
+
+      BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      Graphics2D graphics = step.createGraphics();
+      try {
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.drawImage(current, 0, 0, width, height, Color.WHITE, null);
+      } finally {
+        graphics.dispose();
+      }
+      current = step;
+    } while (width > targetWidth);
+
+    return current;
+  }
+
+  /**
+   * Writes an image as a compressed JPEG.
+   *
+   * @param image  the image to write
+   * @param target the path to write the image to
+   * @throws IOException if the image could not be written
+   */
+  private void writeJpeg(BufferedImage image, Path target) throws IOException {
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+    ImageWriteParam param = writer.getDefaultWriteParam();
+    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+    param.setCompressionQuality(jpegQuality);
+    param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+
+    try (OutputStream file = Files.newOutputStream(target);
+         ImageOutputStream out = ImageIO.createImageOutputStream(file)) {
+      writer.setOutput(out);
+      writer.write(null, new IIOImage(image, null, null), param);
+    } finally {
+      writer.dispose();
+    }
+  }
+
+  /**
+   * Reads from an {@link ImageReader}.
+   *
+   * @param <T> the type of the result
+   */
+  @FunctionalInterface
+  private interface ReaderFunction<T> {
+    T apply(ImageReader reader) throws IOException;
+  }
+}
@@ -0,0 +1,166 @@
+package stud.ntnu.no.idatt2105.Findigo.service;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import stud.ntnu.no.idatt2105.Findigo.entities.Listing;
+import stud.ntnu.no.idatt2105.Findigo.entities.ListingStatus;
+import stud.ntnu.no.idatt2105.Findigo.repository.ListingRepository;
+import stud.ntnu.no.idatt2105.Findigo.repository.ListingSearchTermRepository;
+import stud.ntnu.no.idatt2105.Findigo.search.SearchTokenizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service maintaining the full-text search index for listings.
+ * <p>
+ * Every active listing is split into terms which are stored in the {@code listing_search_term}
+ * table together with a relevance weight. Terms from the brief description weigh more than terms
+ * from the full description. The index is updated whenever a listing is created, edited or changes
+ * status, and rows are removed together with their listing.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+public class ListingSearchIndex {
+
+  private static final Logger logger = LogManager.getLogger(ListingSearchIndex.class);
+
+  /**
+   * Weight of each occurrence of a term in the brief description.
+   */
+  public static final int BRIEF_DESCRIPTION_WEIGHT = 3;
+
+  /**
+   * Weight of each occurrence of a term in the full description.
+   */
+  public static final int FULL_DESCRIPTION_WEIGHT = 1;
+
+  private static final int REBUILD_BATCH_SIZE = 500;
+
+  private static final String INSERT_TERM_SQL =
+      "insert into listing_search_term (term, weight, listing_id) values (?, ?, ?)";
+
+  private final ListingSearchTermRepository searchTermRepository;
+  private final ListingRepository listingRepository;
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Indexes a listing, replacing any existing index entries for it.
+   * <p>
+   * Listings that are not active are removed from the index, since they cannot be found by search.
+   * </p>
+   *
+   * @param listing the persisted listing to index
+   */
+  @Transactional
+  public void index(Listing listing) {
+    searchTermRepository.deleteByListingId(listing.getId());
+
+    if (listing.getListingStatus() != ListingStatus.ACTIVE) {
+      logger.debug("Listing ID {} is {}, not indexing", listing.getId(), listing.getListingStatus());
+      return;
+    }
+
+    insertTerms(List.of(new IndexedText(listing.getId(), listing.getBriefDescription(), listing.getFullDescription())));
+  }
+
+  /**
+   * Removes a listing from the index.
+   *
+   * @param listing the listing to remove
+   */
+  @Transactional
+  public void remove(Listing listing) {
+    int removed = searchTermRepository.deleteByListingId(listing.getId());
+    logger.debug("Removed {} index entries for listing ID {}", removed, listing.getId());
+  }
+
+  /**
+   * Builds the index on startup if it is empty, so listings created before the index existed become searchable.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional
+  public void rebuildIfEmpty() {
+    if (searchTermRepository.count() == 0) {
+      rebuild();
+    }
+  }
+
+  /**
+   * Rebuilds the index for all active listings.
+   * <p>
+   * Listings are read in batches ordered by ID, so memory use is bounded by the batch size.
+   * </p>
+   */
+  @Transactional
+  public void rebuild() {
+    logger.info("Rebuilding listing search index");
+    jdbcTemplate.update("delete from listing_search_term");
+
+    long lastId = 0;
+    int indexed = 0;
+    List<Object[]> batch;
+    do {
+      batch = listingRepository.findSearchableTextByListingStatusAfterId(
+          ListingStatus.ACTIVE, lastId, Limit.of(REBUILD_BATCH_SIZE));
+
+      List<IndexedText> texts = batch.stream()
+          .map(row -> new IndexedText((Long) row[0], (String) row[1], (String) row[2]))
+          .toList();
+      insertTerms(texts);
+
+      if (!batch.isEmpty()) {
+        lastId = texts.get(texts.size() - 1).listingId();
+        indexed += texts.size();
+      }
+    } while (batch.size() == REBUILD_BATCH_SIZE);
+
+    logger.info("Listing search index rebuilt for {} listings", indexed);
+  }
+
+  /**
+   * Computes the weighted terms for each listing and inserts them in a single JDBC batch.
+   *
+   * @param texts the listing texts to index
+   */
+  private void insertTerms(List<IndexedText> texts) {
+    List<Object[]> rows = new ArrayList<>();
+    for (IndexedText text : texts) {
+      weighTerms(text).forEach((term, weight) -> rows.add(new Object[]{term, weight, text.listingId()}));
+    }
+    if (!rows.isEmpty()) {
+      jdbcTemplate.batchUpdate(INSERT_TERM_SQL, rows);
+    }
+  }
+
+  /**
+   * Sums the weights of every term occurrence in a listing's descriptions.
+   *
+   * @param text the listing text
+   * @return a map from term to its total weight
+   */
+  private static Map<String, Integer> weighTerms(IndexedText text) {
+    Map<String, Integer> weights = new HashMap<>();
+    SearchTokenizer.tokenize(text.briefDescription())
+        .forEach(term -> weights.merge(term, BRIEF_DESCRIPTION_WEIGHT, Integer::sum));
+    SearchTokenizer.tokenize(text.fullDescription())
+        .forEach(term -> weights.merge(term, FULL_DESCRIPTION_WEIGHT, Integer::sum));
+    return weights;
+  }
+
+  /**
+   * The searchable text of a listing.
+   */
+  private record IndexedText(Long listingId, String briefDescription, String fullDescription) {
+  }
+}
@@ -1,16 +1,19 @@
 package stud.ntnu.no.idatt2105.Findigo.service;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import stud.ntnu.no.idatt2105.Findigo.config.SecurityUtil;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.FilterListingsRequest;
+import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingFeedResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.mappers.ListingAttributeMapper;
@@ -22,12 +25,14 @@ import stud.ntnu.no.idatt2105.Findigo.exception.CustomErrorMessage;
 import stud.ntnu.no.idatt2105.Findigo.exception.customExceptions.AppEntityNotFoundException;
 import stud.ntnu.no.idatt2105.Findigo.exception.customExceptions.UnauthorizedOperationException;
 import stud.ntnu.no.idatt2105.Findigo.repository.CategoryRepository;
+import stud.ntnu.no.idatt2105.Findigo.repository.Cursors;
+import stud.ntnu.no.idatt2105.Findigo.repository.ListingCursor;
 import stud.ntnu.no.idatt2105.Findigo.repository.ListingRepository;
+import stud.ntnu.no.idatt2105.Findigo.repository.ListingSpecifications;
 
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.stream.Stream;
 import stud.ntnu.no.idatt2105.Findigo.repository.SaleRepository;
 
 /**
@@ -51,6 +56,8 @@ public class ListingService {
   private final ListingMapper listingMapper;
   private final SaleRepository saleRepository;
   private final UserService userService;
+  private final ListingSearchIndex searchIndex;
+  private final ImageService imageService;
 
 
   private void checkAccessToListing(Listing listing) {
@@ -78,6 +85,7 @@ public class ListingService {
     Listing listing = listingMapper.toEntity(req, currentUser, category, category.getAttributes());
 
     Listing savedListing = listingRepository.save(listing);
+    searchIndex.index(savedListing);
 
     logger.info("Listing created successfully with ID {}", savedListing.getId());
     return listingMapper.toDto(savedListing);
@@ -129,12 +137,11 @@ public class ListingService {
   public List<ListingResponse> getAllListings() {
     List<Listing> listings;
 
-    Optional<User> currentUser = securityUtil.getCurrentUserIfAuthenticated();
+    Optional<Long> currentUserId = securityUtil.getCurrentUserIdIfAuthenticated();
 
-    if (currentUser.isPresent()) {
-      long currentUserId = currentUser.get().getId();
-      logger.info("Fetching listings excluding user ID {}", currentUserId);
-      listings = listingRepository.findAllByUser_IdNotAndListingStatus(currentUserId, ListingStatus.ACTIVE);
+    if (currentUserId.isPresent()) {
+      logger.info("Fetching listings excluding user ID {}", currentUserId.get());
+      listings = listingRepository.findAllByUser_IdNotAndListingStatus(currentUserId.get(), ListingStatus.ACTIVE);
     } else {
       logger.info("Fetching listings for anonymous user");
       listings = listingRepository.findAllByListingStatus(ListingStatus.ACTIVE);
@@ -201,6 +208,7 @@ public class ListingService {
                             .toList());
 
     Listing updatedListing = listingRepository.save(listing);
+    searchIndex.index(updatedListing);
 
     logger.info("Listing updated successfully with ID {}", listingId);
     return listingMapper.toDto(updatedListing);
@@ -224,6 +232,7 @@ public class ListingService {
 
     checkAccessToListing(listing);
 
+    imageService.releaseImagesOfListing(listingId);
     listingRepository.deleteById(listingId);
     logger.info("Listing deleted successfully with ID {}", listingId);
   }
@@ -232,25 +241,26 @@ public class ListingService {
 
   /**
    * Retrieves a paginated list of filtered listings based on the given filter request.
+   * <p>
+   * The filter is evaluated by the database, which returns only the requested page
+   * along with the total number of matching listings. Listings are ordered by relevance
+   * to the search query, then newest first.
+   * </p>
    *
    * @param page                  The page number to retrieve.
    * @param size                  The number of listings per page.
    * @param filterListingsRequest The request containing filter criteria.
    * @return A {@link Page} of {@link ListingResponse} objects matching the filter criteria.
+   * @throws IllegalArgumentException if the page number is negative or the size is less than one.
    */
+  @Timed(value = "findigo.listings.filter", description = "Time spent filtering listings", histogram = true)
   @Transactional
   public Page<ListingResponse> getFilteredListings(int page, int size, FilterListingsRequest filterListingsRequest) {
-    List<ListingResponse> filteredListings = getAllFilteredListings(filterListingsRequest);
-
-    int start = Math.min(page * size, filteredListings.size());
-    int end = Math.min(start + size, filteredListings.size());
+    PageRequest pageRequest = PageRequest.of(page, size);
 
-    if (start > filteredListings.size() || start < 0 || end > filteredListings.size() || end < 0) {
-      throw new IllegalArgumentException("Invalid page or size parameters");
-    }
+    Page<Listing> listings = listingRepository.findAll(filterSpecification(filterListingsRequest), pageRequest);
 
-    List<ListingResponse> pagedListings = filteredListings.subList(start, end);
-    return new PageImpl<>(pagedListings, PageRequest.of(page, size), filteredListings.size());
+    return listings.map(listingMapper::toDto);
   }
 
   /**
@@ -259,44 +269,54 @@ public class ListingService {
    * @param filterListingsRequest The request containing filter criteria.
    * @return A list of {@link ListingResponse} objects matching the filter criteria.
    */
+  @Timed(value = "findigo.listings.filter", description = "Time spent filtering listings", histogram = true)
   @Transactional
   public List<ListingResponse> getAllFilteredListings(FilterListingsRequest filterListingsRequest) {
-    Optional<User> currentUser = securityUtil.getCurrentUserIfAuthenticated();
-    long excludeUserId = currentUser.map(User::getId).orElse(-1L);
-
-    List<Listing> listingsToFilter;
-    if (filterListingsRequest.getCategoryId() != null) {
-      listingsToFilter = listingRepository.findByCategoryIdAndUser_IdNotAndListingStatus(
-          filterListingsRequest.getCategoryId(), excludeUserId, ListingStatus.ACTIVE);
-    } else {
-      listingsToFilter = listingRepository.findAllByUser_IdNotAndListingStatus(excludeUserId, ListingStatus.ACTIVE);
-    }
-
-    Stream<Listing> stream = listingsToFilter.stream();
-
-    if (filterListingsRequest.getQuery() != null) {
-      stream = stream.filter(listing -> listing.getBriefDescription().toLowerCase()
-          .contains(filterListingsRequest.getQuery().toLowerCase())
-          || listing.getFullDescription().toLowerCase()
-          .contains(filterListingsRequest.getQuery().toLowerCase()));
-    }
-
-    if (filterListingsRequest.getFromPrice() != null) {
-      stream = stream.filter(listing -> listing.getPrice() >= filterListingsRequest.getFromPrice());
-    }
+    return listingRepository.findAll(filterSpecification(filterListingsRequest))
+        .stream()
+        .map(listingMapper::toDto)
+        .toList();
+  }
 
-    if (filterListingsRequest.getToPrice() != null) {
-      stream = stream.filter(listing -> listing.getPrice() <= filterListingsRequest.getToPrice());
-    }
+  /**
+   * Retrieves a cursor-paginated feed of filtered listings, newest first.
+   * <p>
+   * Unlike {@link #getFilteredListings(int, int, FilterListingsRequest)}, results are not ranked by
+   * relevance, so that every page can be found by seeking past the previous one in the index.
+   * </p>
+   *
+   * @param cursor                The cursor returned with the previous page, or {@code null} for the first page.
+   * @param size                  The number of listings per page.
+   * @param filterListingsRequest The request containing filter criteria.
+   * @return A {@link ListingFeedResponse} with the listings and the cursor of the next page.
+   * @throws IllegalArgumentException if the cursor is malformed or the size is less than one.
+   */
+  @Transactional
+  public ListingFeedResponse getFilteredListingsFeed(String cursor, int size, FilterListingsRequest filterListingsRequest) {
+    Cursors.requireValidPageSize(size);
+    Specification<Listing> specification = ListingSpecifications.matchesFilter(filterListingsRequest, excludedUserId());
 
-    if (filterListingsRequest.getFromDate() != null) {
-      stream = stream.filter(listing -> listing.getDateCreated()
-          .after(filterListingsRequest.getFromDate()));
-    }
+    List<Listing> listings = listingRepository.findFeedPage(specification, ListingCursor.decode(cursor), size);
+    return listingMapper.toFeedDto(listings, size);
+  }
 
-    List<Listing> filteredListings = stream.toList();
+  /**
+   * Builds the listing specification for a filter request, excluding the current user's own listings.
+   *
+   * @param filterListingsRequest The request containing filter criteria.
+   * @return A {@link Specification} matching the filter criteria.
+   */
+  private Specification<Listing> filterSpecification(FilterListingsRequest filterListingsRequest) {
+    return ListingSpecifications.fromFilter(filterListingsRequest, excludedUserId());
+  }
 
-    return filteredListings.stream().map(listingMapper::toDto).toList();
+  /**
+   * Returns the ID of the current user, whose own listings are excluded from search results.
+   *
+   * @return the ID of the current user, or {@code null} if not authenticated.
+   */
+  private Long excludedUserId() {
+    return securityUtil.getCurrentUserIdIfAuthenticated().orElse(null);
   }
 
   /**
@@ -318,6 +338,7 @@ public class ListingService {
 
     soldListing.setListingStatus(ListingStatus.SOLD);
     listingRepository.save(soldListing);
+    searchIndex.remove(soldListing);
 
     Sale sale = new Sale()
         .setListing(soldListing)
@@ -349,6 +370,7 @@ public class ListingService {
 
     archivedListing.setListingStatus(ListingStatus.ARCHIVED);
     listingRepository.save(archivedListing);
+    searchIndex.remove(archivedListing);
 
     logger.info("Listing ID {} marked as archived", listingId);
   }
@@ -374,6 +396,7 @@ public class ListingService {
 
     activeListing.setListingStatus(ListingStatus.ACTIVE);
     listingRepository.save(activeListing);
+    searchIndex.index(activeListing);
 
     logger.info("Listing ID {} marked as active", listingId);
   }
@@ -440,10 +463,8 @@ public class ListingService {
         .setCategory(house)
         .setListingStatus(ListingStatus.ACTIVE);
 
-    listingRepository.save(listing1);
-    listingRepository.save(listing2);
-    listingRepository.save(listing3);
-    listingRepository.save(listing4);
+    listingRepository.saveAll(List.of(listing1, listing2, listing3, listing4))
+        .forEach(searchIndex::index);
   }
 
   @Transactional
@@ -0,0 +1,162 @@
+package stud.ntnu.no.idatt2105.Findigo.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * In-memory broker pushing message events to the users connected to this instance.
+ * <p>
+ * Each user can have several subscriptions, one per open client. Clients connect through
+ * {@link #openStream(Long)}, which adapts a subscription to Server-Sent Events, while tests
+ * subscribe a {@link Listener} directly. Events published inside a transaction are delivered
+ * after it commits, so clients are never told about messages that were rolled back.
+ * </p>
+ */
+@Service
+public class MessageEventBroker {
+
+  private static final Logger logger = LogManager.getLogger(MessageEventBroker.class);
+
+  /**
+   * The name of the event carrying a new {@link stud.ntnu.no.idatt2105.Findigo.dtos.message.MessageResponse}.
+   */
+  public static final String MESSAGE_EVENT = "message";
+
+  /**
+   * The name of the event carrying an {@link stud.ntnu.no.idatt2105.Findigo.dtos.message.UnreadCountResponse}.
+   */
+  public static final String UNREAD_COUNT_EVENT = "unread-count";
+
+  /**
+   * The number of milliseconds an event stream stays open before the client has to reconnect.
+   */
+  @Value("${messages.stream.timeout-ms:1800000}")
+  private long streamTimeoutMs;
+
+  private final Map<Long, Set<Listener>> listeners = new ConcurrentHashMap<>();
+
+  /**
+   * Subscribes to the events of a user.
+   * <p>
+   * The listener is added inside {@link Map#compute}, like the removal in {@link #unsubscribe},
+   * so a concurrent unsubscribe cannot drop the set of listeners between creating it and adding to it.
+   * </p>
+   *
+   * @param userId   the ID of the user
+   * @param listener the listener receiving the events
+   * @return a {@link Runnable} that cancels the subscription
+   */
+  public Runnable subscribe(Long userId, Listener listener) {
+    listeners.compute(userId, (id, userListeners) -> {
+      Set<Listener> subscribed = userListeners != null ? userListeners : new CopyOnWriteArraySet<>();
+      subscribed.add(listener);
+      return subscribed;
+    });
+    logger.debug("User {} subscribed to message events", userId);
+    return () -> unsubscribe(userId, listener);
+  }
+
+  /**
+   * Opens a Server-Sent Events stream of the events of a user.
+   *
+   * @param userId the ID of the user
+   * @return the {@link SseEmitter} to return from the controller
+   */
+  public SseEmitter openStream(Long userId) {
+    SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+    Runnable unsubscribe = subscribe(userId, (name, payload) ->
+        emitter.send(SseEmitter.event().name(name).data(payload, MediaType.APPLICATION_JSON)));
+
+    emitter.onCompletion(unsubscribe);
+    emitter.onTimeout(unsubscribe);
+    emitter.onError(e -> unsubscribe.run());
+    return emitter;
+  }
+
+  /**
+   * Publishes an event to every subscription of a user.
+   * <p>
+   * When called inside a transaction the event is delivered after the commit, and dropped on rollback.
+   * </p>
+   *
+   * @param userId  the ID of the user
+   * @param name    the name of the event
+   * @param payload the payload of the event
+   */
+  public void publish(Long userId, String name, Object payload) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          deliver(userId, name, payload);
+        }
+      });
+    } else {
+      deliver(userId, name, payload);
+    }
+  }
+
+  /**
+   * Delivers an event to every subscription of a user, cancelling subscriptions that fail.
+   *
+   * @param userId  the ID of the user
+   * @param name    the name of the event
+   * @param payload the payload of the event
+   */
+  private void deliver(Long userId, String name, Object payload) {
+    Set<Listener> userListeners = listeners.get(userId);
+    if (userListeners == null) {
+      return;
+    }
+
+    for (Listener listener : userListeners) {
+      try {
+        listener.onEvent(name, payload);
+      } catch (IOException | IllegalStateException e) {
+        logger.debug("Dropping message event subscription of user {}: {}", userId, e.getMessage());
+        unsubscribe(userId, listener);
+      }
+    }
+  }
+
+  /**
+   * Cancels a subscription.
+   *
+   * @param userId   the ID of the user
+   * @param listener the listener of the subscription
+   */
+  private void unsubscribe(Long userId, Listener listener) {
+    listeners.computeIfPresent(userId, (id, userListeners) -> {
+      userListeners.remove(listener);
+      return userListeners.isEmpty() ? null : userListeners;
+    });
+  }
+
+  /**
+   * Receiver of the message events of a user.
+   */
+  @FunctionalInterface
+  public interface Listener {
+
+    /**
+     * Handles an event.
+     *
+     * @param name    the name of the event
+     * @param payload the payload of the event
+     * @throws IOException if the event could not be delivered, which cancels the subscription
+     */
+    void onEvent(String name, Object payload) throws IOException;
+  }
+}
@@ -1,5 +1,6 @@
 package stud.ntnu.no.idatt2105.Findigo.service;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 import org.apache.logging.log4j.LogManager;
@@ -8,14 +9,19 @@ import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import stud.ntnu.no.idatt2105.Findigo.config.SecurityUtil;
 import stud.ntnu.no.idatt2105.Findigo.dtos.mappers.MessageMapper;
+import stud.ntnu.no.idatt2105.Findigo.dtos.message.MessagePageResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.message.MessageRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.message.MessageResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.message.UnreadCountResponse;
 import stud.ntnu.no.idatt2105.Findigo.entities.Message;
 import stud.ntnu.no.idatt2105.Findigo.entities.User;
 import stud.ntnu.no.idatt2105.Findigo.exception.CustomErrorMessage;
 import stud.ntnu.no.idatt2105.Findigo.exception.customExceptions.AppEntityNotFoundException;
+import stud.ntnu.no.idatt2105.Findigo.repository.Cursors;
+import stud.ntnu.no.idatt2105.Findigo.repository.MessageCursor;
 import stud.ntnu.no.idatt2105.Findigo.repository.MessageRepository;
 import stud.ntnu.no.idatt2105.Findigo.repository.UserRepository;
 
@@ -36,18 +42,25 @@ public class MessageService {
 
   private final MessageRepository messageRepository;
   private final UserRepository userRepository;
-  private final UserService userService;
   private final MessageMapper messageMapper;
   private final SecurityUtil securityUtil;
+  private final ConversationService conversationService;
+  private final MessageEventBroker messageEventBroker;
 
   /**
    * Sends a message from one user to another.
+   * <p>
+   * The message is also recorded in the conversation between the two users. Once the message
+   * is committed it is pushed to both users, together with the recipient's new unread count,
+   * through the {@link MessageEventBroker}.
+   * </p>
    *
    * @param messageRequest The {@link MessageRequest} containing message details.
    * @return A {@link MessageResponse} DTO representing the sent message.
    * @throws AppEntityNotFoundException if either the sender or receiver is not found.
    * @throws AccessDeniedException if the authenticated user does not match the sender.
    */
+  @Transactional
   public MessageResponse sendMessage(MessageRequest messageRequest) {
     User currentUser = securityUtil.getCurrentUser();
     User sender = userRepository.findById(messageRequest.getFromUserId())
@@ -67,9 +80,18 @@ public class MessageService {
             .setToUser(receiver);
 
     messageRepository.save(message);
+    int unreadCount = conversationService.recordMessage(message);
     logger.info("Message sent from user {} to user {}", sender.getId(), receiver.getId());
 
-    return messageMapper.toDto(message);
+    MessageResponse response = messageMapper.toDto(message);
+    messageEventBroker.publish(receiver.getId(), MessageEventBroker.MESSAGE_EVENT, response);
+    messageEventBroker.publish(receiver.getId(), MessageEventBroker.UNREAD_COUNT_EVENT,
+            new UnreadCountResponse(sender.getId(), unreadCount));
+    if (!sender.getId().equals(receiver.getId())) {
+      messageEventBroker.publish(sender.getId(), MessageEventBroker.MESSAGE_EVENT, response);
+    }
+
+    return response;
   }
 
   /**
@@ -80,31 +102,16 @@ public class MessageService {
    *
    * @param userId1 The ID of the first user.
    * @param userId2 The ID of the second user.
-   * @return A list of {@link MessageResponse} objects.
-   * @throws AppEntityNotFoundException if the current user is not found.
+   * @return A list of {@link MessageResponse} objects, newest first.
+   * @throws AppEntityNotFoundException if either user is not found.
    * @throws AccessDeniedException if the current user is not one of the participants.
    */
   @Transactional
   public List<MessageResponse> getAllMessagesBetween(long userId1, long userId2) {
-    // TODO: Paginate response for efficiency
-    User currentUser = securityUtil.getCurrentUser();
-    if (!Objects.equals(currentUser.getId(), userId1) && !Objects.equals(currentUser.getId(), userId2)) {
-      logger.warn("Access denied: Current user {} is not part of conversation {} <-> {}", currentUser.getId(), userId1, userId2);
-      throw new AccessDeniedException("Neither of the given userIds (" + userId1 + ", " + userId2 + ") match the current user (" + currentUser.getId() + ")");
-    }
+    markConversationRead(userId1, userId2);
 
-    User user1 = userService.getUserById(userId1);
-    User user2 = userService.getUserById(userId2);
-
-    List<Message> messages = getAllRawMessagesBetween(user1, user2);
-
-    messages.stream()
-            .filter(m -> !m.isRead() && m.getToUser().equals(currentUser))
-            .forEach(m -> m.setRead(true));
-
-    List<MessageResponse> responses = messages.stream()
+    List<MessageResponse> responses = messageRepository.findAllBetween(userId1, userId2).stream()
             .map(messageMapper::toDto)
-            .sorted(Comparator.comparing(MessageResponse::getSentAt).reversed())
             .toList();
 
     logger.info("Retrieved {} messages between user {} and user {}", responses.size(), userId1, userId2);
@@ -113,44 +120,71 @@ public class MessageService {
   }
 
   /**
-   * Retrieves the newest message in each conversation for a given user.
+   * Retrieves one page of the messages exchanged between two users, newest first.
+   * <p>
+   * Marks unread messages as read if they are directed to the current user.
+   * </p>
    *
-   * @param userID The ID of the user.
-   * @return A list of {@link MessageResponse} objects representing the newest messages.
-   * @throws AccessDeniedException if the user ID does not match the authenticated user.
+   * @param userId1 The ID of the first user.
+   * @param userId2 The ID of the second user.
+   * @param cursor  The cursor returned with the previous page, or {@code null} for the newest messages.
+   * @param size    The number of messages per page.
+   * @return A {@link MessagePageResponse} with the messages and the cursor of the page of older messages.
+   * @throws AppEntityNotFoundException if either user is not found.
+   * @throws AccessDeniedException if the current user is not one of the participants.
+   * @throws IllegalArgumentException if the cursor is malformed or the size is less than one.
    */
   @Transactional
-  public List<MessageResponse> getNewestMessages(long userID) {
-    User currentUser = securityUtil.getCurrentUser();
-    if (!currentUser.getId().equals(userID)) {
-      logger.warn("Access denied: Requested userId {} does not match current user {}", userID, currentUser.getId());
-      throw new AccessDeniedException("Requested userId (" + userID + ") does not match current user (" + currentUser.getId() + ")");
-    }
+  public MessagePageResponse getMessagesBetween(long userId1, long userId2, String cursor, int size) {
+    Cursors.requireValidPageSize(size);
+    MessageCursor decodedCursor = MessageCursor.decode(cursor);
+    markConversationRead(userId1, userId2);
 
-    List<Message> allMessages = new ArrayList<>();
-    allMessages.addAll(messageRepository.findMessagesByToUser(currentUser));
-    allMessages.addAll(messageRepository.findMessagesByFromUser(currentUser));
+    List<Message> messages = messageRepository.findPageBetween(userId1, userId2, decodedCursor, size);
+    MessagePageResponse page = messageMapper.toPageDto(messages, size);
 
-    Set<Long> userIdsCommunicatedWith = new HashSet<>();
-    for (Message message : allMessages) {
-      userIdsCommunicatedWith.add(message.getFromUser().getId());
-      userIdsCommunicatedWith.add(message.getToUser().getId());
-    }
-    userIdsCommunicatedWith.remove(userID); // Remove current user ID
+    logger.info("Retrieved {} messages between user {} and user {}", page.getMessages().size(), userId1, userId2);
 
-    List<MessageResponse> newestMessages = new ArrayList<>();
+    return page;
+  }
 
-    for (Long otherUserId : userIdsCommunicatedWith) {
-      User otherUser = userService.getUserById(otherUserId);
-      List<Message> conversation = getAllRawMessagesBetween(currentUser, otherUser);
+  /**
+   * Opens a stream of the message events of the current user.
+   * <p>
+   * New messages to and from the user and changes of their unread counts are pushed as they are committed,
+   * so clients do not need to poll {@link #getNewestMessages(long)}.
+   * </p>
+   *
+   * @return an {@link SseEmitter} delivering the events of the current user
+   */
+  public SseEmitter openEventStream() {
+    Long currentUserId = securityUtil.getCurrentUserId();
+    logger.info("Opening message event stream for user {}", currentUserId);
+    return messageEventBroker.openStream(currentUserId);
+  }
 
-      if (!conversation.isEmpty()) {
-        Message latestMessage = conversation.get(conversation.size() - 1);
-        newestMessages.add(messageMapper.toDto(latestMessage));
-      }
+  /**
+   * Retrieves the newest message in each conversation for a given user.
+   * <p>
+   * The messages are read in a single query through the user's conversations, newest first.
+   * </p>
+   *
+   * @param userID The ID of the user.
+   * @return A list of {@link MessageResponse} objects representing the newest messages.
+   * @throws AccessDeniedException if the user ID does not match the authenticated user.
+   */
+  @Timed(value = "findigo.messages.newest", description = "Time spent reading the newest message of each conversation", histogram = true)
+  @Transactional
+  public List<MessageResponse> getNewestMessages(long userID) {
+    Long currentUserId = securityUtil.getCurrentUserId();
+    if (!currentUserId.equals(userID)) {
+      logger.warn("Access denied: Requested userId {} does not match current user {}", userID, currentUserId);
+      throw new AccessDeniedException("Requested userId (" + userID + ") does not match current user (" + currentUserId + ")");
     }
 
-    newestMessages.sort(Comparator.comparing(MessageResponse::getSentAt).reversed());
+    List<MessageResponse> newestMessages = messageRepository.findLastMessagesOfConversations(currentUserId).stream()
+            .map(messageMapper::toDto)
+            .toList();
 
     logger.info("Retrieved {} latest messages for user {}", newestMessages.size(), userID);
 
@@ -158,18 +192,31 @@ public class MessageService {
   }
 
   /**
-   * Retrieves all raw message entities between two users.
+   * Marks the messages the current user has received from the other user in a conversation as read.
    *
-   * @param user1 The first user.
-   * @param user2 The second user.
-   * @return A list of {@link Message} entities, sorted by send time.
+   * @param userId1 The ID of the first user.
+   * @param userId2 The ID of the second user.
+   * @throws AppEntityNotFoundException if either user is not found.
+   * @throws AccessDeniedException if the current user is not one of the participants.
    */
-  private List<Message> getAllRawMessagesBetween(User user1, User user2) {
-    List<Message> messages = new ArrayList<>();
-    messages.addAll(messageRepository.findMessagesByFromUserAndToUser(user1, user2));
-    messages.addAll(messageRepository.findMessagesByFromUserAndToUser(user2, user1));
+  private void markConversationRead(long userId1, long userId2) {
+    Long currentUserId = securityUtil.getCurrentUserId();
+    if (!Objects.equals(currentUserId, userId1) && !Objects.equals(currentUserId, userId2)) {
+      logger.warn("Access denied: Current user {} is not part of conversation {} <-> {}", currentUserId, userId1, userId2);
+      throw new AccessDeniedException("Neither of the given userIds (" + userId1 + ", " + userId2 + ") match the current user (" + currentUserId + ")");
+    }
 
-    messages.sort(Comparator.comparing(Message::getSentAt));
-    return messages;
+    long otherUserId = Objects.equals(currentUserId, userId1) ? userId2 : userId1;
+    if (!userRepository.existsById(otherUserId)) {
+      throw new AppEntityNotFoundException(CustomErrorMessage.USERNAME_NOT_FOUND);
+    }
+
+    int read = messageRepository.markAllRead(otherUserId, currentUserId);
+    conversationService.markRead(currentUserId, otherUserId);
+    if (read > 0) {
+      messageEventBroker.publish(currentUserId, MessageEventBroker.UNREAD_COUNT_EVENT,
+              new UnreadCountResponse(otherUserId, 0));
+    }
+    logger.debug("Marked {} messages from user {} to user {} as read", read, otherUserId, currentUserId);
   }
 }
@@ -0,0 +1,138 @@
+package stud.ntnu.no.idatt2105.Findigo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the authenticated principals of JWT tokens.
+ * <p>
+ * Principals are cached by username and token issue time, so requests carrying the same token
+ * are authenticated without loading the user from the database. Entries expire after a configurable
+ * time, and all entries of a user are removed when {@link UserService} changes the user, so edits of
+ * the username, password or roles take effect on the next request.
+ * </p>
+ * <p>
+ * Entries are removed once the change is committed. A principal whose loading overlapped a removal
+ * may have been read before the commit, so it is returned but not cached.
+ * </p>
+ */
+@Service
+public class PrincipalCache {
+
+  private static final Logger logger = LogManager.getLogger(PrincipalCache.class);
+
+  private final CustomUserDetailsService userDetailsService;
+  private final Cache<PrincipalKey, UserDetails> cache;
+  private final AtomicLong invalidations = new AtomicLong();
+  private final Object lock = new Object();
+
+  /**
+   * Creates the cache.
+   *
+   * @param userDetailsService the service to load principals missing from the cache
+   * @param maximumSize        the maximum number of cached principals
+   * @param ttlSeconds         the number of seconds a principal is cached
+   * @param meterRegistry      the registry the hit ratio of the cache is published to
+   */
+  public PrincipalCache(CustomUserDetailsService userDetailsService,
+                        @Value("${security.principal-cache.maximum-size:10000}") long maximumSize,
+                        @Value("${security.principal-cache.ttl-seconds:300}") long ttlSeconds,
+                        MeterRegistry meterRegistry) {
+    this.userDetailsService = userDetailsService;
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "principals");
+  }
+
+  /**
+   * Retrieves the principal of a token, loading it if it is not cached.
+   *
+   * @param username the username of the token
+   * @param issuedAt the issue time of the token, or {@code null} if the token has none
+   * @return the {@link UserDetails} of the user
+   * @throws UsernameNotFoundException if the user does not exist
+   */
+  public UserDetails getPrincipal(String username, Date issuedAt) {
+    PrincipalKey key = new PrincipalKey(username, issuedAt == null ? 0 : issuedAt.getTime());
+    UserDetails principal = cache.getIfPresent(key);
+    if (principal != null) {
+      return principal;
+    }
+    long invalidationsBeforeLoad = invalidations.get();
+    principal = userDetailsService.loadUserByUsername(username);
+    synchronized (lock) {
+      if (invalidations.get() == invalidationsBeforeLoad) {
+        cache.put(key, principal);
+      }
+    }
+    return principal;
+  }
+
+  /**
+   * Removes every cached principal of a user.
+   * <p>
+   * When called inside a transaction the principals are removed after the commit, since a request
+   * before the commit would load the unchanged user again.
+   * </p>
+   *
+   * @param username the username of the user
+   */
+  public void invalidate(String username) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          evict(username);
+        }
+      });
+    } else {
+      evict(username);
+    }
+  }
+
+  /**
+   * Removes every cached principal.
+   */
+  public void invalidateAll() {
+    synchronized (lock) {
+      invalidations.incrementAndGet();
+      cache.invalidateAll();
+    }
+  }
+
+  /**
+   * Removes the cached principals of a user, and keeps principals being loaded concurrently from being cached.
+   *
+   * @param username the username of the user
+   */
+  private void evict(String username) {
+    synchronized (lock) {
+      invalidations.incrementAndGet();
+      cache.asMap().keySet().removeIf(key -> key.username().equals(username));
+    }
+    logger.debug("Cached principals of user {} invalidated", username);
+  }
+
+  /**
+   * The username and issue time of a token.
+   */
+  private record PrincipalKey(String username, long issuedAt) {
+  }
+}
@@ -1,146 +1,148 @@
 package stud.ntnu.no.idatt2105.Findigo.service;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import stud.ntnu.no.idatt2105.Findigo.config.SecurityUtil;
+import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingFeedResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.mappers.ListingMapper;
 import stud.ntnu.no.idatt2105.Findigo.entities.*;
-import stud.ntnu.no.idatt2105.Findigo.repository.BrowseHistoryRepository;
+import stud.ntnu.no.idatt2105.Findigo.repository.Cursors;
+import stud.ntnu.no.idatt2105.Findigo.repository.ListingCursor;
 import stud.ntnu.no.idatt2105.Findigo.repository.ListingRepository;
+import stud.ntnu.no.idatt2105.Findigo.repository.ListingSpecifications;
 
-import java.sql.Date;
-import java.time.LocalDate;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.List;
 
 /**
  * Service for generating listing recommendations based on user browsing history.
  * <p>
- * Recommendations are based on the most frequently visited categories
- * by the current user in the last 10 days.
+ * Recommendations are based on the categories the current user is most interested in,
+ * as tracked by {@link CategoryAffinityService} from the listings they view.
  * </p>
  */
-import static java.util.Arrays.stream;
-
 @Service
 @RequiredArgsConstructor
 public class RecommendationService {
-  Logger logger = LogManager.getLogger(RecommendationService.class);
+  private static final Logger logger = LogManager.getLogger(RecommendationService.class);
 
-  private final BrowseHistoryRepository browseHistoryRepository;
   private final ListingRepository listingRepository;
   private final SecurityUtil securityUtil;
   private final ListingMapper listingMapper;
+  private final CategoryAffinityService categoryAffinityService;
+  private final BrowseHistoryWriter browseHistoryWriter;
 
   /**
    * Retrieves recommended listings for the current user.
    * <p>
-   * Recommendations are based on categories most frequently browsed
-   * by the user in the past 10 days. Listings the user has already viewed
-   * are excluded from the recommendations.
+   * Recommendations are active listings by other users in the categories the user is
+   * interested in, ordered by the user's affinity for the category and then newest first.
+   * Users without recent browse history get all active listings by other users, newest first.
    * </p>
    *
    * @param page the page number to retrieve (zero-based)
    * @param size the number of listings per page
    * @return a paginated {@link Page} of recommended listings
+   * @throws IllegalArgumentException if the page number is negative or the size is less than one
    */
-  @Transactional()
+  @Timed(value = "findigo.listings.recommended", description = "Time spent recommending listings", histogram = true)
+  @Transactional
   public Page<ListingResponse> getRecommendedListings(int page, int size) {
-    User user = securityUtil.getCurrentUser();
+    Long userId = securityUtil.getCurrentUserId();
 
-    LocalDate tenDaysAgo = LocalDate.now().minusDays(10);
-    Date cutoff = java.sql.Date.valueOf(tenDaysAgo);
+    List<Long> rankedCategoryIds = categoryAffinityService.getRankedCategoryIds(userId);
+    logger.debug("User ID {} is interested in {} categories", userId, rankedCategoryIds.size());
 
-    List<BrowseHistory> recentUserBrowseHistory = browseHistoryRepository.findByUserAndCreatedAtAfter(user, cutoff);
-    logger.info("User " + user.getUsername() + " has " + recentUserBrowseHistory.size() + " browse history entries in the last 10 days.");
+    Specification<Listing> candidates = ListingSpecifications.hasStatus(ListingStatus.ACTIVE)
+        .and(ListingSpecifications.notOwnedBy(userId));
 
-    if (recentUserBrowseHistory.isEmpty()) {
-      logger.info("User " + user.getUsername() + " has no browse history in the last 10 days.");
-      List<Listing> allListings = listingRepository.findAllByUser_IdNotAndListingStatus(user.getId(), ListingStatus.ACTIVE);
-      int start = Math.min(page * size, allListings.size());
-      int end = Math.min(start + size, allListings.size());
-      List<Listing> pagedListings = allListings.subList(start, end);
-      return new PageImpl<>(pagedListings.stream().map(listingMapper::toDto).toList(), PageRequest.of(page, size), allListings.size());
+    if (rankedCategoryIds.isEmpty()) {
+      return listingRepository.findAll(candidates, PageRequest.of(page, size, ListingSpecifications.NEWEST_FIRST))
+          .map(listingMapper::toDto);
     }
-    // Most viewed categories
-    Map<Category, Long> categoryFrequency = new HashMap<>();
-    for (BrowseHistory browseHistory : recentUserBrowseHistory) {
-      Category category = browseHistory.getListing().getCategory();
-      categoryFrequency.put(category, categoryFrequency.getOrDefault(category, 0L) + 1);
-    }
-    logger.info("User " + user.getUsername() + " has viewed " + categoryFrequency.size() + " categories in the last 10 days.");
-
-    List<Category> sortedCategories = categoryFrequency.entrySet().stream()
-        .sorted(Map.Entry.<Category, Long>comparingByValue().reversed())
-        .map(Map.Entry::getKey)
-        .toList();
-    logger.info("User " + user.getUsername() + " sorted categories length is " + sortedCategories.size());
 
+    Specification<Listing> recommended = candidates
+        .and(ListingSpecifications.inCategories(rankedCategoryIds))
+        .and(ListingSpecifications.orderedByCategoryRank(rankedCategoryIds));
 
+    return listingRepository.findAll(recommended, PageRequest.of(page, size))
+        .map(listingMapper::toDto);
+  }
 
-    Set<Long> excludedListingIds = listingRepository.findListingsByUser(user).stream()
-        .map(Listing::getId)
-        .collect(Collectors.toSet());
-    logger.info("User " + user.getUsername() + " has " + excludedListingIds.size() + " excluded listings.");
-
-    List<Listing> allRecommendedListings = new ArrayList<>();
+  /**
+   * Retrieves a cursor-paginated feed of recommended listings for the current user.
+   * <p>
+   * The feed contains active listings by other users in the categories the user is
+   * interested in, newest first. Users without recent browse history get all active
+   * listings by other users.
+   * </p>
+   *
+   * @param cursor the cursor returned with the previous page, or {@code null} for the first page
+   * @param size   the number of listings per page
+   * @return a {@link ListingFeedResponse} with the listings and the cursor of the next page
+   * @throws IllegalArgumentException if the cursor is malformed or the size is less than one
+   */
+  @Transactional
+  public ListingFeedResponse getRecommendedListingsFeed(String cursor, int size) {
+    Cursors.requireValidPageSize(size);
+    Long userId = securityUtil.getCurrentUserId();
 
-    for (Category category : sortedCategories) {
+    List<Long> categoryIds = categoryAffinityService.getRankedCategoryIds(userId);
+    logger.debug("User ID {} is interested in {} categories", userId, categoryIds.size());
 
-      List<Listing> listingsInCategory;
-      if (excludedListingIds.isEmpty()) {
-        listingsInCategory = listingRepository.findListingsByCategoryIdAndListingStatus(category.getId(), ListingStatus.ACTIVE);
-      } else {
-        listingsInCategory = listingRepository.findByCategoryAndIdNotInAndListingStatus(category, excludedListingIds, ListingStatus.ACTIVE);
-      }
-      allRecommendedListings.addAll(listingsInCategory);
-    }
-    logger.info("User " + user.getUsername() + " has " + allRecommendedListings.size() + " recommended listings.");
+    Specification<Listing> recommended = ListingSpecifications.hasStatus(ListingStatus.ACTIVE)
+        .and(ListingSpecifications.notOwnedBy(userId))
+        .and(ListingSpecifications.inCategories(categoryIds.isEmpty() ? null : categoryIds));
 
-    // Apply pagination manually
-    int start = Math.min(page * size, allRecommendedListings.size());
-    int end = Math.min(start + size, allRecommendedListings.size());
-    if (start > allRecommendedListings.size() || start < 0 || end > allRecommendedListings.size() || end < 0) {
-      throw new IllegalArgumentException("Invalid page or size parameters");
-    }
-    logger.info("User " + user.getUsername() + " requested page " + page + " with size " + size + ". Start: " + start + ", End: " + end);
-    List<Listing> pagedListings = allRecommendedListings.subList(start, end);
-    logger.info("User " + user.getUsername() + " has " + pagedListings.size() + " recommended listings on page " + page);
-
-    List<ListingResponse> pagedListingResponses = pagedListings.stream()
-        .map(listingMapper::toDto)
-        .toList();
-    return new PageImpl<>(pagedListingResponses, PageRequest.of(page, size), allRecommendedListings.size());
+    List<Listing> listings = listingRepository.findFeedPage(recommended, ListingCursor.decode(cursor), size);
+    return listingMapper.toFeedDto(listings, size);
   }
 
+  /**
+   * Retrieves a page of active listings for unauthenticated users, newest first.
+   *
+   * @param page the page number to retrieve (zero-based)
+   * @param size the number of listings per page
+   * @return a paginated {@link Page} of active listings
+   * @throws IllegalArgumentException if the page number is negative or the size is less than one
+   */
   @Transactional
   public Page<ListingResponse> getPublicListings(int page, int size) {
-    List<Listing> listings = listingRepository.findAllByListingStatus(ListingStatus.ACTIVE);
-
-    int start = Math.min(page * size, listings.size());
-    int end = Math.min(start + size, listings.size());
+    PageRequest pageRequest = PageRequest.of(page, size, ListingSpecifications.NEWEST_FIRST);
 
-    List<Listing> pagedListings = listings.subList(start, end);
-    List<ListingResponse> responses = pagedListings.stream()
-            .map(listingMapper::toDto)
-            .toList();
-
-    return new PageImpl<>(responses, PageRequest.of(page, size), listings.size());
+    return listingRepository.findAll(ListingSpecifications.hasStatus(ListingStatus.ACTIVE), pageRequest)
+        .map(listingMapper::toDto);
   }
 
+  /**
+   * Retrieves a cursor-paginated feed of active listings for unauthenticated users, newest first.
+   *
+   * @param cursor the cursor returned with the previous page, or {@code null} for the first page
+   * @param size   the number of listings per page
+   * @return a {@link ListingFeedResponse} with the listings and the cursor of the next page
+   * @throws IllegalArgumentException if the cursor is malformed or the size is less than one
+   */
+  @Transactional
+  public ListingFeedResponse getPublicListingsFeed(String cursor, int size) {
+    Cursors.requireValidPageSize(size);
+    List<Listing> listings = listingRepository.findFeedPage(
+        ListingSpecifications.hasStatus(ListingStatus.ACTIVE), ListingCursor.decode(cursor), size);
+    return listingMapper.toFeedDto(listings, size);
+  }
 
   /**
    * Adds a listing to the browsing history of the current user.
    * <p>
    * Useful for tracking which listings the user has viewed for future recommendations.
+   * The view is queued on the {@link BrowseHistoryWriter}, which writes it and updates the
+   * user's affinity for the listing's category in the background.
    * </p>
    *
    * @param listing the {@link Listing} entity to add to browsing history
@@ -150,10 +152,6 @@ public class RecommendationService {
       return; // Ikke logget inn, ikke prøv å lagre historikk
     }
 
-    User currentUser = securityUtil.getCurrentUser();
-    BrowseHistory browseHistory = new BrowseHistory()
-            .setUser(currentUser)
-            .setListing(listing);
-    browseHistoryRepository.save(browseHistory);
+    browseHistoryWriter.record(securityUtil.getCurrentUserId(), listing.getId(), listing.getCategory().getId());
   }
 }
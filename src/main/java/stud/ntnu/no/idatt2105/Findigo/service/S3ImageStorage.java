@@ -0,0 +1,164 @@
+package stud.ntnu.no.idatt2105.Findigo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * {@link ImageStorage} keeping images as objects in an S3-compatible bucket.
+ * <p>
+ * Enabled with {@code images.storage.type=s3}. Setting {@code images.storage.s3.endpoint} points the
+ * client at another S3-compatible service, such as a local MinIO, which usually also needs
+ * {@code images.storage.s3.path-style=true}. Without an access key the default AWS credential chain
+ * is used. Uploads stream from the staged file, downloads stream byte ranges of the object, and
+ * presigned URLs let clients download objects from the bucket directly.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "images.storage.type", havingValue = "s3")
+public class S3ImageStorage implements ImageStorage {
+
+  private final S3Client client;
+  private final S3Presigner presigner;
+  private final String bucket;
+
+  /**
+   * Creates the storage from the application configuration.
+   *
+   * @param bucket    the name of the bucket
+   * @param region    the region of the bucket
+   * @param endpoint  the endpoint of an S3-compatible service, or blank for AWS
+   * @param pathStyle {@code true} to address the bucket in the path instead of the host name
+   * @param accessKey the access key, or blank for the default credential chain
+   * @param secretKey the secret key belonging to the access key
+   */
+  public S3ImageStorage(@Value("${images.storage.s3.bucket}") String bucket,
+                        @Value("${images.storage.s3.region:eu-north-1}") String region,
+                        @Value("${images.storage.s3.endpoint:}") String endpoint,
+                        @Value("${images.storage.s3.path-style:false}") boolean pathStyle,
+                        @Value("${images.storage.s3.access-key:}") String accessKey,
+                        @Value("${images.storage.s3.secret-key:}") String secretKey) {
+    AwsCredentialsProvider credentials = accessKey.isBlank()
+        ? DefaultCredentialsProvider.builder().build()
+        : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+    S3Configuration configuration = S3Configuration.builder().pathStyleAccessEnabled(pathStyle).build();
+
+    S3ClientBuilder clientBuilder = S3Client.builder()
+        .region(Region.of(region))
+        .credentialsProvider(credentials)
+        .serviceConfiguration(configuration);
+    S3Presigner.Builder presignerBuilder = S3Presigner.builder()
+        .region(Region.of(region))
+        .credentialsProvider(credentials)
+        .serviceConfiguration(configuration);
+    if (!endpoint.isBlank()) {
+      clientBuilder.endpointOverride(URI.create(endpoint));
+      presignerBuilder.endpointOverride(URI.create(endpoint));
+    }
+
+    this.client = clientBuilder.build();
+    this.presigner = presignerBuilder.build();
+    this.bucket = bucket;
+  }
+
+  @Override
+  public void put(String key, Path source, String contentType) throws IOException {
+    try {
+      client.putObject(PutObjectRequest.builder()
+          .bucket(bucket)
+          .key(key)
+          .contentType(contentType)
+          .build(), RequestBody.fromFile(source));
+    } catch (SdkException e) {
+      throw new IOException("Failed to store " + key + " in bucket " + bucket, e);
+    }
+  }
+
+  @Override
+  public Optional<StoredObject> stat(String key) throws IOException {
+    try {
+      HeadObjectResponse head = client.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build());
+      return Optional.of(new StoredObject(head.contentLength(), head.lastModified()));
+    } catch (NoSuchKeyException e) {
+      return Optional.empty();
+    } catch (S3Exception e) {
+      if (e.statusCode() == 404) {
+        return Optional.empty();
+      }
+      throw new IOException("Failed to look up " + key + " in bucket " + bucket, e);
+    } catch (SdkException e) {
+      throw new IOException("Failed to look up " + key + " in bucket " + bucket, e);
+    }
+  }
+
+  @Override
+  public InputStream open(String key, long start, long end) throws IOException {
+    try {
+      return client.getObject(GetObjectRequest.builder()
+          .bucket(bucket)
+          .key(key)
+          .range("bytes=" + start + "-" + end)
+          .build());
+    } catch (SdkException e) {
+      throw new IOException("Failed to read " + key + " from bucket " + bucket, e);
+    }
+  }
+
+  @Override
+  public void delete(String key) throws IOException {
+    try {
+      client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(key).build());
+    } catch (SdkException e) {
+      throw new IOException("Failed to delete " + key + " from bucket " + bucket, e);
+    }
+  }
+
+  @Override
+  public Optional<URI> presignedUrl(String key, Duration ttl) {
+    try {
+      return Optional.of(presigner.presignGetObject(GetObjectPresignRequest.builder()
+          .signatureDuration(ttl)
+          .getObjectRequest(GetObjectRequest.builder().bucket(bucket).key(key).build())
+          .build()).url().toURI());
+    } catch (URISyntaxException e) {
+      throw new IllegalStateException("Presigned URL of " + key + " is not a valid URI", e);
+    }
+  }
+
+  /**
+   * Closes the client and the presigner.
+   */
+  @PreDestroy
+  void close() {
+    presigner.close();
+    client.close();
+  }
+}
@@ -57,6 +57,7 @@ public class UserService {
   private final UserMapper userMapper;
   private final ListingMapper listingMapper;
   private final SaleRepository saleRepository;
+  private final PrincipalCache principalCache;
 
   private static final Logger logger = LogManager.getLogger(UserService.class);
 
@@ -164,6 +165,7 @@ public class UserService {
       throw new IllegalArgumentException("Password cannot be null or empty");
     }
 
+    principalCache.invalidate(currentUser.getUsername());
     currentUser.setUsername(request.getUsername());
     currentUser.setPassword(passwordEncoder.encode(request.getPassword()));
     currentUser.setPhoneNumber(request.getPhoneNumber());
@@ -178,6 +180,7 @@ public class UserService {
    * @param request the new user details
    * @param userId the target user ID
    */
+  @Transactional
   public void editUserDetails(AdminUserRequest request, Long userId) {
     User user = getUserById(userId);
 
@@ -186,6 +189,7 @@ public class UserService {
       throw new EntityAlreadyExistsException(CustomErrorMessage.USERNAME_ALREADY_EXISTS);
     }
 
+    principalCache.invalidate(user.getUsername());
     user.setUsername(request.getUsername());
     user.setPhoneNumber(request.getPhoneNumber());
 
@@ -439,5 +443,6 @@ public class UserService {
    */
   public void clearAll() {
     userRepository.deleteAll();
+    principalCache.invalidateAll();
   }
 }
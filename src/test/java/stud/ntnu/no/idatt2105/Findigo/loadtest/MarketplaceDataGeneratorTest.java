@@ -0,0 +1,61 @@
+package stud.ntnu.no.idatt2105.Findigo.loadtest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import stud.ntnu.no.idatt2105.Findigo.dtos.auth.AuthRequest;
+import stud.ntnu.no.idatt2105.Findigo.service.UserService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:loadtest",
+    "loadtest.users=50",
+    "loadtest.listings=500",
+    "loadtest.views-per-user=20"
+})
+@ActiveProfiles({"test", "loadtest"})
+public class MarketplaceDataGeneratorTest {
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
+  private UserService userService;
+
+  @Test
+  public void testGeneratesSkewedMarketplaceOnStartup() {
+    assertEquals(50, count("select count(*) from users"));
+    assertEquals(500, count("select count(*) from listing"));
+    assertEquals(500 * 3, count("select count(*) from listing_attribute"));
+    assertEquals(50 * 20, count("select count(*) from browse_history"));
+    assertTrue(count("select count(*) from favorite_listings") > 0);
+    assertTrue(count("select count(*) from messages") > 0);
+
+    List<Long> listingsPerCategory = jdbcTemplate.queryForList(
+        "select count(*) from listing group by category_id order by count(*) desc", Long.class);
+    assertEquals(MarketplaceDataGenerator.CATALOGUE.size(), listingsPerCategory.size());
+    assertTrue(listingsPerCategory.get(0) > 3 * listingsPerCategory.get(listingsPerCategory.size() - 1));
+  }
+
+  @Test
+  public void testStartupRebuildsRunAfterGeneration() {
+    assertTrue(count("select count(*) from listing_search_term") > 0);
+    assertTrue(count("select count(*) from user_category_affinity") > 0);
+    assertTrue(count("select count(*) from conversation") > 0);
+  }
+
+  @Test
+  public void testGeneratedUsersCanLogIn() {
+    AuthRequest login = new AuthRequest(MarketplaceDataGenerator.USERNAME_PREFIX + "0", "password");
+    assertNotNull(userService.authenticateAndGetCookie(login).getValue());
+  }
+
+  private long count(String sql) {
+    return jdbcTemplate.queryForObject(sql, Long.class);
+  }
+}
@@ -1,5 +1,7 @@
 package stud.ntnu.no.idatt2105.Findigo.service;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,6 +39,8 @@ public class CategoryServiceTest {
   @Autowired
   private CategoryRepository categoryRepository;
   @Autowired
+  private AttributeService attributeService;
+  @Autowired
   UserRepository userRepository;
   private long category1Id;
   @Autowired
@@ -44,6 +48,8 @@ public class CategoryServiceTest {
 
   @Autowired
   private UserRolesRepository userRolesRepository;
+  @Autowired
+  private MeterRegistry meterRegistry;
 
   private User user;
 
@@ -109,6 +115,7 @@ public class CategoryServiceTest {
   public void testGetCategoryDtoById() {
     CategoryResponse categoryResponse = categoryService.getCategoryDtoById(category1Id);
     assertEquals("category1", categoryResponse.getName());
+    assertThrows(UnsupportedOperationException.class, () -> categoryResponse.getAttributes().clear());
     assertThrows(AppEntityNotFoundException.class, () -> categoryService.getCategoryDtoById(10098765672L));
   }
 
@@ -131,4 +138,37 @@ public class CategoryServiceTest {
     assertThrows(AppEntityNotFoundException.class, () -> categoryService.getCategoryById(category2Id));
     assertThrows(AppEntityNotFoundException.class, () -> categoryService.deleteCategory(123456789L));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testCachedCategoriesReflectAdminWrites() {
+    assertEquals("category1", categoryService.getCategoryDtoById(category1Id).getName());
+
+    categoryService.editCategory(category1Id, new CategoryRequest("renamed"));
+    assertEquals("renamed", categoryService.getCategoryDtoById(category1Id).getName());
+
+    AttributeResponse attribute = attributeService.createAttribute(new AttributeRequest("color", "String", category1Id));
+    List<AttributeResponse> attributes = categoryService.getCategoryDtoById(category1Id).getAttributes();
+    assertEquals(1, attributes.size());
+    assertEquals(attribute.getId(), attributes.get(0).getId());
+
+    attributeService.deleteAttribute(attribute.getId());
+    assertTrue(categoryService.getCategoryDtoById(category1Id).getAttributes().isEmpty());
+  }
+
+  @Test
+  public void testUnknownCategoryIdsDoNotReloadTheCache() {
+    categoryService.getCategoryDtoById(category1Id);
+    double loads = countCategoryCacheLoads();
+    for (long categoryId = 10098765672L; categoryId < 10098765672L + 20; categoryId++) {
+      long unknownId = categoryId;
+      assertThrows(AppEntityNotFoundException.class, () -> categoryService.getCategoryDtoById(unknownId));
+    }
+    assertTrue(countCategoryCacheLoads() - loads <= 1);
+  }
+
+  private double countCategoryCacheLoads() {
+    FunctionCounter loads = meterRegistry.find("cache.load").tag("cache", "categories").tag("result", "success").functionCounter();
+    assertNotNull(loads);
+    return loads.count();
+  }
+}
@@ -4,20 +4,32 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
+import stud.ntnu.no.idatt2105.Findigo.controller.ImageController;
 import stud.ntnu.no.idatt2105.Findigo.dtos.attribute.AttributeRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.attribute.AttributeResponse;
 import org.springframework.security.core.context.SecurityContextHolder;
 import stud.ntnu.no.idatt2105.Findigo.dtos.auth.AuthRequest;
+import stud.ntnu.no.idatt2105.Findigo.dtos.image.ImageMetadataResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.image.ImageUploadStatusResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.image.ImageVariantResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.image.ListingImageResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.attribute.ListingAttributeRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.category.CategoryRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingResponse;
 import stud.ntnu.no.idatt2105.Findigo.entities.Listing;
+import stud.ntnu.no.idatt2105.Findigo.entities.ListingImageUrls;
 import stud.ntnu.no.idatt2105.Findigo.entities.Role;
 import stud.ntnu.no.idatt2105.Findigo.entities.User;
 import stud.ntnu.no.idatt2105.Findigo.entities.UserRoles;
@@ -25,10 +37,32 @@ import stud.ntnu.no.idatt2105.Findigo.exception.customExceptions.AppEntityNotFou
 import stud.ntnu.no.idatt2105.Findigo.exception.customExceptions.EntityOperationException;
 import stud.ntnu.no.idatt2105.Findigo.repository.*;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 @ActiveProfiles("test")
@@ -36,6 +70,10 @@ public class ImageServiceTest {
   @Autowired
   private ImageService imageService;
   @Autowired
+  private ImageController imageController;
+  @Autowired
+  private ImageIngestionService imageIngestionService;
+  @Autowired
   private UserService userService;
   @Autowired
   private ListingService listingService;
@@ -53,6 +91,14 @@ public class ImageServiceTest {
   private User user2;
   @Autowired
   private UserRolesRepository userRolesRepository;
+  @Autowired
+  private ListingImageRepository listingImageRepository;
+  @Autowired
+  private ImageVariantGenerator imageVariantGenerator;
+  @Autowired
+  private ImageBlobRepository imageBlobRepository;
+  @Autowired
+  private PlatformTransactionManager transactionManager;
 
   @BeforeEach
   void setUp() {
@@ -187,7 +233,340 @@ public class ImageServiceTest {
   public void testDownloadImage() {
     MultipartFile file = new MockMultipartFile("file", "test.jpg", "image/jpeg", "test".getBytes());
     imageService.uploadImageToListing(listing.getId(), file);
-    assertEquals(imageService.downloadImageFromListing(listing.getId(), 0).getFilename(), "test.jpg");
+    assertEquals(imageService.downloadImageFromListing(listing.getId(), 0).filename(), "test.jpg");
+  }
+
+  @Test
+  public void testDownloadImageSupportsConditionalAndRangeRequests() throws Exception {
+    imageService.uploadImageToListing(listing.getId(), new MockMultipartFile("file", "test.jpg", "image/jpeg", "test".getBytes()));
+    ImageService.ImageFile image = imageService.downloadImageFromListing(listing.getId(), 0);
+    assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest("test".getBytes())), image.contentHash());
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/download/" + listing.getId() + "/0");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    imageController.getImagesFromListing(listing.getId(), 0, "original", request, response);
+    assertEquals(200, response.getStatus());
+    assertEquals("image/jpeg", response.getContentType());
+    assertEquals("nosniff", response.getHeader("X-Content-Type-Options"));
+    assertEquals("\"" + image.contentHash() + "\"", response.getHeader(HttpHeaders.ETAG));
+    assertEquals("test", response.getContentAsString());
+
+    MockHttpServletRequest conditional = new MockHttpServletRequest("GET", request.getRequestURI());
+    conditional.addHeader(HttpHeaders.IF_NONE_MATCH, response.getHeader(HttpHeaders.ETAG));
+    MockHttpServletResponse notModified = new MockHttpServletResponse();
+    imageController.getImagesFromListing(listing.getId(), 0, "original", conditional, notModified);
+    assertEquals(304, notModified.getStatus());
+    assertEquals(0, notModified.getContentAsByteArray().length);
+
+    MockHttpServletRequest ranged = new MockHttpServletRequest("GET", request.getRequestURI());
+    ranged.addHeader(HttpHeaders.RANGE, "bytes=1-2");
+    MockHttpServletResponse partial = new MockHttpServletResponse();
+    imageController.getImagesFromListing(listing.getId(), 0, "original", ranged, partial);
+    assertEquals(206, partial.getStatus());
+    assertEquals("bytes 1-2/4", partial.getHeader(HttpHeaders.CONTENT_RANGE));
+    assertEquals("es", partial.getContentAsString());
+  }
+
+  @Test
+  public void testUploadedImagesAreOnlyServedAsImageTypes() {
+    imageService.uploadImageToListing(listing.getId(), new MockMultipartFile("file", "page.html", "text/html", "<script>".getBytes()));
+    imageService.uploadImageToListing(listing.getId(), new MockMultipartFile("file", "photo.png", "image/svg+xml", "<svg/>".getBytes()));
+    imageService.uploadImageToListing(listing.getId(), new MockMultipartFile("file", "photo.gif", "IMAGE/GIF; charset=utf-8", "gif".getBytes()));
+
+    assertEquals("application/octet-stream", imageService.downloadImageFromListing(listing.getId(), 0).contentType());
+    assertEquals("image/png", imageService.downloadImageFromListing(listing.getId(), 1).contentType());
+    assertEquals("image/gif", imageService.downloadImageFromListing(listing.getId(), 2).contentType());
+  }
+
+  @Test
+  public void testUploadImageGeneratesVariants() throws Exception {
+    BufferedImage picture = new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB);
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    ImageIO.write(picture, "png", png);
+    imageService.uploadImageToListing(listing.getId(), new MockMultipartFile("file", "photo.png", "image/png", png.toByteArray()));
+
+    ImageService.ImageFile original = imageService.downloadImageFromListing(listing.getId(), 0);
+    assertEquals("image/png", original.contentType());
+    for (ImageVariant variant : List.of(ImageVariant.THUMBNAIL, ImageVariant.CARD, ImageVariant.FULL)) {
+      ImageService.ImageFile image = imageService.downloadImageFromListing(listing.getId(), 0, variant);
+      assertEquals("image/jpeg", image.contentType());
+      try (InputStream in = image.open()) {
+        BufferedImage scaled = ImageIO.read(in);
+        assertEquals(variant.getWidth(), scaled.getWidth());
+        assertEquals(variant.getWidth() / 2, scaled.getHeight());
+      }
+    }
+
+    imageService.deleteImageFromListing(listing.getId(), 0);
+    assertTrue(original.storage().stat(ImageVariant.THUMBNAIL.resolve(original.key())).isEmpty());
+  }
+
+  @Test
+  public void testImagesAboveThePixelLimitAreNotDecoded() throws Exception {
+    Path image = Files.createTempFile("large", ".png");
+    ImageIO.write(new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB), "png", image.toFile());
+    ReflectionTestUtils.setField(imageVariantGenerator, "maxPixels", 200L * 100 - 1);
+    try {
+      assertFalse(imageVariantGenerator.generate(image));
+      assertFalse(Files.exists(ImageVariant.THUMBNAIL.resolve(image)));
+    } finally {
+      ReflectionTestUtils.setField(imageVariantGenerator, "maxPixels", 40_000_000L);
+      Files.deleteIfExists(image);
+    }
+  }
+
+  @Test
+  public void testMetadataListsOnlyStoredVariants() throws Exception {
+    ReflectionTestUtils.setField(imageVariantGenerator, "maxPixels", 300L * 150 - 1);
+    try {
+      imageService.uploadImageToListing(listing.getId(), new MockMultipartFile("file", "large.png", "image/png", png(300, 150)));
+    } finally {
+      ReflectionTestUtils.setField(imageVariantGenerator, "maxPixels", 40_000_000L);
+    }
+    imageService.uploadImageToListing(listing.getId(), new MockMultipartFile("file", "older.png", "image/png", png(320, 160)));
+    List<ListingImageUrls> images = listingImageRepository.findByListingIdOrderByPositionAscIdAsc(listing.getId());
+    listingImageRepository.save(images.get(1).setWidth(null).setHeight(null).setStored(null));
+
+    imageService.recordMissingSizes();
+    List<ImageMetadataResponse> metadata = imageService.getImageMetadata(List.of(listing.getId()));
+
+    ImageVariantResponse notGenerated = metadata.get(0).getVariants().get(ImageVariant.CARD.ordinal());
+    assertEquals(300, notGenerated.getWidth());
+    assertEquals("\"" + images.get(0).getContentHash() + "\"", notGenerated.getEtag());
+    assertEquals(notGenerated.getEtag(), "\"" + imageService.downloadImage(images.get(0).getId(), ImageVariant.CARD).contentHash() + "\"");
+
+    ImageVariantResponse older = metadata.get(1).getVariants().get(ImageVariant.CARD.ordinal());
+    assertNull(older.getWidth());
+    assertEquals("\"" + images.get(1).getContentHash() + "-card\"", older.getEtag());
+    assertEquals(older.getEtag(), "\"" + imageService.downloadImage(images.get(1).getId(), ImageVariant.CARD).contentHash() + "\"");
+  }
+
+  private static byte[] png(int width, int height) throws IOException {
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", png);
+    return png.toByteArray();
+  }
+
+  @Test
+  public void testUploadSameImageTwiceStoresItOnce() throws Exception {
+    imageService.uploadImageToListing(listing.getId(), new MockMultipartFile("file", "first.jpg", "image/jpeg", "duplicate".getBytes()));
+    imageService.uploadImageToListing(listing.getId(), new MockMultipartFile("file", "second.jpg", "image/jpeg", "duplicate".getBytes()));
+
+    ImageService.ImageFile first = imageService.downloadImageFromListing(listing.getId(), 0);
+    ImageService.ImageFile second = imageService.downloadImageFromListing(listing.getId(), 1);
+    assertEquals(first.key(), second.key());
+    assertEquals("first.jpg", first.filename());
+    assertEquals("second.jpg", second.filename());
+
+    assertEquals(1, imageService.deleteImageFromListing(listing.getId(), 0));
+    assertTrue(second.storage().stat(second.key()).isPresent());
+    assertEquals(0, imageService.deleteImageFromListing(listing.getId(), 0));
+    assertTrue(second.storage().stat(second.key()).isEmpty());
+  }
+
+  @Test
+  public void testConcurrentUploadsGetDistinctPositions() throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> uploads = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        String name = "concurrent-" + i + ".jpg";
+        uploads.add(executor.submit(() -> {
+          start.await();
+          return imageService.storeImage(listing.getId(), new ByteArrayInputStream(name.getBytes()), name, "image/jpeg");
+        }));
+      }
+      start.countDown();
+      for (Future<Integer> upload : uploads) {
+        upload.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(List.of(0, 1, 2, 3), imageService.getImagesOfListing(listing.getId()).stream()
+        .map(ListingImageResponse::getPosition).toList());
+  }
+
+  @Test
+  public void testImagesKeepTheirIdsWhenReordered() {
+    for (String name : List.of("a.jpg", "b.jpg", "c.jpg")) {
+      imageService.uploadImageToListing(listing.getId(), new MockMultipartFile("file", name, "image/jpeg", name.getBytes()));
+    }
+    List<ListingImageResponse> images = imageService.getImagesOfListing(listing.getId());
+    assertEquals(List.of("a.jpg", "b.jpg", "c.jpg"), images.stream().map(ListingImageResponse::getFilename).toList());
+    assertEquals(List.of(0, 1, 2), images.stream().map(ListingImageResponse::getPosition).toList());
+
+    long a = images.get(0).getId();
+    long b = images.get(1).getId();
+    long c = images.get(2).getId();
+    List<ListingImageResponse> reordered = imageService.reorderImages(listing.getId(), List.of(c, a, b));
+    assertEquals(List.of(c, a, b), reordered.stream().map(ListingImageResponse::getId).toList());
+    assertEquals("c.jpg", imageService.downloadImageFromListing(listing.getId(), 0).filename());
+    assertEquals("a.jpg", imageService.downloadImage(a, ImageVariant.ORIGINAL).filename());
+    assertThrows(IllegalArgumentException.class, () -> imageService.reorderImages(listing.getId(), List.of(c, a)));
+    assertThrows(IllegalArgumentException.class, () -> imageService.reorderImages(listing.getId(), List.of(c, a, a)));
+
+    listingImageRepository.save(listingImageRepository.findById(c).orElseThrow().setPosition(null));
+    imageService.assignMissingPositions();
+    assertEquals(3, listingImageRepository.findById(c).orElseThrow().getPosition());
+
+    assertEquals(2, imageService.deleteImage(b));
+    assertThrows(AppEntityNotFoundException.class, () -> imageService.downloadImage(b, ImageVariant.ORIGINAL));
+    assertEquals(List.of(a, c), imageService.getImagesOfListing(listing.getId()).stream().map(ListingImageResponse::getId).toList());
+  }
+
+  @Test
+  public void testGetImageMetadataOfSeveralListings() throws Exception {
+    BufferedImage picture = new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB);
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    ImageIO.write(picture, "png", png);
+    imageService.uploadImageToListing(listing.getId(), new MockMultipartFile("file", "photo.png", "image/png", png.toByteArray()));
+    imageService.uploadImageToListing(listing.getId(), new MockMultipartFile("file", "test.jpg", "image/jpeg", "test".getBytes()));
+
+    List<ImageMetadataResponse> metadata = imageService.getImageMetadata(List.of(listing.getId(), 9999L));
+    assertEquals(2, metadata.size());
+
+    ImageMetadataResponse photo = metadata.get(0);
+    assertEquals(listing.getId(), photo.getListingId());
+    ImageVariantResponse card = photo.getVariants().stream().filter(v -> v.getVariant().equals("card")).findFirst().orElseThrow();
+    assertEquals(480, card.getWidth());
+    assertEquals(240, card.getHeight());
+    assertEquals("/api/images/" + photo.getId() + "?variant=card", card.getUrl());
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", card.getUrl());
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    imageController.getImage(photo.getId(), "card", request, response);
+    assertEquals(card.getEtag(), response.getHeader(HttpHeaders.ETAG));
+
+    ImageVariantResponse undecodable = metadata.get(1).getVariants().get(0);
+    assertNull(undecodable.getWidth());
+    assertEquals("\"" + imageService.downloadImage(metadata.get(1).getId(), ImageVariant.THUMBNAIL).contentHash() + "\"", undecodable.getEtag());
+
+    assertThrows(IllegalArgumentException.class, () -> imageService.getImageMetadata(
+        LongStream.range(0, 101).boxed().toList()));
+  }
+
+  @Test
+  public void testBlobStoreWritesThroughImageStorage() throws Exception {
+    InMemoryImageStorage storage = new InMemoryImageStorage();
+    ImageBlobStore blobStore = new ImageBlobStore(listingImageRepository, imageBlobRepository, imageVariantGenerator, storage,
+        transactionManager,
+        Files.createTempDirectory("blob-staging").toString());
+
+    BufferedImage picture = new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB);
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    ImageIO.write(picture, "png", png);
+    ImageBlobStore.Blob blob = blobStore.store(new ByteArrayInputStream(png.toByteArray()), "image/png", stored -> { });
+
+    assertTrue(blob.created());
+    assertEquals(png.size(), storage.stat(blob.key()).orElseThrow().size());
+    assertEquals(png.size(), blob.stored().getSize());
+    assertEquals(storage.stat(ImageVariant.THUMBNAIL.resolve(blob.key())).orElseThrow().size(),
+        ImageVariant.THUMBNAIL.size(blob.stored()));
+    try (InputStream in = storage.open(blob.key(), 1, 3)) {
+      assertEquals(3, in.readAllBytes().length);
+    }
+
+    assertFalse(blobStore.store(new ByteArrayInputStream(png.toByteArray()), "image/png", stored -> { }).created());
+    blobStore.release(blob.hash());
+    assertTrue(storage.stat(blob.key()).isEmpty());
+    assertTrue(storage.stat(ImageVariant.THUMBNAIL.resolve(blob.key())).isEmpty());
+
+    assertThrows(IllegalStateException.class, () -> blobStore.store(new ByteArrayInputStream(png.toByteArray()),
+        "image/png", stored -> { throw new IllegalStateException("reference rejected"); }));
+    assertTrue(storage.stat(blob.key()).isEmpty());
+    assertTrue(storage.stat(ImageVariant.THUMBNAIL.resolve(blob.key())).isEmpty());
+
+    Path existing = Files.createTempFile("blob", ".png");
+    Files.write(existing, png.toByteArray());
+    storage.put(blob.key(), existing, "image/png");
+    ImageBlobStore.Blob adopted = blobStore.store(new ByteArrayInputStream(png.toByteArray()), "image/png", stored -> { });
+    assertFalse(adopted.created());
+    assertEquals(png.size(), adopted.stored().getSize());
+    assertNull(ImageVariant.THUMBNAIL.size(adopted.stored()));
+    Files.delete(existing);
+  }
+
+  @Test
+  public void testBlobStoreUploadsWithoutLockingAndRepeatsUploadsDeletedMeanwhile() throws Exception {
+    AtomicInteger puts = new AtomicInteger();
+    AtomicReference<ImageBlobStore> store = new AtomicReference<>();
+    InMemoryImageStorage storage = new InMemoryImageStorage() {
+      @Override
+      public void put(String key, Path source, String contentType) throws IOException {
+        assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+        if (!key.contains(".") && puts.incrementAndGet() == 1) {
+          store.get().release(key.substring(key.lastIndexOf('/') + 1));
+        }
+        super.put(key, source, contentType);
+      }
+    };
+    store.set(new ImageBlobStore(listingImageRepository, imageBlobRepository, imageVariantGenerator, storage,
+        transactionManager, Files.createTempDirectory("blob-staging").toString()));
+
+    BufferedImage picture = new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB);
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    ImageIO.write(picture, "png", png);
+    ImageBlobStore.Blob blob = store.get().store(new ByteArrayInputStream(png.toByteArray()), "image/png", stored -> { });
+
+    assertTrue(blob.created());
+    assertEquals(2, puts.get());
+    assertTrue(storage.stat(blob.key()).isPresent());
+    assertTrue(storage.stat(ImageVariant.THUMBNAIL.resolve(blob.key())).isPresent());
+    assertEquals(1L, imageBlobRepository.findById(blob.hash()).orElseThrow().getDeletions());
+  }
+
+  @Test
+  public void testS3StoragePresignsDownloadUrls() {
+    S3ImageStorage storage = new S3ImageStorage("images", "eu-north-1", "http://localhost:9000", true, "access", "secret");
+    try {
+      String url = storage.presignedUrl("blobs/ab/cd/abcd", Duration.ofMinutes(5)).orElseThrow().toString();
+      assertTrue(url.startsWith("http://localhost:9000/images/blobs/ab/cd/abcd?"));
+      assertTrue(url.contains("X-Amz-Signature="));
+      assertTrue(url.contains("X-Amz-Expires=300"));
+    } finally {
+      storage.close();
+    }
+  }
+
+  @Test
+  public void testDownloadVariantOfUndecodableImageServesOriginal() {
+    imageService.uploadImageToListing(listing.getId(), new MockMultipartFile("file", "test.jpg", "image/jpeg", "test".getBytes()));
+
+    ImageService.ImageFile image = imageService.downloadImageFromListing(listing.getId(), 0, ImageVariant.THUMBNAIL);
+    assertEquals("test.jpg", image.filename());
+    assertThrows(IllegalArgumentException.class, () -> ImageVariant.fromParameter("huge"));
+  }
+
+  @Test
+  public void testSubmitImageIsIngestedInBackground() throws Exception {
+    ImageUploadStatusResponse accepted = imageIngestionService.submit(listing.getId(),
+        new MockMultipartFile("file", "async.jpg", "image/jpeg", "async".getBytes()));
+    ImageUploadStatusResponse failed = imageIngestionService.submit(listing.getId(),
+        new MockMultipartFile("file", "missing/dir.jpg", "image/jpeg", "async".getBytes()));
+
+    assertEquals(ImageUploadStatusResponse.Status.COMPLETED, awaitUpload(accepted.getUploadId()).getStatus());
+    assertEquals(ImageUploadStatusResponse.Status.FAILED, awaitUpload(failed.getUploadId()).getStatus());
+    assertEquals("async.jpg", imageService.downloadImageFromListing(listing.getId(), 0).filename());
+
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user2, null, user2.getAuthorities()));
+    assertThrows(AppEntityNotFoundException.class, () -> imageIngestionService.getStatus(accepted.getUploadId()));
+    assertThrows(AccessDeniedException.class, () -> imageIngestionService.submit(listing.getId(),
+        new MockMultipartFile("file", "async.jpg", "image/jpeg", "async".getBytes())));
+  }
+
+  private ImageUploadStatusResponse awaitUpload(String uploadId) throws InterruptedException {
+    for (int attempt = 0; attempt < 100; attempt++) {
+      ImageUploadStatusResponse status = imageIngestionService.getStatus(uploadId);
+      if (status.getStatus() == ImageUploadStatusResponse.Status.COMPLETED
+          || status.getStatus() == ImageUploadStatusResponse.Status.FAILED) {
+        return status;
+      }
+      Thread.sleep(50);
+    }
+    throw new AssertionError("Upload " + uploadId + " was not processed in time");
   }
 
   @Test
@@ -0,0 +1,49 @@
+package stud.ntnu.no.idatt2105.Findigo.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link ImageStorage} keeping objects in memory, standing in for a remote storage in tests.
+ */
+class InMemoryImageStorage implements ImageStorage {
+
+  private final Map<String, StoredBytes> objects = new ConcurrentHashMap<>();
+
+  @Override
+  public void put(String key, Path source, String contentType) throws IOException {
+    objects.put(key, new StoredBytes(Files.readAllBytes(source), Instant.now()));
+  }
+
+  @Override
+  public Optional<StoredObject> stat(String key) {
+    return Optional.ofNullable(objects.get(key))
+        .map(stored -> new StoredObject(stored.content().length, stored.lastModified()));
+  }
+
+  @Override
+  public InputStream open(String key, long start, long end) throws IOException {
+    StoredBytes stored = objects.get(key);
+    if (stored == null) {
+      throw new NoSuchFileException(key);
+    }
+    return new ByteArrayInputStream(Arrays.copyOfRange(stored.content(), (int) start, (int) end + 1));
+  }
+
+  @Override
+  public void delete(String key) {
+    objects.remove(key);
+  }
+
+  private record StoredBytes(byte[] content, Instant lastModified) {
+  }
+}
@@ -1,9 +1,15 @@
 package stud.ntnu.no.idatt2105.Findigo.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -14,8 +20,11 @@ import stud.ntnu.no.idatt2105.Findigo.dtos.attribute.ListingAttributeRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.auth.AuthRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.category.CategoryRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.FilterListingsRequest;
+import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingFeedResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingResponse;
+import stud.ntnu.no.idatt2105.Findigo.entities.Attribute;
+import stud.ntnu.no.idatt2105.Findigo.entities.Category;
 import stud.ntnu.no.idatt2105.Findigo.entities.ListingStatus;
 import stud.ntnu.no.idatt2105.Findigo.entities.Role;
 import stud.ntnu.no.idatt2105.Findigo.entities.User;
@@ -27,6 +36,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
@@ -35,6 +47,8 @@ public class ListingServiceTest {
   @Autowired
   private BrowseHistoryRepository browseHistoryRepository;
   @Autowired
+  private BrowseHistoryWriter browseHistoryWriter;
+  @Autowired
   private SaleRepository saleRepository;
   @Autowired
   private AttributeService attributeService;
@@ -59,6 +73,10 @@ public class ListingServiceTest {
   private ListingResponse listing;
   @Autowired
   private CategoryRepository categoryRepository;
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+  @Autowired
+  private MeterRegistry meterRegistry;
   ListingAttributeRequest listingAttributeRequest;
   ListingResponse listing2;
 
@@ -229,6 +247,15 @@ public class ListingServiceTest {
     });
 
     //check that its aded to the browse history
+    browseHistoryWriter.flush();
+    assertEquals(1, browseHistoryRepository.findByUser(user1).size());
+  }
+
+  @Test
+  public void testRejectedBrowseHistoryBatchWritesEachViewOnce() {
+    browseHistoryWriter.record(user1.getId(), listing.getId(), category1Id);
+    browseHistoryWriter.record(user1.getId(), 99999L, category1Id); // Invalid listing ID
+    browseHistoryWriter.flush();
     assertEquals(1, browseHistoryRepository.findByUser(user1).size());
   }
 
@@ -333,7 +360,223 @@ public class ListingServiceTest {
 
   @Test
   public void testGetAllFilteredListings() {
-    //TODO make test for that method
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+
+    assertEquals(1, listingService.getAllFilteredListings(new FilterListingsRequest()).size());
+    assertEquals(1, listingService.getAllFilteredListings(
+        new FilterListingsRequest(category1Id, "FULL desc", 1000, 2000, null)).size());
+    assertEquals(0, listingService.getAllFilteredListings(
+        new FilterListingsRequest(null, "no such text", null, null, null)).size());
+    assertEquals(0, listingService.getAllFilteredListings(
+        new FilterListingsRequest(null, "%", null, null, null)).size());
+    assertEquals(0, listingService.getAllFilteredListings(
+        new FilterListingsRequest(null, null, 2000, null, null)).size());
+    assertEquals(0, listingService.getAllFilteredListings(
+        new FilterListingsRequest(null, null, null, 1000, null)).size());
+    assertEquals(0, listingService.getAllFilteredListings(
+        new FilterListingsRequest(category1Id + 1, null, null, null, null)).size());
+
+    //The owner should not see their own listing
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user2, null, user2.getAuthorities()));
+    assertEquals(0, listingService.getAllFilteredListings(new FilterListingsRequest()).size());
+  }
+
+  @Test
+  public void testFilteringIsTimedAndCachesArePublished() {
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+    Timer timer = meterRegistry.find("findigo.listings.filter").tag("method", "getAllFilteredListings").timer();
+    long before = timer == null ? 0 : timer.count();
+
+    listingService.getAllFilteredListings(new FilterListingsRequest());
+
+    assertEquals(before + 1, meterRegistry.get("findigo.listings.filter").tag("method", "getAllFilteredListings").timer().count());
+    assertNotNull(meterRegistry.find("cache.gets").tag("cache", "categories").tag("result", "hit").functionCounter());
+    assertNotNull(meterRegistry.find("cache.gets").tag("cache", "principals").functionCounter());
+    assertNotNull(meterRegistry.find("hikaricp.connections.active").gauge());
+    assertNotNull(meterRegistry.find("hibernate.statements").functionCounter());
+  }
+
+  @Test
+  public void testServiceCallsAreProfiled() {
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+    long successesBefore = countServiceCalls("getFilteredListings", "success");
+    long failuresBefore = countServiceCalls("getFilteredListings", "failure");
+
+    listingService.getFilteredListings(0, 1, new FilterListingsRequest());
+    assertThrows(IllegalArgumentException.class, () -> listingService.getFilteredListings(-1, 1, new FilterListingsRequest()));
+
+    assertEquals(successesBefore + 1, countServiceCalls("getFilteredListings", "success"));
+    assertEquals(failuresBefore + 1, countServiceCalls("getFilteredListings", "failure"));
+  }
+
+  private long countServiceCalls(String method, String outcome) {
+    Timer timer = meterRegistry.find("findigo.service.calls")
+        .tags("class", "ListingService", "method", method, "outcome", outcome)
+        .timer();
+    return timer == null ? 0 : timer.count();
+  }
+
+  @Test
+  public void testGetFilteredListingsPaginated() {
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user3, null, user3.getAuthorities()));
+    for (int i = 0; i < 2; i++) {
+      listingService.addListing(new ListingRequest()
+          .setAddress("Test Address")
+          .setBriefDescription("Paged Description " + i)
+          .setFullDescription("Test Full Description")
+          .setLatitude(63.4305)
+          .setLongitude(10.3951)
+          .setPrice(1500.00)
+          .setCategoryId(category1Id)
+          .setPostalCode("3012")
+          .setAttributes(List.of(listingAttributeRequest)));
+    }
+
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+    Page<ListingResponse> firstPage = listingService.getFilteredListings(0, 2, new FilterListingsRequest());
+    Page<ListingResponse> secondPage = listingService.getFilteredListings(1, 2, new FilterListingsRequest());
+
+    assertEquals(3, firstPage.getTotalElements());
+    assertEquals(2, firstPage.getTotalPages());
+    assertEquals(2, firstPage.getContent().size());
+    assertEquals(1, secondPage.getContent().size());
+    assertEquals(listing.getId(), secondPage.getContent().get(0).getId());
+    assertEquals(0, listingService.getFilteredListings(5, 2, new FilterListingsRequest()).getContent().size());
+  }
+
+  @Test
+  public void testGetFilteredListingsFeed() {
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user3, null, user3.getAuthorities()));
+    for (int i = 0; i < 2; i++) {
+      listingService.addListing(new ListingRequest()
+          .setAddress("Test Address")
+          .setBriefDescription("Feed Description " + i)
+          .setFullDescription("Test Full Description")
+          .setLatitude(63.4305)
+          .setLongitude(10.3951)
+          .setPrice(2500.00)
+          .setCategoryId(category1Id)
+          .setPostalCode("3012")
+          .setAttributes(List.of(listingAttributeRequest)));
+    }
+
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+    ListingFeedResponse firstPage = listingService.getFilteredListingsFeed(null, 2, new FilterListingsRequest());
+    ListingFeedResponse secondPage = listingService.getFilteredListingsFeed(firstPage.getNextCursor(), 2, new FilterListingsRequest());
+
+    assertEquals(2, firstPage.getListings().size());
+    assertEquals(1, secondPage.getListings().size());
+    assertEquals(listing.getId(), secondPage.getListings().get(0).getId());
+    assertNull(secondPage.getNextCursor());
+
+    ListingFeedResponse filtered = listingService.getFilteredListingsFeed(null, 2,
+        new FilterListingsRequest(null, "feed", 2000, null, null));
+    assertEquals(2, filtered.getListings().size());
+    assertNull(filtered.getNextCursor());
+  }
+
+  @Test
+  public void testListingPageQueryCountIsIndependentOfPageSize() {
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user3, null, user3.getAuthorities()));
+    for (int i = 0; i < 6; i++) {
+      listingService.addListing(new ListingRequest()
+          .setAddress("Test Address")
+          .setBriefDescription("Query Count Description " + i)
+          .setFullDescription("Test Full Description")
+          .setLatitude(63.4305)
+          .setLongitude(10.3951)
+          .setPrice(1500.00)
+          .setCategoryId(category1Id)
+          .setPostalCode("3012")
+          .setAttributes(List.of(listingAttributeRequest)));
+    }
+
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+    statistics.clear();
+    assertEquals(1, listingService.getFilteredListings(0, 1, new FilterListingsRequest()).getContent().size());
+    long singleListingPageQueries = statistics.getPrepareStatementCount();
+
+    statistics.clear();
+    assertEquals(5, listingService.getFilteredListings(0, 5, new FilterListingsRequest()).getContent().size());
+    assertEquals(singleListingPageQueries, statistics.getPrepareStatementCount());
+
+    statistics.clear();
+    assertEquals(1, listingService.getFilteredListingsFeed(null, 1, new FilterListingsRequest()).getListings().size());
+    long singleListingFeedQueries = statistics.getPrepareStatementCount();
+
+    statistics.clear();
+    assertEquals(5, listingService.getFilteredListingsFeed(null, 5, new FilterListingsRequest()).getListings().size());
+    assertEquals(singleListingFeedQueries, statistics.getPrepareStatementCount());
+  }
+
+  @Test
+  public void testListingSerializationReadsCategoriesFromCache() {
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    listingService.getFilteredListings(0, 5, new FilterListingsRequest());
+
+    statistics.clear();
+    List<ListingResponse> listings = listingService.getFilteredListings(0, 5, new FilterListingsRequest()).getContent();
+    assertFalse(listings.isEmpty());
+    assertEquals(category1Id, listings.get(0).getCategory().getId());
+    assertEquals(0, statistics.getEntityStatistics(Category.class.getName()).getLoadCount());
+    assertEquals(0, statistics.getEntityStatistics(Attribute.class.getName()).getLoadCount());
+  }
+
+  @Test
+  public void testSearchListingsByIndexedTerms() {
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user3, null, user3.getAuthorities()));
+    ListingResponse briefMatch = listingService.addListing(new ListingRequest()
+        .setAddress("Test Address")
+        .setBriefDescription("Red bicycle")
+        .setFullDescription("Barely used")
+        .setLatitude(63.4305)
+        .setLongitude(10.3951)
+        .setPrice(1500.00)
+        .setCategoryId(category1Id)
+        .setPostalCode("3012")
+        .setAttributes(List.of(listingAttributeRequest)));
+    ListingResponse fullMatch = listingService.addListing(new ListingRequest()
+        .setAddress("Test Address")
+        .setBriefDescription("Helmet")
+        .setFullDescription("Fits any bicycle, size #7")
+        .setLatitude(63.4305)
+        .setLongitude(10.3951)
+        .setPrice(1500.00)
+        .setCategoryId(category1Id)
+        .setPostalCode("3012")
+        .setAttributes(List.of(listingAttributeRequest)));
+
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+    List<ListingResponse> results = listingService.getAllFilteredListings(
+        new FilterListingsRequest(null, "BICY", null, null, null));
+
+    //Prefix matches, with brief description matches ranked first
+    assertEquals(2, results.size());
+    assertEquals(briefMatch.getId(), results.get(0).getId());
+    assertEquals(fullMatch.getId(), results.get(1).getId());
+    assertEquals(1, listingService.getAllFilteredListings(
+        new FilterListingsRequest(null, "red bicycle", null, null, null)).size());
+
+    //Queries without searchable terms fall back to matching the descriptions as a substring
+    List<ListingResponse> unindexed = listingService.getAllFilteredListings(
+        new FilterListingsRequest(null, "#7", null, null, null));
+    assertEquals(List.of(fullMatch.getId()), unindexed.stream().map(ListingResponse::getId).toList());
+
+    //Archived listings are removed from the index, and re-indexed when activated
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user3, null, user3.getAuthorities()));
+    listingService.markListingAsArchived(briefMatch.getId());
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+    assertEquals(1, listingService.getAllFilteredListings(
+        new FilterListingsRequest(null, "bicycle", null, null, null)).size());
+
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user3, null, user3.getAuthorities()));
+    listingService.markListingAsActive(briefMatch.getId());
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+    assertEquals(2, listingService.getAllFilteredListings(
+        new FilterListingsRequest(null, "bicycle", null, null, null)).size());
   }
 
   @Test
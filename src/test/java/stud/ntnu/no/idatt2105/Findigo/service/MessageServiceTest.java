@@ -11,16 +11,27 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.ActiveProfiles;
 import stud.ntnu.no.idatt2105.Findigo.dtos.auth.AuthRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.message.MessagePageResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.message.MessageRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.message.MessageResponse;
+import stud.ntnu.no.idatt2105.Findigo.dtos.message.UnreadCountResponse;
+import stud.ntnu.no.idatt2105.Findigo.entities.Message;
 import stud.ntnu.no.idatt2105.Findigo.entities.User;
 import stud.ntnu.no.idatt2105.Findigo.exception.customExceptions.AppEntityNotFoundException;
 import stud.ntnu.no.idatt2105.Findigo.repository.*;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 @ActiveProfiles("test")
@@ -33,6 +44,10 @@ public class MessageServiceTest {
   private MessageRepository messageRepository;
   @Autowired
   private MessageService messageService;
+  @Autowired
+  private ConversationService conversationService;
+  @Autowired
+  private MessageEventBroker messageEventBroker;
   private User user1;
   private User user2;
   private User user3;
@@ -158,6 +173,119 @@ public class MessageServiceTest {
     assertEquals(messageRequest2.getMessageText(), messages.get(0).getMessageText());
   }
 
+  @Test
+  public void testGetNewestMessagesReturnsOneMessagePerConversation() {
+    messageService.sendMessage(new MessageRequest().setMessageText("To user3")
+        .setFromUserId(user1.getId())
+        .setToUserId(user3.getId()));
+    messageService.sendMessage(new MessageRequest().setMessageText("Second to user2")
+        .setFromUserId(user1.getId())
+        .setToUserId(user2.getId()));
+
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user4, null, user4.getAuthorities()));
+    messageService.sendMessage(new MessageRequest().setMessageText("From user4")
+        .setFromUserId(user4.getId())
+        .setToUserId(user1.getId()));
+
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+    List<MessageResponse> messages = messageService.getNewestMessages(user1.getId());
+
+    assertEquals(List.of("From user4", "Second to user2", "To user3"),
+        messages.stream().map(MessageResponse::getMessageText).toList());
+    assertEquals(1, conversationService.getUnreadCount(user1.getId(), user4.getId()));
+    assertEquals(2, conversationService.getUnreadCount(user2.getId(), user1.getId()));
+    assertEquals(0, conversationService.getUnreadCount(user4.getId(), user1.getId()));
+
+    messageService.getAllMessagesBetween(user1.getId(), user4.getId());
+    assertEquals(0, conversationService.getUnreadCount(user1.getId(), user4.getId()));
+  }
+
+  @Test
+  public void testConcurrentFirstMessagesShareOneConversation() throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<MessageResponse> fromUser1 = executor.submit(() -> sendAfter(start, user1, user3));
+      Future<MessageResponse> fromUser3 = executor.submit(() -> sendAfter(start, user3, user1));
+      start.countDown();
+      assertNotNull(fromUser1.get());
+      assertNotNull(fromUser3.get());
+    } finally {
+      executor.shutdown();
+    }
+
+    assertEquals(1, conversationService.getUnreadCount(user1.getId(), user3.getId()));
+    assertEquals(1, conversationService.getUnreadCount(user3.getId(), user1.getId()));
+  }
+
+  private MessageResponse sendAfter(CountDownLatch start, User from, User to) throws InterruptedException {
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(from, null, from.getAuthorities()));
+    start.await();
+    return messageService.sendMessage(new MessageRequest().setMessageText("First message")
+        .setFromUserId(from.getId())
+        .setToUserId(to.getId()));
+  }
+
+  @Test
+  public void testGetMessagesBetweenPagesNewestFirstAndMarksRead() {
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user2, null, user2.getAuthorities()));
+    for (int i = 1; i <= 4; i++) {
+      messageService.sendMessage(new MessageRequest().setMessageText("Reply " + i)
+          .setFromUserId(user2.getId())
+          .setToUserId(user1.getId()));
+    }
+
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+    MessagePageResponse first = messageService.getMessagesBetween(user1.getId(), user2.getId(), null, 3);
+    assertEquals(List.of("Reply 4", "Reply 3", "Reply 2"),
+        first.getMessages().stream().map(MessageResponse::getMessageText).toList());
+    assertTrue(first.getMessages().stream().allMatch(MessageResponse::isRead));
+    assertNotNull(first.getNextCursor());
+
+    MessagePageResponse second = messageService.getMessagesBetween(user1.getId(), user2.getId(), first.getNextCursor(), 3);
+    assertEquals(List.of("Reply 1", "Hello, this is a test message"),
+        second.getMessages().stream().map(MessageResponse::getMessageText).toList());
+    assertNull(second.getNextCursor());
+
+    assertTrue(messageRepository.findAll().stream()
+        .filter(m -> m.getToUser().getId().equals(user1.getId()))
+        .allMatch(Message::isRead));
+    assertEquals(0, conversationService.getUnreadCount(user1.getId(), user2.getId()));
+    assertThrows(IllegalArgumentException.class, () ->
+        messageService.getMessagesBetween(user1.getId(), user2.getId(), "not a cursor", 3));
+  }
+
+  @Test
+  public void testSendMessagePushesEventsToSubscribers() {
+    List<String> receiverEvents = new ArrayList<>();
+    List<String> senderEvents = new ArrayList<>();
+    Runnable receiverSubscription = messageEventBroker.subscribe(user2.getId(), (name, payload) -> receiverEvents.add(name + ":" +
+        (payload instanceof MessageResponse message ? message.getMessageText() : ((UnreadCountResponse) payload).getUnreadCount())));
+    Runnable senderSubscription = messageEventBroker.subscribe(user1.getId(), (name, payload) -> senderEvents.add(name));
+
+    try {
+      messageService.sendMessage(new MessageRequest().setMessageText("Pushed")
+          .setFromUserId(user1.getId())
+          .setToUserId(user2.getId()));
+      assertEquals(List.of("message:Pushed", "unread-count:2"), receiverEvents);
+      assertEquals(List.of("message"), senderEvents);
+
+      SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user2, null, user2.getAuthorities()));
+      messageService.getAllMessagesBetween(user1.getId(), user2.getId());
+      assertEquals("unread-count:0", receiverEvents.get(receiverEvents.size() - 1));
+
+      receiverSubscription.run();
+      SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+      messageService.sendMessage(new MessageRequest().setMessageText("Not pushed")
+          .setFromUserId(user1.getId())
+          .setToUserId(user2.getId()));
+      assertEquals(3, receiverEvents.size());
+    } finally {
+      receiverSubscription.run();
+      senderSubscription.run();
+    }
+  }
+
   @Test
   public void testGetNewestMessagesWithInvalidUser() {
     SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user2, null, user2.getAuthorities()));
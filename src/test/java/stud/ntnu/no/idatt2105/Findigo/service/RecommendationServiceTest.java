@@ -12,15 +12,18 @@ import stud.ntnu.no.idatt2105.Findigo.dtos.attribute.AttributeResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.attribute.ListingAttributeRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.auth.AuthRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.category.CategoryRequest;
+import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingFeedResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.listing.ListingResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.message.MessageRequest;
 import stud.ntnu.no.idatt2105.Findigo.entities.*;
 import stud.ntnu.no.idatt2105.Findigo.repository.*;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
@@ -44,6 +47,12 @@ public class RecommendationServiceTest {
   private CategoryService categoryService;
   @Autowired
   UserRolesRepository userRolesRepository;
+  @Autowired
+  private UserCategoryAffinityRepository userCategoryAffinityRepository;
+  @Autowired
+  private CategoryAffinityService categoryAffinityService;
+  @Autowired
+  private BrowseHistoryWriter browseHistoryWriter;
   private User user1;
   private User user2;
   private long category1Id;
@@ -134,6 +143,39 @@ public class RecommendationServiceTest {
     assertEquals(listing.getId(), recommendedListings.get(0).getId());
   }
 
+  @Test
+  public void testGetRecommendedListingsRankedByCategoryAffinity() {
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+    long category2Id = categoryService.createCategory(new CategoryRequest("category2")).getId();
+
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user2, null, user2.getAuthorities()));
+    ListingResponse category2Listing = listingService.addListing(new ListingRequest()
+        .setAddress("Test Address")
+        .setBriefDescription("Category 2 Description")
+        .setFullDescription("Test Full Description")
+        .setLatitude(63.4305)
+        .setLongitude(10.3951)
+        .setPrice(1500.00)
+        .setCategoryId(category2Id)
+        .setPostalCode("3012")
+        .setAttributes(List.of()));
+
+    //user1 views category 2 twice and category 1 once
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+    listingService.getListingById(category2Listing.getId());
+    listingService.getListingById(category2Listing.getId());
+    listingService.getListingById(listing.getId());
+    browseHistoryWriter.flush();
+
+    assertEquals(2, userCategoryAffinityRepository.findByUserId(user1.getId()).size());
+    assertEquals(List.of(category2Id, category1Id), categoryAffinityService.getRankedCategoryIds(user1.getId()));
+
+    List<ListingResponse> recommendedListings = recommendationService.getRecommendedListings(0, 10).getContent();
+    assertEquals(2, recommendedListings.size());
+    assertEquals(category2Listing.getId(), recommendedListings.get(0).getId());
+    assertEquals(listing.getId(), recommendedListings.get(1).getId());
+  }
+
   @Test
   public void testGetRecommendedListingsExcludesOwnListings() {
     SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
@@ -153,6 +195,46 @@ public class RecommendationServiceTest {
     assertEquals(listing.getId(), recommendedListings.get(0).getId());
     listingRepository.deleteById(listingResponse.getId());
   }
+  @Test
+  public void testGetPublicAndRecommendedListingsFeed() {
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+    for (int i = 0; i < 4; i++) {
+      listingService.addListing(new ListingRequest()
+          .setAddress("Test Address")
+          .setBriefDescription("Feed Description " + i)
+          .setFullDescription("Test Full Description")
+          .setLatitude(63.4305)
+          .setLongitude(10.3951)
+          .setPrice(1500.00)
+          .setCategoryId(category1Id)
+          .setPostalCode("3012")
+          .setAttributes(List.of(listingAttributeRequest)));
+    }
+
+    //Walk the public feed two listings at a time, newest first
+    List<Long> feedIds = new ArrayList<>();
+    String cursor = null;
+    do {
+      ListingFeedResponse feed = recommendationService.getPublicListingsFeed(cursor, 2);
+      feed.getListings().forEach(l -> feedIds.add(l.getId()));
+      cursor = feed.getNextCursor();
+    } while (cursor != null);
+    List<Long> expectedIds = recommendationService.getPublicListings(0, 10).getContent().stream()
+        .map(ListingResponse::getId)
+        .toList();
+    assertEquals(5, feedIds.size());
+    assertEquals(expectedIds, feedIds);
+
+    //The recommended feed excludes the user's own listings
+    ListingFeedResponse recommended = recommendationService.getRecommendedListingsFeed(null, 10);
+    assertEquals(1, recommended.getListings().size());
+    assertEquals(listing.getId(), recommended.getListings().get(0).getId());
+    assertNull(recommended.getNextCursor());
+
+    assertThrows(IllegalArgumentException.class, () -> recommendationService.getPublicListingsFeed("not a cursor", 2));
+    assertThrows(IllegalArgumentException.class, () -> recommendationService.getPublicListingsFeed(null, 0));
+  }
+
   @Test
   public void testGetRecommendedListingsInvalidPageData() {
     SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
@@ -181,4 +263,19 @@ public class RecommendationServiceTest {
     assertEquals(user1.getId(), browseHistories.get(0).getUser().getId());
     assertEquals(listing.getId(), browseHistories.get(0).getListing().getId());
   }
+
+  @Test
+  public void testAddListingToBrowseHistoryIsWrittenOnFlush() {
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user1, null, user1.getAuthorities()));
+    browseHistoryWriter.flush();
+    browseHistoryRepository.deleteAll();
+    Listing viewedListing = listingRepository.findById(listing.getId()).orElseThrow();
+
+    recommendationService.addListingToBrowseHistory(viewedListing);
+    recommendationService.addListingToBrowseHistory(viewedListing);
+    browseHistoryWriter.flush();
+
+    assertEquals(2, browseHistoryRepository.findByUser(user1).size());
+    assertEquals(List.of(category1Id), categoryAffinityService.getRankedCategoryIds(user1.getId()));
+  }
 }
@@ -1,5 +1,7 @@
 package stud.ntnu.no.idatt2105.Findigo.service;
 
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,9 +9,16 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.ResponseCookie;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import stud.ntnu.no.idatt2105.Findigo.config.JWTUtil;
+import stud.ntnu.no.idatt2105.Findigo.config.JwtPrincipal;
+import stud.ntnu.no.idatt2105.Findigo.config.SecurityUtil;
 import stud.ntnu.no.idatt2105.Findigo.dtos.attribute.AttributeRequest;
 import stud.ntnu.no.idatt2105.Findigo.dtos.attribute.AttributeResponse;
 import stud.ntnu.no.idatt2105.Findigo.dtos.attribute.ListingAttributeRequest;
@@ -29,8 +38,14 @@ import stud.ntnu.no.idatt2105.Findigo.exception.customExceptions.AppEntityNotFou
 import stud.ntnu.no.idatt2105.Findigo.exception.customExceptions.EntityAlreadyExistsException;
 import stud.ntnu.no.idatt2105.Findigo.repository.*;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -48,6 +63,14 @@ public class UserServiceTest {
   @Autowired
   private UserService userService;
   @Autowired
+  private PrincipalCache principalCache;
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+  @Autowired
+  private JWTUtil jwtUtil;
+  @Autowired
+  private SecurityUtil securityUtil;
+  @Autowired
   private UserRepository userRepository;
   @Autowired
   private CategoryService categoryService;
@@ -243,6 +266,102 @@ public class UserServiceTest {
         .setPassword("newPassword")).getToken().isEmpty()); //Check that the new password works
   }
 
+  @Test
+  public void testPrincipalCacheInvalidatedOnEdit() {
+    Date issuedAt = new Date();
+    UserDetails principal = principalCache.getPrincipal(user4.getUsername(), issuedAt);
+    assertSame(principal, principalCache.getPrincipal(user4.getUsername(), issuedAt));
+    assertNotSame(principal, principalCache.getPrincipal(user4.getUsername(), new Date(issuedAt.getTime() + 1000)));
+
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user4, null, user4.getAuthorities()));
+    String oldUsername = user4.getUsername();
+    userService.editMyUserDetails(new MyUserRequest().setPhoneNumber("12345678").setUsername("renamedUser").setPassword("newPassword"));
+
+    assertThrows(UsernameNotFoundException.class, () -> principalCache.getPrincipal(oldUsername, issuedAt));
+    assertEquals("renamedUser", principalCache.getPrincipal("renamedUser", issuedAt).getUsername());
+  }
+
+  @Test
+  public void testPrincipalCacheEvictsAfterCommit() {
+    Date issuedAt = new Date();
+    UserDetails principal = principalCache.getPrincipal(user4.getUsername(), issuedAt);
+
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      principalCache.invalidate(user4.getUsername());
+      UserDetails beforeCommit = principalCache.getPrincipal(user4.getUsername(), issuedAt);
+      assertSame(principal, beforeCommit);
+    });
+    assertNotSame(principal, principalCache.getPrincipal(user4.getUsername(), issuedAt));
+  }
+
+  @Test
+  public void testPrincipalCacheSkipsLoadsOverlappingAnInvalidation() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch invalidated = new CountDownLatch(1);
+    AtomicInteger loads = new AtomicInteger();
+    PrincipalCache cache = new PrincipalCache(new CustomUserDetailsService(userRepository) {
+      @Override
+      public UserDetails loadUserByUsername(String username) {
+        UserDetails principal = super.loadUserByUsername(username);
+        if (loads.incrementAndGet() == 1) {
+          loading.countDown();
+          try {
+            invalidated.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        return principal;
+      }
+    }, 100, 300, new SimpleMeterRegistry());
+
+    Date issuedAt = new Date();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<UserDetails> load = executor.submit(() -> cache.getPrincipal(user4.getUsername(), issuedAt));
+      loading.await();
+      cache.invalidate(user4.getUsername());
+      invalidated.countDown();
+      UserDetails stale = load.get();
+
+      assertNotSame(stale, cache.getPrincipal(user4.getUsername(), issuedAt));
+      assertEquals(2, loads.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testParseTokenVerifiesOnceAndRejectsInvalidTokens() {
+    String token = userService.authenticate(new AuthRequest().setUsername("user2").setPassword("password123")).getToken();
+    Claims claims = jwtUtil.parseToken(token).orElseThrow();
+    assertEquals("user2", claims.getSubject());
+    assertSame(claims, jwtUtil.parseToken(token).orElseThrow());
+    assertEquals("user2", jwtUtil.extractUsername(token));
+
+    assertTrue(jwtUtil.parseToken(token.substring(0, token.length() - 2)).isEmpty());
+    assertTrue(jwtUtil.parseToken("not.a.token").isEmpty());
+    assertTrue(jwtUtil.parseToken(null).isEmpty());
+    assertNull(jwtUtil.extractUsername("not.a.token"));
+  }
+
+  @Test
+  public void testStatelessPrincipalFromTokenClaims() {
+    String token = userService.authenticate(new AuthRequest().setUsername("existingUser").setPassword("password123")).getToken();
+    JwtPrincipal principal = jwtUtil.extractPrincipal(token).orElseThrow();
+    assertEquals(user1.getId(), principal.id());
+    assertEquals("existingUser", principal.username());
+    assertTrue(principal.roles().contains("ROLE_ADMIN"));
+    assertTrue(jwtUtil.extractPrincipal(token + "tampered").isEmpty());
+
+    SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+        principal, null, principal.roles().stream().map(SimpleGrantedAuthority::new).toList()));
+    assertEquals(user1.getId(), securityUtil.getCurrentUserId());
+    assertTrue(securityUtil.getCurrentUserRoles().contains("ROLE_ADMIN"));
+    assertTrue(securityUtil.isAdmin());
+    assertEquals("existingUser", securityUtil.getCurrentUser().getUsername());
+  }
+
   @Test
   public void testEditMyUserDetailsAlreadyExistingUsername() {
     SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user4, null, user4.getAuthorities()));